@@ -4,15 +4,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uz.hikmatullo.httpserver.config.ConfigManager;
 import uz.hikmatullo.httpserver.config.Configuration;
+import uz.hikmatullo.httpserver.core.cache.CachedContent;
+import uz.hikmatullo.httpserver.core.cache.StaticContentCache;
 import uz.hikmatullo.httpserver.core.handler.RequestHandler;
+import uz.hikmatullo.httpserver.core.handler.StaticFileHandler;
 import uz.hikmatullo.httpserver.core.model.HttpRequest;
 import uz.hikmatullo.httpserver.core.model.HttpResponse;
 import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.core.model.MultipartRawFile;
 import uz.hikmatullo.httpserver.runtime.HttpServer;
+import uz.hikmatullo.httpserver.util.MimeTypes;
 import uz.hikmatullo.httpserver.websocket.listener.EchoWebSocketListener;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
 
 
 public class Main {
@@ -28,8 +39,14 @@ public class Main {
         log.info("Application initialized in port: {}", currentConfiguration.getPort());
         log.info("Application web root is: {}", currentConfiguration.getWebroot());
 
+        warnIfUploadsAreServed(currentConfiguration);
+
         try {
-            var serverListenerThread = new HttpServer(currentConfiguration.getPort(), new TestController(), new EchoWebSocketListener());
+            StaticContentCache cache = createCache(currentConfiguration);
+            StaticFileHandler staticFiles = currentConfiguration.getWebroot() != null
+                    ? new StaticFileHandler(Path.of(currentConfiguration.getWebroot()), cache)
+                    : null;
+            var serverListenerThread = new HttpServer(currentConfiguration, new TestController(staticFiles, cache), new EchoWebSocketListener());
             serverListenerThread.start();
         } catch (IOException e) {
             log.error(e.getMessage());
@@ -39,10 +56,51 @@ public class Main {
 
 
 
+    // spilled upload parts would be downloadable while their request is handled
+    private static void warnIfUploadsAreServed(Configuration configuration) {
+        if (configuration.getWebroot() == null) return;
+        String tempDir = configuration.getMultipartTempDir() != null
+                ? configuration.getMultipartTempDir()
+                : System.getProperty("java.io.tmpdir");
+        try {
+            if (Path.of(tempDir).toRealPath().startsWith(Path.of(configuration.getWebroot()).toRealPath())) {
+                log.warn("Upload parts are spilled to {}, inside the webroot; set multipartTempDir outside of it", tempDir);
+            }
+        } catch (IOException e) {
+            // a directory that does not exist yet holds nothing
+        }
+    }
+
+    private static StaticContentCache createCache(Configuration configuration) {
+        if (configuration.getStaticCacheMaxBytes() <= 0) return null;
+        StaticContentCache cache = new StaticContentCache(configuration.getStaticCacheMaxBytes(), configuration.getStaticCacheMaxEntryBytes());
+        if (configuration.getWebroot() != null) {
+            try {
+                cache.watch(Path.of(configuration.getWebroot()));
+            } catch (IOException | UncheckedIOException e) {
+                // without change notifications cached files could go stale
+                log.warn("Cannot watch webroot, static files are not cached: {}", e.getMessage());
+                return null;
+            }
+        }
+        return cache;
+    }
+
     static class TestController implements RequestHandler {
 
         private static final Logger log = LoggerFactory.getLogger(TestController.class);
+        // classpath resources have no usable modification time; they cannot change before a restart
+        private static final long STARTED_AT = System.currentTimeMillis() / 1000 * 1000;
 
+        // everything that is not one of the pages below comes from the webroot, may be null
+        private final StaticFileHandler staticFiles;
+        // pages are classpath resources, so they never change while running; may be null
+        private final StaticContentCache cache;
+
+        TestController(StaticFileHandler staticFiles, StaticContentCache cache) {
+            this.staticFiles = staticFiles;
+            this.cache = cache;
+        }
 
         public HttpResponse sendPage(HttpRequest request) {
             String path = request.getPath();
@@ -54,7 +112,15 @@ public class Main {
                 case "/blog" -> fileName = "blog.html";
                 case "/about" -> fileName = "about.html";
                 case "/socket" -> fileName = "socket.html";
-                default -> fileName = "404.html";
+                case "/report" -> {
+                    return streamReport();
+                }
+                case "/upload" -> {
+                    return receiveUpload(request);
+                }
+                default -> {
+                    return sendStaticFile(request);
+                }
             }
 
             System.out.println("Path: " + path);
@@ -64,23 +130,99 @@ public class Main {
                 throw new RuntimeException("File not exist");
             }
 
+            return sendPage(fileName, HttpStatusCode.OK);
+        }
+
+        /**
+         * A generated CSV export, streamed with chunked encoding: rows go out while later ones are produced,
+         * and the row count follows as a trailer.
+         */
+        private static HttpResponse streamReport() {
+            HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+            response.setProtocol("HTTP/1.1");
+            response.addHeader("Content-Type", "text/csv; charset=utf-8");
+            response.addHeader("Trailer", "X-Row-Count");
+            response.setBody(out -> {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                writer.write("id,name,amount\n");
+                int rows = 100_000;
+                for (int i = 1; i <= rows; i++) {
+                    writer.write(i + ",item-" + i + "," + (i * 7 % 1000) + "\n");
+                    if (i % 10_000 == 0) writer.flush();
+                }
+                writer.flush();
+                response.addTrailer("X-Row-Count", String.valueOf(rows));
+            });
+            return response;
+        }
+
+        /**
+         * Answers with the size and CRC-32 of the request body, or of each file of a multipart form.
+         * The body is read as it arrives (with {@code streamRequestBodies}) and large uploaded files from their
+         * temporary file, so neither is held in memory.
+         */
+        private static HttpResponse receiveUpload(HttpRequest request) {
+            StringBuilder summary = new StringBuilder();
             try {
-                HttpResponse httpResponse = new HttpResponse(HttpStatusCode.OK);
-                httpResponse.setProtocol("HTTP/1.1");
-                InputStream inputStream = FileUtils.getInputStream(fileName);
+                if (request.getMultipartRawFiles().isEmpty()) {
+                    try (InputStream body = request.getBodyStream()) {
+                        summary.append(checksum(body)).append('\n');
+                    }
+                }
+                for (MultipartRawFile file : request.getMultipartRawFiles()) {
+                    try (InputStream content = file.openStream()) {
+                        summary.append(file.getFileName()).append(": ").append(checksum(content))
+                                .append(file.isInMemory() ? "" : " (on disk)").append('\n');
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+            response.setProtocol("HTTP/1.1");
+            response.addHeader("Content-Type", "text/plain; charset=utf-8");
+            response.setBody(summary.toString().getBytes(StandardCharsets.UTF_8));
+            return response;
+        }
 
-                String contentType = FileUtils.probeContentType(fileName);
-                httpResponse.addHeader("Content-Type", contentType);
-                httpResponse.addHeader("Content-Length", String.valueOf(inputStream.available()));
+        private static String checksum(InputStream in) throws IOException {
+            CRC32 crc = new CRC32();
+            long size = 0;
+            byte[] buffer = new byte[16384];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+                size += n;
+            }
+            return "bytes=" + size + " crc32=" + Long.toHexString(crc.getValue());
+        }
 
-                httpResponse.setBody(inputStream.readAllBytes());
-                return httpResponse;
+        private HttpResponse sendStaticFile(HttpRequest request) {
+            if (staticFiles != null) {
+                HttpResponse response = staticFiles.handle(request);
+                if (response.getStatusCode() != HttpStatusCode.NOT_FOUND.getCode()) {
+                    return response;
+                }
+            }
+            return sendPage("404.html", HttpStatusCode.NOT_FOUND);
+        }
+
+        private HttpResponse sendPage(String fileName, HttpStatusCode status) {
+            try {
+                CachedContent page = cache != null
+                        ? cache.get("classpath:" + fileName, () -> loadPage(fileName))
+                        : loadPage(fileName);
+                return page.toResponse(status, false);
             }catch (IOException e) {
                 log.error("I/O error happened {}", e.getMessage());
                 throw new RuntimeException("I/O error happened");
             }
+        }
 
-
+        private static CachedContent loadPage(String fileName) throws IOException {
+            try (InputStream inputStream = FileUtils.getInputStream(fileName)) {
+                return new CachedContent(null, inputStream.readAllBytes(), FileUtils.probeContentType(fileName), STARTED_AT);
+            }
         }
 
         @Override
@@ -97,21 +239,7 @@ public class Main {
         }
 
         public static String probeContentType(String fileName) {
-            final String[] tokens = fileName.split("\\.");
-            final String extension = tokens[tokens.length - 1];
-
-            return switch (extension) {
-                case "html" -> "text/html";
-                case "css" -> "text/css";
-                case "gif" -> "image/gif";
-                case "jpg", "jpeg" -> "image/jpeg";
-                case "js" -> "text/javascript";
-                case "json" -> "application/json";
-                case "mp4" -> "video/mp4";
-                case "png" -> "image/png";
-                default -> "text/plain";
-            };
-
+            return MimeTypes.probeContentType(fileName);
         }
 
         public static InputStream getInputStream(String fileName) {
@@ -3,6 +3,76 @@ package uz.hikmatullo.httpserver.config;
 public class Configuration {
     private int port;
     private String webroot;
+    private TransportType transport = TransportType.BLOCKING;
+    // 0 means "one event loop per available processor"
+    private int eventLoopThreads = 0;
+    // more than one acceptor opens one SO_REUSEPORT listener per acceptor
+    private int acceptorThreads = 1;
+    // how often per-acceptor accept rates are logged, 0 disables the report
+    private int acceptorStatsIntervalSeconds = 30;
+    // admission control, 0 disables the limit
+    private int maxConnections = 0;
+    private int maxConnectionsPerIp = 0;
+    private int overloadRetryAfterSeconds = 1;
+    // blocking transport only: idle keep-alive connections wait on a shared selector instead of a thread
+    private boolean idleConnectionParking = false;
+    // connection deadlines, kept on one hashed wheel timer; 0 disables the deadline
+    private long keepAliveTimeoutMillis = 5000;
+    private long headerReadTimeoutMillis = 10000;
+    private long webSocketIdleTimeoutMillis = 300000;
+    // shutdown waits this long for in-flight requests and WebSocket close handshakes
+    private long drainTimeoutMillis = 10000;
+    // execution model per kind of work; threads = pool size (0 = one per CPU), ignored for VIRTUAL
+    private ExecutorType httpExecutor = ExecutorType.VIRTUAL;
+    private int httpExecutorThreads = 0;
+    private ExecutorType webSocketExecutor = ExecutorType.VIRTUAL;
+    private int webSocketExecutorThreads = 0;
+    private ExecutorType cpuExecutor = ExecutorType.PLATFORM_POOL;
+    private int cpuExecutorThreads = 0;
+    // carrier threads of the virtual thread scheduler, 0 keeps the JDK default (one per CPU)
+    private int virtualThreadParallelism = 0;
+    // CPU-bound requests queued or running on the cpu executor before new ones get 503, 0 = no limit
+    private int cpuOffloadMaxPending = 256;
+    // blocking transport: pipelined requests already buffered are answered together with one flush
+    private int pipelineMaxBatch = 16;
+    // run the handlers of a pipelined batch concurrently when all its requests use safe methods
+    private boolean pipelineConcurrentSafeRequests = false;
+    // socket options; 0 keeps the OS default for sizes and the JDK default (50) for the backlog
+    private int listenBacklog = 1024;
+    private boolean tcpNoDelay = true;
+    private int receiveBufferSize = 0;
+    private int sendBufferSize = 0;
+    private boolean tcpKeepAlive = false;
+    // Linux/macOS extended options (jdk.net), used only together with tcpKeepAlive; 0 keeps the OS default
+    private int tcpKeepIdleSeconds = 0;
+    private int tcpKeepIntervalSeconds = 0;
+    private int tcpKeepCount = 0;
+    // Linux only: acknowledge immediately instead of delaying ACKs
+    private boolean tcpQuickAck = false;
+    // in-memory cache of static files, bounded by total body bytes; 0 disables it
+    private long staticCacheMaxBytes = 32L * 1024 * 1024;
+    // larger files are streamed from disk (zero-copy) instead of cached
+    private long staticCacheMaxEntryBytes = 1024 * 1024;
+    // gzip/deflate for compressible responses when the client accepts it
+    private boolean compression = false;
+    // smaller bodies are sent as they are: the codec framing would eat most of the gain
+    private int compressionMinBytes = 1024;
+    // 1 (fastest) to 9 (smallest)
+    private int compressionLevel = 6;
+    // handlers read request bodies from the connection (HttpRequest.getBodyStream) instead of getting them in memory
+    private boolean streamRequestBodies = false;
+    // an unread streamed body up to this size is skipped to keep the connection; a longer one closes it
+    private long requestBodyDrainMaxBytes = 1024 * 1024;
+    // multipart bodies up to this size are parsed in memory; larger ones while they arrive, with file parts
+    // above this size written to temporary files
+    private long multipartSpillThresholdBytes = 256 * 1024;
+    // directory of those temporary files; null for the system default
+    private String multipartTempDir;
+    // a connection reuses the header storage of a request whose response was sent for its next request
+    private boolean recycleRequests = true;
+    // a recycled request fails on any later use instead of showing the next request's headers to a handler
+    // that kept it; costs one field read per getter, turn off only with handlers known not to keep requests
+    private boolean detectRetainedRequests = true;
 
     public int getPort() {
         return port;
@@ -19,4 +89,340 @@ public class Configuration {
     public void setWebroot(String webroot) {
         this.webroot = webroot;
     }
+
+    public TransportType getTransport() {
+        return transport;
+    }
+
+    public void setTransport(TransportType transport) {
+        this.transport = transport;
+    }
+
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    public void setEventLoopThreads(int eventLoopThreads) {
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
+    public int getAcceptorThreads() {
+        return acceptorThreads;
+    }
+
+    public void setAcceptorThreads(int acceptorThreads) {
+        this.acceptorThreads = acceptorThreads;
+    }
+
+    public int getAcceptorStatsIntervalSeconds() {
+        return acceptorStatsIntervalSeconds;
+    }
+
+    public void setAcceptorStatsIntervalSeconds(int acceptorStatsIntervalSeconds) {
+        this.acceptorStatsIntervalSeconds = acceptorStatsIntervalSeconds;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerIp() {
+        return maxConnectionsPerIp;
+    }
+
+    public void setMaxConnectionsPerIp(int maxConnectionsPerIp) {
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+    }
+
+    public int getOverloadRetryAfterSeconds() {
+        return overloadRetryAfterSeconds;
+    }
+
+    public void setOverloadRetryAfterSeconds(int overloadRetryAfterSeconds) {
+        this.overloadRetryAfterSeconds = overloadRetryAfterSeconds;
+    }
+
+    public boolean isIdleConnectionParking() {
+        return idleConnectionParking;
+    }
+
+    public void setIdleConnectionParking(boolean idleConnectionParking) {
+        this.idleConnectionParking = idleConnectionParking;
+    }
+
+    public long getKeepAliveTimeoutMillis() {
+        return keepAliveTimeoutMillis;
+    }
+
+    public void setKeepAliveTimeoutMillis(long keepAliveTimeoutMillis) {
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+    }
+
+    public long getHeaderReadTimeoutMillis() {
+        return headerReadTimeoutMillis;
+    }
+
+    public void setHeaderReadTimeoutMillis(long headerReadTimeoutMillis) {
+        this.headerReadTimeoutMillis = headerReadTimeoutMillis;
+    }
+
+    public long getWebSocketIdleTimeoutMillis() {
+        return webSocketIdleTimeoutMillis;
+    }
+
+    public void setWebSocketIdleTimeoutMillis(long webSocketIdleTimeoutMillis) {
+        this.webSocketIdleTimeoutMillis = webSocketIdleTimeoutMillis;
+    }
+
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+
+    public void setDrainTimeoutMillis(long drainTimeoutMillis) {
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+
+    public ExecutorType getHttpExecutor() {
+        return httpExecutor;
+    }
+
+    public void setHttpExecutor(ExecutorType httpExecutor) {
+        this.httpExecutor = httpExecutor;
+    }
+
+    public int getHttpExecutorThreads() {
+        return httpExecutorThreads;
+    }
+
+    public void setHttpExecutorThreads(int httpExecutorThreads) {
+        this.httpExecutorThreads = httpExecutorThreads;
+    }
+
+    public ExecutorType getWebSocketExecutor() {
+        return webSocketExecutor;
+    }
+
+    public void setWebSocketExecutor(ExecutorType webSocketExecutor) {
+        this.webSocketExecutor = webSocketExecutor;
+    }
+
+    public int getWebSocketExecutorThreads() {
+        return webSocketExecutorThreads;
+    }
+
+    public void setWebSocketExecutorThreads(int webSocketExecutorThreads) {
+        this.webSocketExecutorThreads = webSocketExecutorThreads;
+    }
+
+    public ExecutorType getCpuExecutor() {
+        return cpuExecutor;
+    }
+
+    public void setCpuExecutor(ExecutorType cpuExecutor) {
+        this.cpuExecutor = cpuExecutor;
+    }
+
+    public int getCpuExecutorThreads() {
+        return cpuExecutorThreads;
+    }
+
+    public void setCpuExecutorThreads(int cpuExecutorThreads) {
+        this.cpuExecutorThreads = cpuExecutorThreads;
+    }
+
+    public int getVirtualThreadParallelism() {
+        return virtualThreadParallelism;
+    }
+
+    public void setVirtualThreadParallelism(int virtualThreadParallelism) {
+        this.virtualThreadParallelism = virtualThreadParallelism;
+    }
+
+    public int getCpuOffloadMaxPending() {
+        return cpuOffloadMaxPending;
+    }
+
+    public void setCpuOffloadMaxPending(int cpuOffloadMaxPending) {
+        this.cpuOffloadMaxPending = cpuOffloadMaxPending;
+    }
+
+    public int getPipelineMaxBatch() {
+        return pipelineMaxBatch;
+    }
+
+    public void setPipelineMaxBatch(int pipelineMaxBatch) {
+        this.pipelineMaxBatch = pipelineMaxBatch;
+    }
+
+    public boolean isPipelineConcurrentSafeRequests() {
+        return pipelineConcurrentSafeRequests;
+    }
+
+    public void setPipelineConcurrentSafeRequests(boolean pipelineConcurrentSafeRequests) {
+        this.pipelineConcurrentSafeRequests = pipelineConcurrentSafeRequests;
+    }
+
+    public int getListenBacklog() {
+        return listenBacklog;
+    }
+
+    public void setListenBacklog(int listenBacklog) {
+        this.listenBacklog = listenBacklog;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public void setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public void setSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    public boolean isTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+
+    public void setTcpKeepAlive(boolean tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+    }
+
+    public int getTcpKeepIdleSeconds() {
+        return tcpKeepIdleSeconds;
+    }
+
+    public void setTcpKeepIdleSeconds(int tcpKeepIdleSeconds) {
+        this.tcpKeepIdleSeconds = tcpKeepIdleSeconds;
+    }
+
+    public int getTcpKeepIntervalSeconds() {
+        return tcpKeepIntervalSeconds;
+    }
+
+    public void setTcpKeepIntervalSeconds(int tcpKeepIntervalSeconds) {
+        this.tcpKeepIntervalSeconds = tcpKeepIntervalSeconds;
+    }
+
+    public int getTcpKeepCount() {
+        return tcpKeepCount;
+    }
+
+    public void setTcpKeepCount(int tcpKeepCount) {
+        this.tcpKeepCount = tcpKeepCount;
+    }
+
+    public boolean isTcpQuickAck() {
+        return tcpQuickAck;
+    }
+
+    public void setTcpQuickAck(boolean tcpQuickAck) {
+        this.tcpQuickAck = tcpQuickAck;
+    }
+
+    public long getStaticCacheMaxBytes() {
+        return staticCacheMaxBytes;
+    }
+
+    public void setStaticCacheMaxBytes(long staticCacheMaxBytes) {
+        this.staticCacheMaxBytes = staticCacheMaxBytes;
+    }
+
+    public long getStaticCacheMaxEntryBytes() {
+        return staticCacheMaxEntryBytes;
+    }
+
+    public void setStaticCacheMaxEntryBytes(long staticCacheMaxEntryBytes) {
+        this.staticCacheMaxEntryBytes = staticCacheMaxEntryBytes;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public int getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    public void setCompressionMinBytes(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public boolean isStreamRequestBodies() {
+        return streamRequestBodies;
+    }
+
+    public void setStreamRequestBodies(boolean streamRequestBodies) {
+        this.streamRequestBodies = streamRequestBodies;
+    }
+
+    public long getRequestBodyDrainMaxBytes() {
+        return requestBodyDrainMaxBytes;
+    }
+
+    public void setRequestBodyDrainMaxBytes(long requestBodyDrainMaxBytes) {
+        this.requestBodyDrainMaxBytes = requestBodyDrainMaxBytes;
+    }
+
+    public long getMultipartSpillThresholdBytes() {
+        return multipartSpillThresholdBytes;
+    }
+
+    public void setMultipartSpillThresholdBytes(long multipartSpillThresholdBytes) {
+        this.multipartSpillThresholdBytes = multipartSpillThresholdBytes;
+    }
+
+    public String getMultipartTempDir() {
+        return multipartTempDir;
+    }
+
+    public void setMultipartTempDir(String multipartTempDir) {
+        this.multipartTempDir = multipartTempDir;
+    }
+
+    public boolean isRecycleRequests() {
+        return recycleRequests;
+    }
+
+    public void setRecycleRequests(boolean recycleRequests) {
+        this.recycleRequests = recycleRequests;
+    }
+
+    public boolean isDetectRetainedRequests() {
+        return detectRetainedRequests;
+    }
+
+    public void setDetectRetainedRequests(boolean detectRetainedRequests) {
+        this.detectRetainedRequests = detectRetainedRequests;
+    }
 }
@@ -0,0 +1,13 @@
+package uz.hikmatullo.httpserver.config;
+
+/**
+ * How tasks of one kind (HTTP connections, WebSocket sessions, CPU work) are executed.
+ * - VIRTUAL: a new virtual thread per task (carrier parallelism via virtualThreadParallelism)
+ * - PLATFORM_POOL: fixed number of platform threads
+ * - FORK_JOIN: work-stealing ForkJoinPool in FIFO (async) mode
+ */
+public enum ExecutorType {
+    VIRTUAL,
+    PLATFORM_POOL,
+    FORK_JOIN
+}
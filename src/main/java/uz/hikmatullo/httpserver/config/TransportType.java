@@ -0,0 +1,11 @@
+package uz.hikmatullo.httpserver.config;
+
+/**
+ * Connection transport used by the server.
+ * - BLOCKING: blocking accept, one virtual thread per connection
+ * - NIO: non-blocking channels multiplexed over a few selector event loops
+ */
+public enum TransportType {
+    BLOCKING,
+    NIO
+}
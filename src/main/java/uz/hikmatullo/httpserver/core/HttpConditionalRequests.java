@@ -0,0 +1,82 @@
+package uz.hikmatullo.httpserver.core;
+
+import uz.hikmatullo.httpserver.core.compression.ContentCoding;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+/**
+ * Validators (ETag, Last-Modified) and the If-None-Match / If-Modified-Since evaluation of RFC 9110 13
+ * for GET and HEAD, so clients that already hold the current representation get a 304 without a body.
+ */
+public final class HttpConditionalRequests {
+
+    private HttpConditionalRequests() {
+    }
+
+    public static void addValidators(HttpResponse response, String etag, long lastModifiedMillis) {
+        response.addHeader(HttpHeader.ETAG, etag);
+        response.addHeader(HttpHeader.LAST_MODIFIED, HttpDates.format(lastModifiedMillis));
+    }
+
+    /**
+     * @param etag               current strong validator of the resource
+     * @param lastModifiedMillis current modification time
+     * @return the 304 response if the client's copy is still current, otherwise null
+     */
+    public static HttpResponse evaluate(HttpRequest request, String etag, long lastModifiedMillis) {
+        String ifNoneMatch = request.getHeader(HttpHeader.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is ignored when If-None-Match is present
+            String matched = match(ifNoneMatch, etag);
+            return matched != null ? notModified(matched, lastModifiedMillis) : null;
+        }
+
+        String ifModifiedSince = request.getHeader(HttpHeader.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            long since = HttpDates.parse(ifModifiedSince);
+            // HTTP dates have a resolution of one second
+            if (since >= 0 && lastModifiedMillis / 1000 <= since / 1000) {
+                return notModified(etag, lastModifiedMillis);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Weak comparison of an If-None-Match list against the current tag. A tag of a compressed variant
+     * (see {@link ContentCoding#etagFor}) matches as well: it names the same content.
+     *
+     * @return the tag to send back with the 304, or null if nothing matched
+     */
+    static String match(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) return etag;
+
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.isEmpty()) continue;
+            if (ContentCoding.stripEtagCoding(opaqueTag(tag)).equals(opaque)) {
+                // the client's own variant, e.g. the gzip tag it got with a compressed body
+                return opaqueTag(tag);
+            }
+        }
+        return null;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static HttpResponse notModified(String etag, long lastModifiedMillis) {
+        HttpResponse response = new HttpResponse(HttpStatusCode.NOT_MODIFIED);
+        response.setProtocol("HTTP/1.1");
+        addValidators(response, etag, lastModifiedMillis);
+        if (!ContentCoding.stripEtagCoding(etag).equals(etag)) {
+            // the client holds a compressed variant
+            response.addHeader(HttpHeader.VARY, "Accept-Encoding");
+        }
+        return response;
+    }
+}
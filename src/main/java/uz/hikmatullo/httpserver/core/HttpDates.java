@@ -0,0 +1,58 @@
+package uz.hikmatullo.httpserver.core;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * HTTP dates (RFC 9110 5.6.7). The Date header of the current second is formatted once
+ * and shared by every response sent in that second.
+ */
+public final class HttpDates {
+
+    // IMF-fixdate; RFC_1123_DATE_TIME would not pad the day of month
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private record CachedDate(long epochSecond, String value) {
+    }
+
+    private static volatile CachedDate current = new CachedDate(-1, "");
+
+    private HttpDates() {
+    }
+
+    /**
+     * @return the Date header value for now, reformatted at most once per second
+     */
+    public static String now() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        CachedDate cached = current;
+        if (cached.epochSecond() != epochSecond) {
+            // racing threads format the same second twice at worst
+            cached = new CachedDate(epochSecond, format(epochSecond * 1000));
+            current = cached;
+        }
+        return cached.value();
+    }
+
+    public static String format(long epochMillis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * Accepts IMF-fixdate and the day-unpadded RFC 1123 form.
+     *
+     * @return the epoch millis, or -1 if the value is not a valid HTTP date
+     */
+    public static long parse(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
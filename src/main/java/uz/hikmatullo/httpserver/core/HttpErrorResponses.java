@@ -0,0 +1,36 @@
+package uz.hikmatullo.httpserver.core;
+
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds the small HTML error responses sent when a request cannot be served.
+ * Error responses always close the connection.
+ */
+public final class HttpErrorResponses {
+
+    private HttpErrorResponses() {
+    }
+
+    public static HttpResponse create(HttpStatusCode status, String message) {
+        byte[] bodyBytes = getError(status, message);
+        HttpResponse response = new HttpResponse(status);
+        response.addHeader(HttpHeader.CONTENT_TYPE, "text/html; charset=utf-8");
+        response.addHeader(HttpHeader.CONTENT_LENGTH, String.valueOf(bodyBytes.length));
+        response.addHeader(HttpHeader.CONNECTION, "close");
+        HttpHeaderDefaults.applyServerInfoHeaders(response);
+        response.setBody(bodyBytes);
+        return response;
+    }
+
+    private static byte[] getError(HttpStatusCode status, String message) {
+        String reason = status.getReasonPhrase(); // e.g. "Bad Request"
+        String body = "<html><body><h2>" + status.getCode() + " " + reason + "</h2>" +
+                "<p>" + message + "</p></body></html>";
+
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+}
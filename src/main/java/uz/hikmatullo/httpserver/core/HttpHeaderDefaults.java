@@ -1,28 +1,46 @@
 package uz.hikmatullo.httpserver.core;
 
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
 import uz.hikmatullo.httpserver.core.model.HttpResponse;
 
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-
 public class HttpHeaderDefaults {
+
+    private record KeepAliveValue(long timeoutMillis, String value) {
+    }
+
+    // the same for every response of a server, only rebuilt when another timeout is asked for
+    private static volatile KeepAliveValue keepAliveValue = new KeepAliveValue(-1, "");
+
     public static void applyDefaultResponseHeaders(HttpResponse response, boolean keepAlive) {
+        applyDefaultResponseHeaders(response, keepAlive, HttpKeepAliveManager.DEFAULT_KEEP_ALIVE_TIMEOUT);
+    }
+
+    public static void applyDefaultResponseHeaders(HttpResponse response, boolean keepAlive, long keepAliveTimeoutMillis) {
         applyServerInfoHeaders(response);
         if (keepAlive) {
-            response.addHeader("Connection", "keep-alive");
-            response.addHeader("Keep-Alive", "timeout=5, max=100");
+            response.addHeader(HttpHeader.CONNECTION, "keep-alive");
+            response.addHeader(HttpHeader.KEEP_ALIVE, keepAliveValue(keepAliveTimeoutMillis));
         } else {
-            response.addHeader("Connection", "close");
+            response.addHeader(HttpHeader.CONNECTION, "close");
         }
     }
 
     public static void applyServerInfoHeaders(HttpResponse response) {
-        if (response.getHeader("Date") == null) {
-            response.addHeader("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+        if (response.getHeader(HttpHeader.DATE) == null) {
+            response.addHeader(HttpHeader.DATE, HttpDates.now());
+        }
+        if (response.getHeader(HttpHeader.SERVER) == null) {
+            response.addHeader(HttpHeader.SERVER, "HA_HTTP/1.1");
         }
-        if (response.getHeader("Server") == null) {
-            response.addHeader("Server", "HA_HTTP/1.1");
+    }
+
+    private static String keepAliveValue(long keepAliveTimeoutMillis) {
+        KeepAliveValue cached = keepAliveValue;
+        if (cached.timeoutMillis() != keepAliveTimeoutMillis) {
+            cached = new KeepAliveValue(keepAliveTimeoutMillis,
+                    "timeout=" + Math.max(1, keepAliveTimeoutMillis / 1000) + ", max=" + HttpKeepAliveManager.MAX_REQUESTS);
+            keepAliveValue = cached;
         }
+        return cached.value();
     }
 }
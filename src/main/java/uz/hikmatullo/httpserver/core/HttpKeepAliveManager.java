@@ -1,38 +1,67 @@
 package uz.hikmatullo.httpserver.core;
 
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
 import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
 import uz.hikmatullo.httpserver.core.model.HttpVersion;
 
+/**
+ * Decides per request whether the connection stays open.
+ * The idle timeout itself is enforced by the transports on the server timer, not here.
+ */
 public class HttpKeepAliveManager {
 
-    private static final int KEEP_ALIVE_TIMEOUT = 5000; // ms
-    private static final int MAX_REQUESTS = 100;
+    public static final long DEFAULT_KEEP_ALIVE_TIMEOUT = 5000; // ms
+    public static final int MAX_REQUESTS = 100;
 
     private int requestCount = 0;
-    private long lastRequestTime = System.currentTimeMillis();
 
 
     public boolean shouldKeepAlive(HttpRequest request) {
+        boolean keepAlive = canKeepAlive(request, 0);
         requestCount++;
+        return keepAlive;
+    }
 
+    /**
+     * What {@link #shouldKeepAlive} will answer for a request that is answered after {@code pending} others,
+     * e.g. one read ahead from a pipeline. Counts nothing.
+     */
+    public boolean canKeepAlive(HttpRequest request, int pending) {
         // If client explicitly asks to close
-        String connectionHeader = request.getHeader("Connection");
-        if (connectionHeader != null && connectionHeader.equalsIgnoreCase("close")) {
+        if (requestsClose(request)) {
             return false;
         }
 
-        // Timeout or max request limit reached
-        if (System.currentTimeMillis() - lastRequestTime > KEEP_ALIVE_TIMEOUT) {
+        // Max request limit reached
+        if (requestCount + pending + 1 >= MAX_REQUESTS) {
             return false;
         }
 
-        if (requestCount >= MAX_REQUESTS) {
+        // Default HTTP/1.1 behavior: keep-alive ON unless told otherwise
+        return request.getHttpVersion().equals(HttpVersion.HTTP_1_1);
+    }
+
+    /**
+     * @return true if the client announced that no request follows this one
+     */
+    public static boolean requestsClose(HttpRequest request) {
+        String connectionHeader = request.getHeader(HttpHeader.CONNECTION);
+        return connectionHeader != null && connectionHeader.equalsIgnoreCase("close");
+    }
+
+    /**
+     * Adapts a streamed response of unknown length to clients without chunked encoding (HTTP/1.0):
+     * the body is sent unframed and ends when the connection closes.
+     *
+     * @return true if the connection has to close after this response
+     */
+    public static boolean adaptStreamingBody(HttpRequest request, HttpResponse response) {
+        if (!response.isChunked() || request.getHttpVersion().equals(HttpVersion.HTTP_1_1)) {
             return false;
         }
-
-        // Default HTTP/1.1 behavior: keep-alive ON unless told otherwise
-        boolean keepAlive = request.getHttpVersion().equals(HttpVersion.HTTP_1_1);
-        lastRequestTime = System.currentTimeMillis();
-        return keepAlive;
+        response.removeHeader(HttpHeader.TRANSFER_ENCODING);
+        response.getTrailers().clear();
+        return true;
     }
 }
@@ -0,0 +1,167 @@
+package uz.hikmatullo.httpserver.core;
+
+import uz.hikmatullo.httpserver.core.model.BodySegment;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpMethod;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Byte-range requests (RFC 9110 14): Range and If-Range on GET answered with 206 Partial Content,
+ * as a single part or multipart/byteranges, and 416 when no requested range overlaps the content.
+ * The parts are slices of the full body ({@link BodySegment}), so a range of a file is still sent with transferTo.
+ */
+public final class HttpRanges {
+
+    public static final String ACCEPT_RANGES = "bytes";
+
+    // more ranges than this are answered with the full body, so tiny ranges cannot multiply the part overhead
+    static final int MAX_RANGES = 16;
+
+    private HttpRanges() {
+    }
+
+    record ByteRange(long first, long last) {
+        long length() {
+            return last - first + 1;
+        }
+    }
+
+    /**
+     * @param body               the complete representation
+     * @param etag               its current strong validator, for If-Range
+     * @param lastModifiedMillis its modification time, for If-Range
+     * @return the 206 or 416 response, or null if the full body should be sent
+     * (no Range header, not GET, an unsupported or invalid range, or a failed If-Range)
+     */
+    public static HttpResponse evaluate(HttpRequest request, BodySegment body, String contentType,
+                                        String etag, long lastModifiedMillis) {
+        String range = request.getHeader(HttpHeader.RANGE);
+        if (range == null || request.getMethod() != HttpMethod.GET) return null;
+
+        String ifRange = request.getHeader(HttpHeader.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(ifRange.trim(), etag, lastModifiedMillis)) return null;
+
+        List<ByteRange> ranges = parse(range, body.getLength());
+        if (ranges == null) return null;
+
+        if (ranges.isEmpty()) {
+            HttpResponse response = new HttpResponse(HttpStatusCode.RANGE_NOT_SATISFIABLE);
+            response.setProtocol("HTTP/1.1");
+            response.addHeader(HttpHeader.CONTENT_RANGE, "bytes */" + body.getLength());
+            response.setBody(new byte[0]);
+            return response;
+        }
+
+        HttpResponse response = new HttpResponse(HttpStatusCode.PARTIAL_CONTENT);
+        response.setProtocol("HTTP/1.1");
+        HttpConditionalRequests.addValidators(response, etag, lastModifiedMillis);
+        response.addHeader(HttpHeader.ACCEPT_RANGES, ACCEPT_RANGES);
+        if (ranges.size() == 1) {
+            ByteRange only = ranges.getFirst();
+            response.addHeader(HttpHeader.CONTENT_TYPE, contentType);
+            response.addHeader(HttpHeader.CONTENT_RANGE, contentRange(only, body.getLength()));
+            response.setBody(List.of(body.slice(only.first(), only.length())));
+            return response;
+        }
+
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(System.nanoTime());
+        List<BodySegment> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        for (ByteRange part : ranges) {
+            String partHead = "\r\n--" + boundary + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Range: " + contentRange(part, body.getLength()) + "\r\n\r\n";
+            parts.add(new BodySegment.Bytes(partHead.getBytes(StandardCharsets.US_ASCII)));
+            parts.add(body.slice(part.first(), part.length()));
+        }
+        parts.add(new BodySegment.Bytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII)));
+        response.addHeader(HttpHeader.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        response.setBody(parts);
+        return response;
+    }
+
+    /**
+     * If-Range holds either a strong entity tag or a date; both must match exactly (RFC 9110 13.1.5).
+     */
+    static boolean ifRangeMatches(String ifRange, String etag, long lastModifiedMillis) {
+        if (ifRange.startsWith("\"")) return ifRange.equals(etag);
+        if (ifRange.startsWith("W/")) return false; // weak tags never match
+        long date = HttpDates.parse(ifRange);
+        return date >= 0 && date / 1000 == lastModifiedMillis / 1000;
+    }
+
+    /**
+     * Parses "bytes=0-99, 200-, -50" against the content length. Overlapping and adjacent ranges are merged.
+     *
+     * @return the satisfiable ranges in ascending order (empty: none is satisfiable),
+     * or null if the header is invalid or asks for too many ranges and should be ignored
+     */
+    static List<ByteRange> parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) return null;
+
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) return null;
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dash = trimmed.indexOf('-');
+            if (dash < 0) return null;
+            String first = trimmed.substring(0, dash).trim();
+            String last = trimmed.substring(dash + 1).trim();
+            try {
+                if (first.isEmpty()) {
+                    // suffix range: the last N bytes
+                    long suffix = parseDigits(last);
+                    if (suffix > 0 && length > 0) ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    continue;
+                }
+                long start = parseDigits(first);
+                long end = last.isEmpty() ? Long.MAX_VALUE : parseDigits(last);
+                if (end < start) return null;
+                if (start < length) ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static long parseDigits(String digits) {
+        if (digits.isEmpty()) throw new NumberFormatException("empty");
+        for (int i = 0; i < digits.length(); i++) {
+            if (digits.charAt(i) < '0' || digits.charAt(i) > '9') throw new NumberFormatException(digits);
+        }
+        return Long.parseLong(digits);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) return ranges;
+        ranges.sort(Comparator.comparingLong(ByteRange::first));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.getFirst();
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.first() <= current.last() + 1) {
+                current = new ByteRange(current.first(), Math.max(current.last(), next.last()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    private static String contentRange(ByteRange range, long length) {
+        return "bytes " + range.first() + "-" + range.last() + "/" + length;
+    }
+}
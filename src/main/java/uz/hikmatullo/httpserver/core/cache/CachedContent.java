@@ -0,0 +1,100 @@
+package uz.hikmatullo.httpserver.core.cache;
+
+import uz.hikmatullo.httpserver.core.HttpDates;
+import uz.hikmatullo.httpserver.core.model.BodyVariants;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A static resource kept in memory together with everything its response needs,
+ * so a hit is answered without touching the disk. Compressed forms of the body are kept with it
+ * once they were produced, and leave the cache together with it.
+ */
+public class CachedContent implements BodyVariants {
+    private final Path source; // file it was read from, null for classpath resources
+    private final byte[] body;
+    private final String contentType;
+    private final long lastModifiedMillis;
+    private final String etag;
+    private final String lastModifiedHeader;
+    // not counted against the cache limit: compressed bodies are a fraction of the identity body
+    private final Map<String, byte[]> encodedBodies = new ConcurrentHashMap<>(2);
+
+    public CachedContent(Path source, byte[] body, String contentType, long lastModifiedMillis) {
+        this.source = source;
+        this.body = body;
+        this.contentType = contentType;
+        this.lastModifiedMillis = lastModifiedMillis;
+        this.etag = etag(lastModifiedMillis, body.length);
+        this.lastModifiedHeader = HttpDates.format(lastModifiedMillis);
+    }
+
+    /**
+     * Strong validator from modification time and size, the same for cached and uncached files.
+     */
+    public static String etag(long lastModifiedMillis, long length) {
+        return "\"" + Long.toHexString(lastModifiedMillis) + "-" + Long.toHexString(length) + "\"";
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getLastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public int getLength() {
+        return body.length;
+    }
+
+    @Override
+    public byte[] encoded(String coding, UnaryOperator<byte[]> encoder) {
+        byte[] encoded = encodedBodies.get(coding);
+        if (encoded != null) return encoded;
+        // not computeIfAbsent: it would hold a bin lock (and pin a virtual thread) while compressing;
+        // two concurrent first requests may both compress, the first result is kept
+        encoded = encoder.apply(body);
+        byte[] previous = encodedBodies.putIfAbsent(coding, encoded);
+        return previous != null ? previous : encoded;
+    }
+
+    /**
+     * A fresh response sharing the cached body bytes (they are never modified).
+     *
+     * @param headOnly HEAD request: the headers of the body, without it
+     */
+    public HttpResponse toResponse(HttpStatusCode status, boolean headOnly) {
+        HttpResponse response = new HttpResponse(status);
+        response.setProtocol("HTTP/1.1");
+        response.addHeader(HttpHeader.CONTENT_TYPE, contentType);
+        if (status.getCode() < 300) {
+            response.addHeader(HttpHeader.ETAG, etag);
+            response.addHeader(HttpHeader.LAST_MODIFIED, lastModifiedHeader);
+        }
+        if (headOnly) {
+            response.setHeadOnlyBody(body, this);
+        } else {
+            response.setBody(body, this);
+        }
+        return response;
+    }
+}
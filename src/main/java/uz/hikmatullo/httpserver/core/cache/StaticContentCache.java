@@ -0,0 +1,279 @@
+package uz.hikmatullo.httpserver.core.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory cache of static resources, bounded by the total size of the cached bodies.
+ * Least recently used entries are evicted first; files larger than the per-entry limit are never cached
+ * (they are cheaper to stream from the page cache). Entries read from a watched directory are dropped
+ * as soon as the {@link WatchService} reports a change of their file.
+ * A ReentrantLock rather than synchronized: virtual threads must not pin while they wait for it.
+ */
+public class StaticContentCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(StaticContentCache.class);
+
+    /**
+     * Reads a resource on a miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return the content, or null if the resource does not exist (not cached)
+         */
+        CachedContent load() throws IOException;
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    // access order: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedContent> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    // bumped by every invalidation, so a load that raced with a file change is not cached
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private WatchService watchService;
+
+    /**
+     * @param maxBytes      total size of all cached bodies
+     * @param maxEntryBytes larger resources are not cached
+     */
+    public StaticContentCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    /**
+     * Largest body that is cached; callers can skip loading bigger files into memory at all.
+     */
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public CachedContent get(String key, Loader loader) throws IOException {
+        CachedContent cached = getIfPresent(key);
+        if (cached != null) return cached;
+
+        misses.increment();
+        long loadGeneration = currentGeneration();
+        // loaded outside the lock; two concurrent misses may both read the file, which is harmless
+        CachedContent loaded = loader.load();
+        if (loaded != null) put(key, loaded, loadGeneration);
+        return loaded;
+    }
+
+    private long currentGeneration() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CachedContent getIfPresent(String key) {
+        lock.lock();
+        try {
+            CachedContent cached = entries.get(key);
+            if (cached != null) hits.increment();
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String key, CachedContent content) {
+        put(key, content, -1);
+    }
+
+    private void put(String key, CachedContent content, long loadGeneration) {
+        if (content.getLength() > maxEntryBytes) return;
+        lock.lock();
+        try {
+            if (loadGeneration >= 0 && loadGeneration != generation) return;
+            CachedContent previous = entries.put(key, content);
+            if (previous != null) totalBytes -= previous.getLength();
+            totalBytes += content.getLength();
+
+            Iterator<CachedContent> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                CachedContent evicted = eldest.next();
+                eldest.remove();
+                totalBytes -= evicted.getLength();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every entry read from the given file, or from below it if it is a directory.
+     */
+    public void invalidate(Path source) {
+        lock.lock();
+        try {
+            generation++;
+            Iterator<CachedContent> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CachedContent content = iterator.next();
+                if (content.getSource() != null && content.getSource().startsWith(source)) {
+                    iterator.remove();
+                    totalBytes -= content.getLength();
+                    invalidations.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            generation++;
+            invalidations.add(entries.size());
+            entries.clear();
+            totalBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Watches the directory tree below root and invalidates entries whose files change.
+     * Runs a daemon thread until {@link #close()}.
+     */
+    public void watch(Path root) throws IOException {
+        Path directory = root.toAbsolutePath().normalize();
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(directory);
+        Thread.ofPlatform().daemon().name("static-cache-watcher").start(this::processEvents);
+        log.info("Watching {} for changes of cached files", directory);
+    }
+
+    private void registerTree(Path directory) throws IOException {
+        try (Stream<Path> tree = Files.walk(directory)) {
+            for (Path dir : (Iterable<Path>) tree.filter(Files::isDirectory)::iterator) {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // events were lost: nothing in the cache can be trusted
+                    log.debug("File change events overflowed, clearing the static cache");
+                    clear();
+                    continue;
+                }
+                Path changed = directory.resolve((Path) event.context());
+                log.debug("{} {}", event.kind().name(), changed);
+                invalidate(changed);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                    try {
+                        registerTree(changed);
+                    } catch (IOException e) {
+                        log.warn("Could not watch new directory {}: {}", changed, e.getMessage());
+                    }
+                }
+            }
+            key.reset();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) watchService.close();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    public int getEntryCount() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTotalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cacheEntries=" + getEntryCount() +
+                " cacheBytes=" + getTotalBytes() +
+                " cacheHits=" + getHitCount() +
+                " cacheMisses=" + getMissCount() +
+                " cacheEvictions=" + getEvictionCount() +
+                " cacheInvalidations=" + getInvalidationCount();
+    }
+
+    /**
+     * Snapshot of the keys from least to most recently used, for tests and debugging.
+     */
+    Map<String, CachedContent> snapshot() {
+        lock.lock();
+        try {
+            return new LinkedHashMap<>(entries);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
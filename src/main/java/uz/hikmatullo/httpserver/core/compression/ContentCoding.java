@@ -0,0 +1,154 @@
+package uz.hikmatullo.httpserver.core.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-codings the server can produce, in order of preference.
+ */
+public enum ContentCoding {
+    GZIP("gzip"),
+    // "deflate" in HTTP is the zlib format (RFC 1950), which is what DeflaterOutputStream writes by default
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * The validator of this coding's variant: a strong ETag must differ between representations,
+     * so the coding is appended inside the quotes ("abc" becomes "abc-gzip").
+     */
+    public String etagFor(String etag) {
+        if (!etag.endsWith("\"")) return etag;
+        return etag.substring(0, etag.length() - 1) + "-" + token + "\"";
+    }
+
+    /**
+     * Reverses {@link #etagFor(String)}; other tags are returned unchanged.
+     */
+    public static String stripEtagCoding(String etag) {
+        for (ContentCoding coding : values()) {
+            String suffix = "-" + coding.token + "\"";
+            if (etag.endsWith(suffix)) {
+                return etag.substring(0, etag.length() - suffix.length()) + "\"";
+            }
+        }
+        return etag;
+    }
+
+    /**
+     * Picks the coding from an Accept-Encoding header (RFC 9110 12.5.3): the highest q-value wins,
+     * ties go to the server's preference. "*" stands for every coding not listed explicitly.
+     *
+     * @return null if the client accepts none of them (or sent no header)
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return null;
+
+        double[] quality = new double[values().length];
+        boolean[] listed = new boolean[values().length];
+        double wildcard = 0;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String token = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (token.equals("*")) {
+                wildcard = q;
+                continue;
+            }
+            for (ContentCoding coding : values()) {
+                if (coding.token.equals(token) || (coding == GZIP && token.equals("x-gzip"))) {
+                    quality[coding.ordinal()] = q;
+                    listed[coding.ordinal()] = true;
+                }
+            }
+        }
+
+        ContentCoding best = null;
+        double bestQuality = 0;
+        for (ContentCoding coding : values()) {
+            double q = listed[coding.ordinal()] ? quality[coding.ordinal()] : wildcard;
+            if (q > bestQuality) {
+                best = coding;
+                bestQuality = q;
+            }
+        }
+        return best;
+    }
+
+    public byte[] encode(byte[] body, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (DeflaterOutputStream encoder = newEncoder(out, level)) {
+            encoder.write(body);
+        } catch (IOException e) {
+            // in-memory streams do not fail
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encoder for a streamed body. flush() pushes everything written so far through the deflater (sync flush),
+     * so a streaming producer's flushes still reach the client. close() ends the coding and releases the deflater,
+     * but leaves out open for whatever the connection sends after the body.
+     */
+    public DeflaterOutputStream newEncoder(OutputStream out, int level) throws IOException {
+        return this == GZIP ? new LeveledGzipOutputStream(out, level) : new LeveledDeflaterOutputStream(out, level);
+    }
+
+    // the JDK streams only expose the level through their protected deflater
+
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, true);
+            def.setLevel(level);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                def.end();
+            }
+        }
+    }
+
+    private static final class LeveledDeflaterOutputStream extends DeflaterOutputStream {
+        LeveledDeflaterOutputStream(OutputStream out, int level) {
+            super(out, true);
+            def.setLevel(level);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                def.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package uz.hikmatullo.httpserver.core.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.config.Configuration;
+import uz.hikmatullo.httpserver.core.model.BodyVariants;
+import uz.hikmatullo.httpserver.core.model.FileRegion;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.StreamingBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses response bodies for clients that accept it (Accept-Encoding), as the last step before
+ * a response is written.
+ * <ul>
+ *     <li>Only compressible types (text, JSON, JavaScript, XML, SVG) of at least {@code compressionMinBytes}.</li>
+ *     <li>A body with {@link BodyVariants} (a cached static file) is compressed once and then reused.</li>
+ *     <li>A chunked streaming body is compressed while it is written.</li>
+ *     <li>A whole file is replaced by its precompressed {@code .gz} sidecar when one exists and is not older;
+ *         other files are sent as they are (compressing them would need them in memory).</li>
+ *     <li>A response to HEAD gets the headers of the encoded body a GET would get, so it describes the same
+ *         representation.</li>
+ * </ul>
+ */
+public class ResponseCompressor {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCompressor.class);
+
+    private static final String SIDECAR_SUFFIX = ".gz";
+
+    private final int minBytes;
+    private final int level;
+
+    public ResponseCompressor(int minBytes, int level) {
+        this.minBytes = Math.max(0, minBytes);
+        this.level = Math.max(1, Math.min(9, level));
+    }
+
+    /**
+     * @return the compressor, or null if compression is disabled
+     */
+    public static ResponseCompressor create(Configuration configuration) {
+        if (!configuration.isCompression()) return null;
+        return new ResponseCompressor(configuration.getCompressionMinBytes(), configuration.getCompressionLevel());
+    }
+
+    /**
+     * Replaces the body of the response with its encoded form if the request allows it.
+     */
+    public void apply(HttpRequest request, HttpResponse response) {
+        if (!isEligible(response)) return;
+
+        // the representation depends on Accept-Encoding whether or not this one is compressed
+        addVary(response);
+
+        ContentCoding coding = ContentCoding.negotiate(request.getHeader(HttpHeader.ACCEPT_ENCODING));
+        if (coding == null) return;
+
+        StreamingBody streamingBody = response.getStreamingBody();
+        if (streamingBody != null) {
+            // a known Content-Length cannot be kept, so only bodies of unknown length are compressed
+            if (response.isChunked()) {
+                response.setBody(encoding(streamingBody, coding));
+                markEncoded(response, coding);
+            }
+            return;
+        }
+
+        boolean headOnly = response.getHeadOnlyBody() != null || response.getHeadOnlyFile() != null;
+        FileRegion fileBody = headOnly ? response.getHeadOnlyFile() : response.getFileBody();
+        if (fileBody != null) {
+            if (coding == ContentCoding.GZIP) useSidecar(response, fileBody, headOnly);
+            return;
+        }
+
+        byte[] body = headOnly ? response.getHeadOnlyBody() : response.getBody();
+        if (body.length == 0 || body.length < minBytes) return;
+
+        BodyVariants variants = response.getBodyVariants();
+        byte[] encoded = variants != null
+                ? variants.encoded(coding.getToken(), identity -> coding.encode(identity, level))
+                : coding.encode(body, level);
+        // already compressed data (or very short bodies) can grow
+        if (encoded.length >= body.length) return;
+
+        if (headOnly) {
+            response.setHeadOnlyBody(encoded, null);
+        } else {
+            response.setBody(encoded);
+        }
+        markEncoded(response, coding);
+    }
+
+    private StreamingBody encoding(StreamingBody identity, ContentCoding coding) {
+        return out -> {
+            // closing the encoder ends the coding, not the connection stream
+            try (DeflaterOutputStream encoder = coding.newEncoder(out, level)) {
+                identity.writeTo(encoder);
+            }
+        };
+    }
+
+    private static void markEncoded(HttpResponse response, ContentCoding coding) {
+        response.addHeader(HttpHeader.CONTENT_ENCODING, coding.getToken());
+        String etag = response.getHeader(HttpHeader.ETAG);
+        if (etag != null) response.addHeader(HttpHeader.ETAG, coding.etagFor(etag));
+    }
+
+    private static boolean isEligible(HttpResponse response) {
+        int status = response.getStatusCode();
+        // no body, or a byte range of the identity representation
+        if (status < 200 || status == 204 || status == 206 || status == 304) return false;
+        if (response.getHeader(HttpHeader.CONTENT_ENCODING) != null || response.getHeader(HttpHeader.CONTENT_RANGE) != null) return false;
+        String cacheControl = response.getHeader(HttpHeader.CACHE_CONTROL);
+        if (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-transform")) return false;
+        return isCompressible(response.getHeader(HttpHeader.CONTENT_TYPE));
+    }
+
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) return false;
+        String type = contentType.toLowerCase(Locale.ROOT);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) type = type.substring(0, parameters).trim();
+
+        return type.startsWith("text/")
+                || type.endsWith("json")
+                || type.endsWith("javascript")
+                || type.endsWith("xml");
+    }
+
+    private static void addVary(HttpResponse response) {
+        String vary = response.getHeader(HttpHeader.VARY);
+        if (vary == null) {
+            response.addHeader(HttpHeader.VARY, "Accept-Encoding");
+        } else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding") && !vary.trim().equals("*")) {
+            response.addHeader(HttpHeader.VARY, vary + ", Accept-Encoding");
+        }
+    }
+
+    private static void useSidecar(HttpResponse response, FileRegion fileBody, boolean headOnly) {
+        Path file = fileBody.getPath();
+        Path sidecar = file.resolveSibling(file.getFileName() + SIDECAR_SUFFIX);
+        try {
+            if (fileBody.getPosition() != 0 || fileBody.getLength() != Files.size(file)) return;
+            if (!Files.isRegularFile(sidecar)) return;
+            // a sidecar older than its file was not regenerated after an edit
+            if (Files.getLastModifiedTime(sidecar).compareTo(Files.getLastModifiedTime(file)) < 0) return;
+
+            FileRegion encoded = new FileRegion(sidecar, 0, Files.size(sidecar));
+            if (headOnly) {
+                response.setHeadOnlyBody(encoded);
+            } else {
+                response.setBody(encoded);
+            }
+            markEncoded(response, ContentCoding.GZIP);
+        } catch (IOException e) {
+            log.debug("Could not use {}: {}", sidecar, e.getMessage());
+        }
+    }
+}
@@ -5,4 +5,13 @@ import uz.hikmatullo.httpserver.core.model.HttpResponse;
 
 public interface RequestHandler {
     HttpResponse handle(HttpRequest httpRequest);
+
+    /**
+     * Marks requests whose handling is CPU-heavy (rendering, compression, JSON, ...).
+     * Such requests are handled on the cpu executor instead of the connection thread.
+     * Decided per request, so a handler can mark single routes.
+     */
+    default boolean isCpuBound(HttpRequest httpRequest) {
+        return false;
+    }
 }
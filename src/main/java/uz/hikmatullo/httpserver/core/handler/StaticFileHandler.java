@@ -0,0 +1,189 @@
+package uz.hikmatullo.httpserver.core.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.core.HttpConditionalRequests;
+import uz.hikmatullo.httpserver.core.HttpErrorResponses;
+import uz.hikmatullo.httpserver.core.HttpRanges;
+import uz.hikmatullo.httpserver.core.cache.CachedContent;
+import uz.hikmatullo.httpserver.core.cache.StaticContentCache;
+import uz.hikmatullo.httpserver.core.model.BodySegment;
+import uz.hikmatullo.httpserver.core.model.FileRegion;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpMethod;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.util.MimeTypes;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+/**
+ * Serves files below a root directory (the configured webroot) for GET and HEAD.
+ * The response only refers to the file ({@link FileRegion}); the transport sends it with
+ * FileChannel.transferTo, so the content never has to be loaded into a byte[].
+ * Directories are served through their index.html. Paths that leave the root answer 404, also through
+ * symbolic links: a file is served only if its real path is below the real path of the root.
+ * With a {@link StaticContentCache}, files up to its entry limit are served from memory instead;
+ * a cache hit does not touch the disk at all.
+ * Every response carries a strong ETag and Last-Modified; a client whose copy is still current
+ * (If-None-Match / If-Modified-Since) gets 304 Not Modified without a body.
+ * GET with a Range header gets only the requested bytes (206, see {@link HttpRanges}), e.g. for seeking in a video.
+ */
+public class StaticFileHandler implements RequestHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(StaticFileHandler.class);
+
+    private static final String INDEX_FILE = "index.html";
+
+    private final Path root;
+    private final StaticContentCache cache; // may be null
+
+    public StaticFileHandler(Path root) {
+        this(root, null);
+    }
+
+    public StaticFileHandler(Path root, StaticContentCache cache) {
+        this.root = root.toAbsolutePath().normalize();
+        this.cache = cache;
+    }
+
+    public StaticContentCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest httpRequest) {
+        HttpMethod method = httpRequest.getMethod();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            HttpResponse response = HttpErrorResponses.create(HttpStatusCode.METHOD_NOT_ALLOWED, "Only GET and HEAD are allowed");
+            response.addHeader(HttpHeader.ALLOW, "GET, HEAD");
+            return response;
+        }
+
+        boolean headOnly = method == HttpMethod.HEAD;
+        if (cache != null) {
+            CachedContent cached = cache.getIfPresent(httpRequest.getPath());
+            if (cached != null) {
+                return respond(httpRequest, cached, headOnly);
+            }
+        }
+
+        Path file = resolve(httpRequest.getPath());
+        if (file == null) {
+            return notFound();
+        }
+
+        try {
+            long size = Files.size(file);
+            if (cache != null && size <= cache.getMaxEntryBytes()) {
+                CachedContent content = cache.get(httpRequest.getPath(), () -> load(file));
+                return respond(httpRequest, content, headOnly);
+            }
+
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            String etag = CachedContent.etag(lastModified, size);
+            HttpResponse notModified = HttpConditionalRequests.evaluate(httpRequest, etag, lastModified);
+            if (notModified != null) {
+                return notModified;
+            }
+
+            String contentType = MimeTypes.probeContentType(file.getFileName().toString());
+            HttpResponse partial = HttpRanges.evaluate(httpRequest, new FileRegion(file, 0, size), contentType, etag, lastModified);
+            if (partial != null) {
+                return partial;
+            }
+
+            HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+            response.setProtocol("HTTP/1.1");
+            response.addHeader(HttpHeader.CONTENT_TYPE, contentType);
+            HttpConditionalRequests.addValidators(response, etag, lastModified);
+            response.addHeader(HttpHeader.ACCEPT_RANGES, HttpRanges.ACCEPT_RANGES);
+            if (headOnly) {
+                response.setHeadOnlyBody(new FileRegion(file, 0, size));
+            } else {
+                response.setBody(new FileRegion(file, 0, size));
+            }
+            return response;
+        } catch (IOException e) {
+            // deleted between resolve and size
+            log.debug("Could not read {}: {}", file, e.getMessage());
+            return notFound();
+        }
+    }
+
+    private static HttpResponse respond(HttpRequest httpRequest, CachedContent content, boolean headOnly) {
+        HttpResponse notModified = HttpConditionalRequests.evaluate(httpRequest, content.getEtag(), content.getLastModifiedMillis());
+        if (notModified != null) {
+            return notModified;
+        }
+        HttpResponse partial = HttpRanges.evaluate(httpRequest, new BodySegment.Bytes(content.getBody()),
+                content.getContentType(), content.getEtag(), content.getLastModifiedMillis());
+        if (partial != null) {
+            return partial;
+        }
+
+        HttpResponse response = content.toResponse(HttpStatusCode.OK, headOnly);
+        response.addHeader(HttpHeader.ACCEPT_RANGES, HttpRanges.ACCEPT_RANGES);
+        return response;
+    }
+
+    /**
+     * @return the regular, readable file for the request path, or null
+     */
+    Path resolve(String requestPath) {
+        if (requestPath == null || !requestPath.startsWith("/")) return null;
+
+        String decoded;
+        try {
+            // '+' is a literal in paths, only %XX is decoded
+            decoded = URLDecoder.decode(requestPath.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (decoded.indexOf('\0') >= 0 || decoded.indexOf('\\') >= 0) return null;
+
+        Path file;
+        try {
+            file = root.resolve(decoded.substring(1)).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!file.startsWith(root)) {
+            log.debug("Rejected path outside of webroot: {}", requestPath);
+            return null;
+        }
+        if (Files.isDirectory(file)) {
+            file = file.resolve(INDEX_FILE);
+        }
+        if (!Files.isRegularFile(file) || !Files.isReadable(file)) return null;
+
+        // links are followed when the file is read: where they point must be inside the root too
+        try {
+            Path real = file.toRealPath();
+            if (!real.startsWith(root.toRealPath())) {
+                log.debug("Rejected link out of webroot: {}", requestPath);
+                return null;
+            }
+            return real;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static CachedContent load(Path file) throws IOException {
+        // modification time first: if the file changes while it is read, the validator is the older one
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        byte[] body = Files.readAllBytes(file);
+        return new CachedContent(file, body, MimeTypes.probeContentType(file.getFileName().toString()), lastModified);
+    }
+
+    private static HttpResponse notFound() {
+        return HttpErrorResponses.create(HttpStatusCode.NOT_FOUND, "File not found");
+    }
+}
@@ -0,0 +1,120 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Decodes a chunked request body (RFC 9112 7.1) while it is read, one chunk header at a time:
+ * <pre>
+ * chunk-size [; extensions] CRLF
+ * chunk-data CRLF
+ * ...
+ * 0 CRLF
+ * [trailer fields] CRLF
+ * </pre>
+ * Chunk data is copied straight from the connection buffer into the reader's array.
+ */
+public class ChunkedInputStream extends RequestBodyInputStream {
+
+    // chunk-size lines and trailer fields, same limit as a header line
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int MAX_TRAILERS = 100;
+
+    private final Map<String, String> trailers = new LinkedHashMap<>();
+    // bytes left in the current chunk; 0 between chunks
+    private long remainingInChunk;
+    private boolean firstChunk = true;
+    private boolean finished;
+
+    public ChunkedInputStream(ConnectionInputBuffer in) {
+        super(in);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (finished) return -1;
+        if (len == 0) return 0;
+        if (remainingInChunk == 0) {
+            nextChunk();
+            if (finished) return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remainingInChunk));
+        if (n < 0) {
+            throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "EOF inside chunk data");
+        }
+        remainingInChunk -= n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return finished ? 0 : (int) Math.min(remainingInChunk, in.buffered());
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public Map<String, String> getTrailers() {
+        return Collections.unmodifiableMap(trailers);
+    }
+
+    private void nextChunk() throws IOException {
+        if (!firstChunk) {
+            // the data of the previous chunk ends with CRLF
+            int c1 = in.read();
+            int c2 = in.read();
+            if (c1 != '\r' || c2 != '\n') {
+                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "CRLF expected after chunk data");
+            }
+        }
+        firstChunk = false;
+
+        String sizeLine = in.readLine(MAX_LINE_LENGTH, false);
+        // strip chunk extensions (after ';')
+        int semi = sizeLine.indexOf(';');
+        String sizeToken = (semi >= 0 ? sizeLine.substring(0, semi) : sizeLine).trim();
+        remainingInChunk = parseChunkSize(sizeToken);
+        if (remainingInChunk == 0) {
+            readTrailers();
+            finished = true;
+        }
+    }
+
+    private static long parseChunkSize(String token) {
+        if (token.isEmpty()) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Chunk size is empty");
+        // at most 15 hex digits, so the size cannot overflow
+        if (token.length() > 15) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Chunk size is too large");
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.digit(token.charAt(i), 16) < 0) {
+                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Chunk size is not a valid integer");
+            }
+        }
+        return Long.parseLong(token, 16);
+    }
+
+    private void readTrailers() throws IOException {
+        while (true) {
+            String line = in.readLine(MAX_LINE_LENGTH, false);
+            if (line.isEmpty()) return;
+            if (trailers.size() == MAX_TRAILERS) {
+                throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Too many trailer fields");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            trailers.merge(name, value, (previous, next) -> previous + ", " + next);
+        }
+    }
+}
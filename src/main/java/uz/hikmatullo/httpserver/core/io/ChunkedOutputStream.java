@@ -0,0 +1,105 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Frames a response body of unknown length as {@code Transfer-Encoding: chunked} (RFC 9112 7.1).
+ * Writes are collected into chunks of up to the buffer size; {@link #flush()} sends the pending chunk
+ * right away, so a producer controls when the client sees data. {@link #finish(Map)} writes the last chunk
+ * and the trailer fields. Closing finishes the body but leaves the connection stream open.
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int count;
+    private boolean finished;
+
+    public ChunkedOutputStream(OutputStream out) {
+        this(out, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedOutputStream(OutputStream out, int chunkSize) {
+        this.out = out;
+        this.buf = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buf.length) writeChunk(buf, 0, count);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len == 0) return;
+        if (len >= buf.length) {
+            // large writes become a chunk of their own instead of being copied
+            flushChunk();
+            writeChunk(b, off, len);
+            return;
+        }
+        if (len > buf.length - count) flushChunk();
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushChunk();
+        out.flush();
+    }
+
+    /**
+     * Ends the body: the pending chunk, the zero-length last chunk and the trailers.
+     *
+     * @param trailers trailer fields, may be empty
+     */
+    public void finish(Map<String, String> trailers) throws IOException {
+        if (finished) return;
+        flushChunk();
+        finished = true;
+        StringBuilder end = new StringBuilder("0\r\n");
+        for (var trailer : trailers.entrySet()) {
+            end.append(trailer.getKey()).append(": ").append(trailer.getValue()).append("\r\n");
+        }
+        end.append("\r\n");
+        out.write(end.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Finishes the body without trailers; the underlying stream stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        finish(Map.of());
+    }
+
+    private void flushChunk() throws IOException {
+        if (count > 0) {
+            writeChunk(buf, 0, count);
+        }
+    }
+
+    private void writeChunk(byte[] b, int off, int len) throws IOException {
+        out.write(Integer.toHexString(len).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(b, off, len);
+        out.write(CRLF);
+        if (b == buf) count = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) throw new IOException("Chunked body already finished");
+    }
+}
@@ -0,0 +1,220 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Read buffer that lives as long as the connection, not the request.
+ * The parser scans request and header lines in bulk inside the buffer instead of calling
+ * read() per byte on the socket, so a typical request head costs one or two reads.
+ * Bytes read past the end of one request stay buffered and are the start of the next one
+ * (keep-alive and pipelined requests).
+ * Not thread-safe: one connection is read by one thread at a time.
+ */
+public class ConnectionInputBuffer extends InputStream {
+
+    public static final int DEFAULT_CAPACITY = 16384;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    // start of the line returned last by readLineInPlace
+    private int lineStart;
+
+    public ConnectionInputBuffer(InputStream in) {
+        this(in, DEFAULT_CAPACITY);
+    }
+
+    public ConnectionInputBuffer(InputStream in, int capacity) {
+        this.in = Objects.requireNonNull(in, "input stream required");
+        this.buf = new byte[Math.max(64, capacity)];
+    }
+
+    /**
+     * A buffer over data[0, length) that was already received in full (a request framed by the NIO transport),
+     * without copying it. The array is consumed: reading may rewrite it.
+     */
+    public ConnectionInputBuffer(byte[] data, int length) {
+        Objects.checkFromIndexSize(0, length, data.length);
+        this.in = InputStream.nullInputStream();
+        this.buf = data;
+        this.limit = length;
+    }
+
+    /**
+     * Reads one CRLF terminated line (strict: a bare CR or LF is rejected), decoded as ISO-8859-1.
+     *
+     * @param maxLength    maximum line length without the CRLF; longer lines fail with 431
+     * @param eofAsNull    return null if the stream ends before the first byte of the line
+     *                     (client closed an idle connection), instead of failing with 400
+     */
+    public String readLine(int maxLength, boolean eofAsNull) throws IOException {
+        int length = scanLine(maxLength, eofAsNull);
+        if (length < 0) return null;
+        return new String(buf, lineStart, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Like {@link #readLine(int, boolean)}, but the line is left in the buffer instead of becoming a String:
+     * its bytes are {@code array()[lineStart(), lineStart() + length)} until the next read. They are consumed,
+     * so the caller may also rewrite them in place.
+     *
+     * @return the length of the line without the CRLF
+     */
+    public int readLineInPlace(int maxLength) throws IOException {
+        return scanLine(maxLength, false);
+    }
+
+    /**
+     * Like {@link #readLineInPlace(int)}, with eofAsNull as for {@link #readLine(int, boolean)}.
+     *
+     * @return the length of the line without the CRLF, or -1 if the stream ended before it (with eofAsNull)
+     */
+    public int readLineInPlace(int maxLength, boolean eofAsNull) throws IOException {
+        return scanLine(maxLength, eofAsNull);
+    }
+
+    /**
+     * The backing array of the last line read in place; valid until the next read.
+     */
+    public byte[] array() {
+        return buf;
+    }
+
+    public int lineStart() {
+        return lineStart;
+    }
+
+    /**
+     * Finds the next line, consumes it with its CRLF and remembers where it starts.
+     *
+     * @return its length, or -1 for end of stream before the line (with eofAsNull)
+     */
+    private int scanLine(int maxLength, boolean eofAsNull) throws IOException {
+        int scanned = 0;
+        while (true) {
+            int i = pos + scanned;
+            while (i < limit) {
+                byte b = buf[i];
+                if (b == CR) {
+                    if (i + 1 == limit) break; // LF not read yet
+                    if (buf[i + 1] != LF) {
+                        throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "CR not followed by LF");
+                    }
+                    if (i - pos > maxLength) {
+                        throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request header fields too large");
+                    }
+                    lineStart = pos;
+                    pos = i + 2;
+                    return i - lineStart;
+                }
+                if (b == LF) {
+                    throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "LF without preceding CR");
+                }
+                i++;
+            }
+
+            scanned = i - pos;
+            if (scanned > maxLength) {
+                throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request header fields too large");
+            }
+            if (!fill()) {
+                if (eofAsNull && limit == pos) return -1;
+                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "EOF while reading a line");
+            }
+        }
+    }
+
+    /**
+     * Bytes already in the buffer, i.e. readable without touching the socket.
+     */
+    public int buffered() {
+        return limit - pos;
+    }
+
+    /**
+     * @return true if the buffer already holds a complete request head (up to the empty line),
+     *         i.e. the next request can be parsed without waiting for the client
+     */
+    public boolean hasCompleteHead() {
+        for (int i = pos; i + 3 < limit; i++) {
+            if (buf[i] == CR && buf[i + 1] == LF && buf[i + 2] == CR && buf[i + 3] == LF) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compacts the buffer and reads more data behind what is buffered.
+     *
+     * @return false on end of stream
+     */
+    private boolean fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n;
+        do {
+            n = in.read(buf, limit, buf.length - limit);
+        } while (n == 0);
+        if (n < 0) return false;
+        limit += n;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) return 0;
+        if (pos == limit) {
+            // large reads (bodies) go straight into the caller's array
+            if (len >= buf.length) return in.read(b, off, len);
+            if (!fill()) return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        if (pos == limit) return in.skip(n);
+        int skipped = (int) Math.min(n, limit - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buffered() + in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,163 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import uz.hikmatullo.httpserver.core.model.FileRegion;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered socket output of one connection. Besides plain writes it can send a {@link FileRegion}:
+ * when the socket has a blocking channel the file goes out with {@link FileChannel#transferTo}
+ * (sendfile on Linux), so the bytes never enter the heap; otherwise it is copied through a small buffer.
+ * Unlike a {@code BufferedOutputStream} subclass it takes no monitor, so a virtual thread blocked
+ * in a socket write does not pin its carrier. A write larger than the buffer leaves together with
+ * the buffered bytes in one gathering write. Used by one thread at a time.
+ */
+public class ConnectionOutputStream extends OutputStream {
+
+    public static final int DEFAULT_CAPACITY = 16384;
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+    // small files are cheaper to copy behind the response head than to send with a second syscall
+    private static final int SMALL_FILE_SIZE = 4096;
+
+    private final OutputStream out;
+    // null when the socket has no channel (or it is non-blocking): fall back to copying
+    private final WritableByteChannel channel;
+    private final byte[] buf;
+    private int count;
+
+    public ConnectionOutputStream(OutputStream out, WritableByteChannel channel) {
+        this(out, channel, DEFAULT_CAPACITY);
+    }
+
+    public ConnectionOutputStream(OutputStream out, WritableByteChannel channel, int capacity) {
+        this.out = out;
+        this.buf = new byte[capacity];
+        this.channel = channel instanceof SelectableChannel selectable && !selectable.isBlocking() ? null : channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buf.length) flushBuffer();
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= buf.length) {
+            // large bodies go out directly, together with what is buffered (e.g. the head) if the channel can gather
+            if (count > 0 && channel instanceof GatheringByteChannel gathering) {
+                writeGathered(gathering, b, off, len);
+            } else {
+                flushBuffer();
+                out.write(b, off, len);
+            }
+            return;
+        }
+        if (len > buf.length - count) flushBuffer();
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeGathered(GatheringByteChannel gathering, byte[] b, int off, int len) throws IOException {
+        ByteBuffer[] buffers = {ByteBuffer.wrap(buf, 0, count), ByteBuffer.wrap(b, off, len)};
+        while (buffers[1].hasRemaining()) {
+            gathering.write(buffers);
+        }
+        count = 0;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes the file region after whatever is buffered. For a transfer, buffered bytes are flushed first to keep
+     * the order, so the response head and the file leave in two writes at most.
+     */
+    public void writeFile(FileRegion region) throws IOException {
+        if (region.getLength() == 0) return;
+        try (FileChannel file = FileChannel.open(region.getPath(), StandardOpenOption.READ)) {
+            if (channel != null && (region.getLength() > SMALL_FILE_SIZE || region.getLength() > buf.length - count)) {
+                flush();
+                transfer(file, region, channel);
+            } else {
+                copy(file, region, this);
+            }
+        }
+    }
+
+    /**
+     * Copies a file region into any stream, for callers without a {@link ConnectionOutputStream}
+     * (e.g. responses encoded into memory).
+     */
+    public static void copyFile(FileRegion region, OutputStream out) throws IOException {
+        if (out instanceof ConnectionOutputStream connection) {
+            connection.writeFile(region);
+            return;
+        }
+        if (region.getLength() == 0) return;
+        try (FileChannel file = FileChannel.open(region.getPath(), StandardOpenOption.READ)) {
+            copy(file, region, out);
+        }
+    }
+
+    /**
+     * Zero-copy transfer; transferTo may send less than asked, so loop until the region is out.
+     */
+    private static void transfer(FileChannel file, FileRegion region, WritableByteChannel target) throws IOException {
+        long position = region.getPosition();
+        long remaining = region.getLength();
+        while (remaining > 0) {
+            long sent = file.transferTo(position, remaining, target);
+            if (sent <= 0 && position >= file.size()) {
+                // the file shrank since the response head was written; the connection cannot be reused
+                throw new EOFException("File " + region.getPath() + " is shorter than the announced length");
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    private static void copy(FileChannel file, FileRegion region, OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, region.getLength()));
+        long position = region.getPosition();
+        long remaining = region.getLength();
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+            int read = file.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("File " + region.getPath() + " is shorter than the announced length");
+            }
+            out.write(buffer.array(), 0, read);
+            position += read;
+            remaining -= read;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A request body of a known Content-Length: exactly that many bytes, and an error if the client
+ * closes the connection before sending them all.
+ */
+public class FixedLengthInputStream extends RequestBodyInputStream {
+
+    private long remaining;
+
+    public FixedLengthInputStream(ConnectionInputBuffer in, long length) {
+        super(in);
+        if (length < 0) throw new IllegalArgumentException("negative length");
+        this.remaining = length;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (remaining == 0) return -1;
+        if (len == 0) return 0;
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0) {
+            throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Body size is not equal to content-length");
+        }
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(remaining, in.buffered());
+    }
+
+    @Override
+    public boolean isFinished() {
+        return remaining == 0;
+    }
+}
@@ -0,0 +1,63 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Body stream of a streamed response whose Content-Length was announced up front, or that is delimited
+ * by closing the connection (length -1). Writing more or fewer bytes than announced is an error:
+ * the client would otherwise misread the rest of the connection. Closing leaves the connection stream open.
+ */
+public class FixedLengthOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final long length;
+    private long written;
+
+    /**
+     * @param length announced Content-Length, or -1 if the body ends with the connection
+     */
+    public FixedLengthOutputStream(OutputStream out, long length) {
+        this.out = out;
+        this.length = length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkRoom(1);
+        out.write(b);
+        written++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkRoom(len);
+        out.write(b, off, len);
+        written += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * @throws IOException if fewer bytes than announced were written
+     */
+    public void finish() throws IOException {
+        if (length >= 0 && written != length) {
+            throw new IOException("Streamed body has " + written + " bytes, Content-Length announced " + length);
+        }
+    }
+
+    @Override
+    public void close() {
+        // the body ends with finish(), the connection stays open
+    }
+
+    private void checkRoom(int len) throws IOException {
+        if (length >= 0 && written + len > length) {
+            throw new IOException("Streamed body exceeds the announced Content-Length of " + length);
+        }
+    }
+}
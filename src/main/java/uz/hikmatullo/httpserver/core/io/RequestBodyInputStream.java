@@ -0,0 +1,66 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Body of a request, read from the connection only as the handler consumes it.
+ * The stream never reads past the end of its body, so the next request on the connection stays intact.
+ * Closing it does not close the connection: whatever the handler left unread is drained
+ * (or the connection closed) before the next request is parsed, see {@link #drain(long)}.
+ * Malformed framing fails with {@link uz.hikmatullo.httpserver.exception.HttpParsingException} (400), like the parser.
+ */
+public abstract class RequestBodyInputStream extends InputStream {
+
+    private static final int DRAIN_BUFFER_SIZE = 8192;
+
+    protected final ConnectionInputBuffer in;
+
+    protected RequestBodyInputStream(ConnectionInputBuffer in) {
+        this.in = in;
+    }
+
+    /**
+     * @return true once the whole body (and its trailers) was read from the connection
+     */
+    public abstract boolean isFinished();
+
+    /**
+     * @return the trailer fields of a chunked body (lower-case names), complete once {@link #isFinished()}
+     */
+    public Map<String, String> getTrailers() {
+        return Map.of();
+    }
+
+    /**
+     * Reads and discards the rest of the body.
+     *
+     * @param maxBytes give up after discarding this many bytes
+     * @return true if the body is finished, false if more than maxBytes were left
+     * (the connection then has to be closed)
+     */
+    public boolean drain(long maxBytes) throws IOException {
+        byte[] scratch = null;
+        long drained = 0;
+        while (!isFinished() && drained <= maxBytes) {
+            if (scratch == null) scratch = new byte[DRAIN_BUFFER_SIZE];
+            int n = read(scratch, 0, scratch.length);
+            if (n < 0) break;
+            drained += n;
+        }
+        return isFinished();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public void close() {
+        // the connection is not the handler's to close
+    }
+}
@@ -0,0 +1,123 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpHeaders;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes the status line and headers of a response into one exactly sized byte[].
+ * Status lines of every {@link HttpStatusCode} and the names of every {@link HttpHeader} are encoded once up front;
+ * ASCII values are copied char by char, so the only allocation per response is the result.
+ * Values with other characters fall back to UTF-8 encoding of the whole head.
+ */
+public final class ResponseHeadEncoder {
+
+    private static final String PROTOCOL = "HTTP/1.1";
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    // "HTTP/1.1 200 OK\r\n" by status code
+    private static final byte[][] STATUS_LINES = new byte[600][];
+    private static final String[] REASON_PHRASES = new String[600];
+    // "Content-Type: " by HttpHeader ordinal
+    private static final byte[][] HEADER_NAMES = new byte[HttpHeader.values().length][];
+
+    static {
+        for (HttpStatusCode status : HttpStatusCode.values()) {
+            REASON_PHRASES[status.getCode()] = status.getReasonPhrase();
+            STATUS_LINES[status.getCode()] = ascii(PROTOCOL + " " + status.getCode() + " " + status.getReasonPhrase() + "\r\n");
+        }
+        for (HttpHeader header : HttpHeader.values()) {
+            HEADER_NAMES[header.ordinal()] = ascii(header.getHeaderName() + ": ");
+        }
+    }
+
+    private ResponseHeadEncoder() {
+    }
+
+    public static byte[] encode(HttpResponse response) {
+        byte[] statusLine = statusLine(response);
+        if (statusLine == null) return encodeSlow(response);
+
+        HttpHeaders headers = response.getHeaders();
+        // first pass: the exact size, and whether everything is ASCII
+        int length = statusLine.length + CRLF.length;
+        for (int i = 0; i < headers.size(); i++) {
+            HttpHeader known = headers.headerAt(i);
+            int nameLength = known != null ? HEADER_NAMES[known.ordinal()].length : asciiLength(headers.nameAt(i));
+            int valueLength = asciiLength(headers.valueAt(i));
+            if (nameLength < 0 || valueLength < 0) return encodeSlow(response);
+            // ": " is part of a pre-encoded name, added for others
+            length += nameLength + (known != null ? 0 : 2) + valueLength + CRLF.length;
+        }
+
+        byte[] head = new byte[length];
+        System.arraycopy(statusLine, 0, head, 0, statusLine.length);
+        int position = statusLine.length;
+        for (int i = 0; i < headers.size(); i++) {
+            HttpHeader known = headers.headerAt(i);
+            if (known != null) {
+                byte[] name = HEADER_NAMES[known.ordinal()];
+                System.arraycopy(name, 0, head, position, name.length);
+                position += name.length;
+            } else {
+                position = putAscii(headers.nameAt(i), head, position);
+                head[position++] = ':';
+                head[position++] = ' ';
+            }
+            position = putAscii(headers.valueAt(i), head, position);
+            head[position++] = '\r';
+            head[position++] = '\n';
+        }
+        head[position++] = '\r';
+        head[position] = '\n';
+        return head;
+    }
+
+    /**
+     * @return the pre-encoded line, or null for another protocol or a custom reason phrase
+     */
+    private static byte[] statusLine(HttpResponse response) {
+        String protocol = response.getProtocol();
+        if (protocol != null && !protocol.equals(PROTOCOL)) return null;
+        int code = response.getStatusCode();
+        if (code < 0 || code >= STATUS_LINES.length || STATUS_LINES[code] == null) return null;
+        // usually the very same String instance, taken from the enum
+        return REASON_PHRASES[code].equals(response.getReasonPhrase()) ? STATUS_LINES[code] : null;
+    }
+
+    private static byte[] encodeSlow(HttpResponse response) {
+        StringBuilder head = new StringBuilder(256);
+        head.append(response.getProtocol() != null ? response.getProtocol() : PROTOCOL).append(' ')
+                .append(response.getStatusCode()).append(' ')
+                .append(response.getReasonPhrase()).append("\r\n");
+        for (var header : response.getHeaders().entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the length, or -1 if the value has non-ASCII characters
+     */
+    private static int asciiLength(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) return -1;
+        }
+        return value.length();
+    }
+
+    private static int putAscii(String value, byte[] target, int position) {
+        for (int i = 0; i < value.length(); i++) {
+            target[position++] = (byte) value.charAt(i);
+        }
+        return position;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,38 @@
+package uz.hikmatullo.httpserver.core.model;
+
+/**
+ * A piece of a response body that is sent as a sequence of pieces (e.g. the parts of multipart/byteranges):
+ * bytes already in memory or a region of a file. Slices share the underlying array or file; nothing is copied.
+ */
+public sealed interface BodySegment permits BodySegment.Bytes, FileRegion {
+
+    long getLength();
+
+    /**
+     * @param offset relative to the start of this segment
+     */
+    BodySegment slice(long offset, long length);
+
+    record Bytes(byte[] data, int offset, int length) implements BodySegment {
+
+        public Bytes {
+            if (offset < 0 || length < 0 || offset + length > data.length) {
+                throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+            }
+        }
+
+        public Bytes(byte[] data) {
+            this(data, 0, data.length);
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public Bytes slice(long offset, long length) {
+            return new Bytes(data, this.offset + Math.toIntExact(offset), Math.toIntExact(length));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package uz.hikmatullo.httpserver.core.model;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Memo for encoded forms (e.g. gzip) of a response body that is shared between responses,
+ * such as a cached static file, so the encoding work is done once per body instead of once per response.
+ */
+public interface BodyVariants {
+
+    /**
+     * @param coding  content-coding name, e.g. "gzip"
+     * @param encoder produces the encoded bytes from the identity body when the variant is not known yet
+     */
+    byte[] encoded(String coding, UnaryOperator<byte[]> encoder);
+}
@@ -0,0 +1,43 @@
+package uz.hikmatullo.httpserver.core.model;
+
+import java.nio.file.Path;
+
+/**
+ * Response body that is a (part of a) file on disk. It is only opened when the response is written,
+ * and transferred to the socket without passing through the heap where the connection allows it.
+ */
+public final class FileRegion implements BodySegment {
+    private final Path path;
+    private final long position;
+    private final long length;
+
+    public FileRegion(Path path, long position, long length) {
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("position and length must not be negative");
+        }
+        this.path = path;
+        this.position = position;
+        this.length = length;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public FileRegion slice(long offset, long length) {
+        if (offset + length > this.length) {
+            throw new IllegalArgumentException("Slice ends after the region");
+        }
+        return new FileRegion(path, position + offset, length);
+    }
+}
@@ -0,0 +1,143 @@
+package uz.hikmatullo.httpserver.core.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Header fields that requests and responses of this server commonly carry. A header name read from
+ * the wire is matched against these by comparing bytes ({@link #match(byte[], int, int)}), so the common
+ * names cost neither a String nor a lower-case copy.
+ */
+public enum HttpHeader {
+    ACCEPT("Accept"),
+    ACCEPT_CHARSET("Accept-Charset"),
+    ACCEPT_ENCODING("Accept-Encoding"),
+    ACCEPT_LANGUAGE("Accept-Language"),
+    ACCEPT_RANGES("Accept-Ranges"),
+    ALLOW("Allow"),
+    AUTHORIZATION("Authorization"),
+    CACHE_CONTROL("Cache-Control"),
+    CONNECTION("Connection"),
+    CONTENT_DISPOSITION("Content-Disposition"),
+    CONTENT_ENCODING("Content-Encoding"),
+    CONTENT_LENGTH("Content-Length"),
+    CONTENT_RANGE("Content-Range"),
+    CONTENT_TYPE("Content-Type"),
+    COOKIE("Cookie"),
+    DATE("Date"),
+    ETAG("ETag"),
+    EXPECT("Expect"),
+    HOST("Host"),
+    IF_MATCH("If-Match"),
+    IF_MODIFIED_SINCE("If-Modified-Since"),
+    IF_NONE_MATCH("If-None-Match"),
+    IF_RANGE("If-Range"),
+    IF_UNMODIFIED_SINCE("If-Unmodified-Since"),
+    KEEP_ALIVE("Keep-Alive"),
+    LAST_MODIFIED("Last-Modified"),
+    LOCATION("Location"),
+    ORIGIN("Origin"),
+    PRAGMA("Pragma"),
+    RANGE("Range"),
+    REFERER("Referer"),
+    RETRY_AFTER("Retry-After"),
+    SEC_WEBSOCKET_ACCEPT("Sec-WebSocket-Accept"),
+    SEC_WEBSOCKET_EXTENSIONS("Sec-WebSocket-Extensions"),
+    SEC_WEBSOCKET_KEY("Sec-WebSocket-Key"),
+    SEC_WEBSOCKET_PROTOCOL("Sec-WebSocket-Protocol"),
+    SEC_WEBSOCKET_VERSION("Sec-WebSocket-Version"),
+    SERVER("Server"),
+    SET_COOKIE("Set-Cookie"),
+    TE("TE"),
+    TRAILER("Trailer"),
+    TRANSFER_ENCODING("Transfer-Encoding"),
+    UPGRADE("Upgrade"),
+    USER_AGENT("User-Agent"),
+    VARY("Vary"),
+    VIA("Via"),
+    X_FORWARDED_FOR("X-Forwarded-For"),
+    X_FORWARDED_PROTO("X-Forwarded-Proto"),
+    X_REQUESTED_WITH("X-Requested-With");
+
+    static final int COUNT = values().length;
+
+    // candidates by name length, so a lookup compares against a handful of names at most
+    private static final HttpHeader[][] BY_LENGTH;
+
+    static {
+        int longest = 0;
+        for (HttpHeader header : values()) longest = Math.max(longest, header.lowerCaseBytes.length);
+        List<List<HttpHeader>> byLength = new ArrayList<>();
+        for (int i = 0; i <= longest; i++) byLength.add(new ArrayList<>());
+        for (HttpHeader header : values()) byLength.get(header.lowerCaseBytes.length).add(header);
+        BY_LENGTH = new HttpHeader[longest + 1][];
+        for (int i = 0; i <= longest; i++) BY_LENGTH[i] = byLength.get(i).toArray(new HttpHeader[0]);
+    }
+
+    private final String headerName;
+    private final String lowerCaseName;
+    private final byte[] lowerCaseBytes;
+
+    HttpHeader(String headerName) {
+        this.headerName = headerName;
+        this.lowerCaseName = headerName.toLowerCase(Locale.ROOT);
+        this.lowerCaseBytes = lowerCaseName.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the name as usually written, e.g. "Content-Type"
+     */
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    /**
+     * @return the name in lower case, as request headers are keyed
+     */
+    public String getLowerCaseName() {
+        return lowerCaseName;
+    }
+
+    /**
+     * Case-insensitive lookup of the name in buf[offset, offset + length), without allocating.
+     *
+     * @return the header, or null if it is not one of these
+     */
+    public static HttpHeader match(byte[] buf, int offset, int length) {
+        if (length >= BY_LENGTH.length) return null;
+        for (HttpHeader candidate : BY_LENGTH[length]) {
+            if (candidate.matches(buf, offset)) return candidate;
+        }
+        return null;
+    }
+
+    /**
+     * Case-insensitive lookup of a name, without copying it.
+     *
+     * @return the header, or null if it is not one of these
+     */
+    public static HttpHeader of(String name) {
+        if (name.length() >= BY_LENGTH.length) return null;
+        for (HttpHeader candidate : BY_LENGTH[name.length()]) {
+            if (candidate.lowerCaseName.equalsIgnoreCase(name)) return candidate;
+        }
+        return null;
+    }
+
+    private boolean matches(byte[] buf, int offset) {
+        byte[] name = lowerCaseBytes;
+        for (int i = 0; i < name.length; i++) {
+            if (toLowerCase(buf[offset + i]) != name[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * ASCII lower case of one byte of a header name.
+     */
+    public static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
@@ -0,0 +1,362 @@
+package uz.hikmatullo.httpserver.core.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Header fields of a request or response, kept in the order they were added. A field named by {@link HttpHeader}
+ * is found through a slot indexed by the enum, so {@code get(HttpHeader.CONNECTION)} neither hashes nor folds case.
+ * Other fields are the overflow: the few a message carries besides the well-known ones are found by a
+ * case-insensitive scan. Lookups by String are case-insensitive as well, without copying the name.
+ * <p>
+ * Values added as bytes (see {@link #add(HttpHeader, byte[], int, int)}) are copied into an area these headers keep
+ * across {@link #clear()}, and become a String only when first asked for: most fields of a request are never read.
+ * <p>
+ * It is also a {@code Map<String, String>} keyed by the header names, in lower case for requests
+ * ({@code new HttpHeaders(true)}) and as usually written (e.g. "Content-Type") for responses. Not thread-safe.
+ */
+public class HttpHeaders extends AbstractMap<String, String> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_RAW_CAPACITY = 1024;
+
+    private final boolean lowerCaseNames;
+    // by HttpHeader ordinal: index of the entry + 1, 0 if absent
+    private final int[] slots = new int[HttpHeader.COUNT];
+    // entries in insertion order; headers[i] is null for a name that is not an HttpHeader
+    private HttpHeader[] headers = new HttpHeader[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] values = new String[INITIAL_CAPACITY];
+    // values added as bytes: at raw[rawOffsets[i]], while values[i] is null; allocated on first use
+    private int[] rawOffsets;
+    private int[] rawLengths;
+    private byte[] raw;
+    private int rawSize;
+    private int size;
+    // entries that are not an HttpHeader; while 0 an unknown name is not even scanned for
+    private int overflow;
+    private Set<Map.Entry<String, String>> entrySet;
+
+    /**
+     * Headers named as usually written, as for a response.
+     */
+    public HttpHeaders() {
+        this(false);
+    }
+
+    /**
+     * @param lowerCaseNames whether the names are lower case, as request headers are keyed
+     */
+    public HttpHeaders(boolean lowerCaseNames) {
+        this.lowerCaseNames = lowerCaseNames;
+    }
+
+    public String get(HttpHeader header) {
+        int slot = slots[header.ordinal()];
+        return slot == 0 ? null : value(slot - 1);
+    }
+
+    public boolean contains(HttpHeader header) {
+        return slots[header.ordinal()] != 0;
+    }
+
+    /**
+     * Sets the value, replacing a previous one in its place.
+     *
+     * @return the previous value, or null
+     */
+    public String set(HttpHeader header, String value) {
+        int slot = slots[header.ordinal()];
+        if (slot == 0) {
+            append(header, null, value);
+            return null;
+        }
+        return replace(slot - 1, value);
+    }
+
+    public String set(String name, String value) {
+        HttpHeader header = HttpHeader.of(name);
+        if (header != null) return set(header, value);
+        int index = indexOfOverflow(name);
+        if (index < 0) {
+            append(null, name, value);
+            return null;
+        }
+        return replace(index, value);
+    }
+
+    /**
+     * Adds a value; one that is already there is combined with it as "previous, value", as for repeated fields.
+     */
+    public void add(HttpHeader header, String value) {
+        int slot = slots[header.ordinal()];
+        if (slot == 0) {
+            append(header, null, value);
+        } else {
+            replace(slot - 1, value(slot - 1) + ", " + value);
+        }
+    }
+
+    public void add(String name, String value) {
+        HttpHeader header = HttpHeader.of(name);
+        if (header != null) {
+            add(header, value);
+            return;
+        }
+        int index = indexOfOverflow(name);
+        if (index < 0) {
+            append(null, name, value);
+        } else {
+            replace(index, value(index) + ", " + value);
+        }
+    }
+
+    /**
+     * Same as {@link #add(HttpHeader, String)} for a value given as ISO-8859-1 bytes, e.g. where it sits in a
+     * connection buffer. The bytes are copied; the String is made when the value is first asked for.
+     */
+    public void add(HttpHeader header, byte[] bytes, int offset, int length) {
+        if (slots[header.ordinal()] != 0) {
+            add(header, new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+            return;
+        }
+        append(header, null, null);
+        setRaw(size - 1, bytes, offset, length);
+    }
+
+    public void add(String name, byte[] bytes, int offset, int length) {
+        HttpHeader header = HttpHeader.of(name);
+        if (header != null) {
+            add(header, bytes, offset, length);
+        } else if (indexOfOverflow(name) >= 0) {
+            add(name, new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+        } else {
+            append(null, name, null);
+            setRaw(size - 1, bytes, offset, length);
+        }
+    }
+
+    /**
+     * @return the removed value, or null
+     */
+    public String remove(HttpHeader header) {
+        int slot = slots[header.ordinal()];
+        return slot == 0 ? null : removeAt(slot - 1);
+    }
+
+    /**
+     * @return the header of the i-th field in insertion order, or null if it is not an {@link HttpHeader}
+     */
+    public HttpHeader headerAt(int index) {
+        checkIndex(index);
+        return headers[index];
+    }
+
+    public String nameAt(int index) {
+        checkIndex(index);
+        HttpHeader header = headers[index];
+        if (header == null) return names[index];
+        return lowerCaseNames ? header.getLowerCaseName() : header.getHeaderName();
+    }
+
+    public String valueAt(int index) {
+        checkIndex(index);
+        return value(index);
+    }
+
+    // ---- Map ----
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        return set(key, value);
+    }
+
+    @Override
+    public String remove(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : removeAt(index);
+    }
+
+    @Override
+    public void clear() {
+        // only the slots in use, as a recycled request clears its headers once per request
+        for (int i = 0; i < size; i++) {
+            if (headers[i] != null) slots[headers[i].ordinal()] = 0;
+        }
+        Arrays.fill(headers, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        overflow = 0;
+        rawSize = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        if (entrySet == null) entrySet = new EntrySet();
+        return entrySet;
+    }
+
+    // ---- internals ----
+
+    private String value(int index) {
+        String value = values[index];
+        if (value != null || rawOffsets == null || rawOffsets[index] < 0) return value;
+        value = new String(raw, rawOffsets[index], rawLengths[index], StandardCharsets.ISO_8859_1);
+        values[index] = value;
+        return value;
+    }
+
+    private String replace(int index, String value) {
+        String previous = value(index);
+        values[index] = value;
+        if (rawOffsets != null) rawOffsets[index] = -1;
+        return previous;
+    }
+
+    private void setRaw(int index, byte[] bytes, int offset, int length) {
+        if (rawOffsets == null) {
+            rawOffsets = new int[values.length];
+            rawLengths = new int[values.length];
+        }
+        if (raw == null || raw.length - rawSize < length) {
+            raw = raw == null ? new byte[Math.max(INITIAL_RAW_CAPACITY, length)]
+                    : Arrays.copyOf(raw, Math.max(raw.length * 2, rawSize + length));
+        }
+        System.arraycopy(bytes, offset, raw, rawSize, length);
+        rawOffsets[index] = rawSize;
+        rawLengths[index] = length;
+        rawSize += length;
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String name)) return -1;
+        HttpHeader header = HttpHeader.of(name);
+        return header != null ? slots[header.ordinal()] - 1 : indexOfOverflow(name);
+    }
+
+    private int indexOfOverflow(String name) {
+        if (overflow == 0) return -1;
+        for (int i = 0; i < size; i++) {
+            if (headers[i] == null && names[i].equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+
+    private void append(HttpHeader header, String name, String value) {
+        if (size == values.length) {
+            int capacity = size * 2;
+            headers = Arrays.copyOf(headers, capacity);
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            if (rawOffsets != null) {
+                rawOffsets = Arrays.copyOf(rawOffsets, capacity);
+                rawLengths = Arrays.copyOf(rawLengths, capacity);
+            }
+        }
+        headers[size] = header;
+        values[size] = value;
+        if (rawOffsets != null) rawOffsets[size] = -1;
+        if (header != null) {
+            slots[header.ordinal()] = size + 1;
+        } else {
+            // the same instance if it already is lower case
+            names[size] = lowerCaseNames ? name.toLowerCase(Locale.ROOT) : name;
+            overflow++;
+        }
+        size++;
+    }
+
+    private String removeAt(int index) {
+        String previous = value(index);
+        HttpHeader removed = headers[index];
+        if (removed != null) {
+            slots[removed.ordinal()] = 0;
+        } else {
+            overflow--;
+        }
+        int moved = size - index - 1;
+        System.arraycopy(headers, index + 1, headers, index, moved);
+        System.arraycopy(names, index + 1, names, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        if (rawOffsets != null) {
+            System.arraycopy(rawOffsets, index + 1, rawOffsets, index, moved);
+            System.arraycopy(rawLengths, index + 1, rawLengths, index, moved);
+        }
+        size--;
+        headers[size] = null;
+        names[size] = null;
+        values[size] = null;
+        for (int i = index; i < size; i++) {
+            if (headers[i] != null) slots[headers[i].ordinal()] = i + 1;
+        }
+        return previous;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new Iterator<>() {
+                private int next;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    if (next >= size) throw new NoSuchElementException();
+                    last = next++;
+                    return new SimpleImmutableEntry<>(nameAt(last), value(last));
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) throw new IllegalStateException();
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                }
+            };
+        }
+    }
+}
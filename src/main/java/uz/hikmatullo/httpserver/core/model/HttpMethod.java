@@ -5,6 +5,8 @@ public enum HttpMethod {
 
     public static final int MAX_LENGTH;
 
+    private static final HttpMethod[] VALUES = values();
+
     static {
         int tempMaxLength = -1;
         for (HttpMethod method : values()) {
@@ -14,4 +16,27 @@ public enum HttpMethod {
         }
         MAX_LENGTH = tempMaxLength;
     }
+
+    /**
+     * The method named by buf[offset, offset + length), compared byte by byte (method names are case-sensitive).
+     *
+     * @return the method, or null if it is none of these
+     */
+    public static HttpMethod match(byte[] buf, int offset, int length) {
+        for (HttpMethod method : VALUES) {
+            String name = method.name();
+            if (name.length() != length) continue;
+            int i = 0;
+            while (i < length && buf[offset + i] == name.charAt(i)) i++;
+            if (i == length) return method;
+        }
+        return null;
+    }
+
+    /**
+     * Safe methods (RFC 9110 9.2.1) do not change server state, so their order of execution does not matter.
+     */
+    public boolean isSafe() {
+        return this == GET || this == HEAD || this == OPTION;
+    }
 }
@@ -1,101 +1,361 @@
 package uz.hikmatullo.httpserver.core.model;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.core.io.RequestBodyInputStream;
 import uz.hikmatullo.httpserver.exception.HttpParsingException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 
+/**
+ * A parsed request. Everything but the body is fixed once built. In streaming mode the body is still on
+ * the connection ({@link #getBodyStream()}); it is read by the one thread that handles the request.
+ * Query parameters, cookies and url-encoded form fields are decoded when they are first asked for, by that
+ * same thread, and kept; a request nobody asks about does not pay for them.
+ * <p>
+ * Once the response was sent, the connection may recycle the request: its header storage then serves the
+ * next request ({@link Builder#recycle(HttpRequest, boolean)}). A handler must not keep a request beyond
+ * returning its response; with retention checks on, any later use fails with IllegalStateException.
+ */
 public class HttpRequest {
 
+    private static final Logger log = LoggerFactory.getLogger(HttpRequest.class);
+
     private final HttpMethod method;
     private final String path;
     private final String originalHttpVersion; // literal from the request
     private final HttpVersion httpVersion;
-    private final Map<String, String> headers;
-    private final String body;
-    private final Map<String, String> cookies;
-    private final Map<String, String> parameters;
+    private final HttpHeaders headers;
+    // read from bodyStream on first use when the body is streamed
+    private String body;
+    // the body still on the connection, in streaming mode; null otherwise
+    private final RequestBodyInputStream bodyStream;
+    private final Charset bodyCharset;
+    private boolean bodyStreamTaken;
+    // decoded on first use; null until then
+    private Map<String, String> cookies;
+    private Map<String, String> parameters;
+    private Map<String, String> formFields;
+    // given to the builder explicitly (e.g. multipart fields); null if none
+    private final Map<String, String> givenCookies;
+    private final Map<String, String> givenParameters;
+    private final Map<String, String> givenFormFields;
     private final String rawQuery;
     private final String target;
     private final String contentType;
     private final String contentLength;
     private final List<MultipartRawFile> multipartRawFiles;
-    private final Map<String, String> formFields;
+    // set once the builder took back the header storage; it belongs to another request from then on
+    private boolean recycled;
+    // set with retention checks: every later call fails. Plain: a connection recycles on the thread that
+    // handed the request out, or after waiting for the handlers it ran elsewhere
+    private boolean poisoned;
 
     private HttpRequest(Builder builder) {
         this.method = builder.method;
         this.path = builder.path;
         this.httpVersion = builder.httpVersion;
         this.originalHttpVersion = builder.originalHttpVersion;
-        this.headers = Collections.unmodifiableMap(builder.headers);
+        this.headers = builder.headers;
         this.body = builder.body;
-        this.cookies = Collections.unmodifiableMap(builder.cookies);
-        this.parameters = Collections.unmodifiableMap(builder.parameters);
+        this.bodyStream = builder.bodyStream;
+        this.bodyCharset = builder.bodyCharset;
+        this.givenCookies = builder.cookies;
+        this.givenParameters = builder.parameters;
+        this.givenFormFields = builder.formFields;
         this.rawQuery = builder.rawQuery;
         this.target = builder.target;
         this.contentType = builder.contentType;
         this.contentLength = builder.contentLength;
-        this.multipartRawFiles = builder.multipartRawFiles;
-        this.formFields = Collections.unmodifiableMap(builder.formFields);
+        this.multipartRawFiles = builder.multipartRawFiles != null ? builder.multipartRawFiles : List.of();
+    }
+
+    private void checkNotRecycled() {
+        if (poisoned) {
+            throw new IllegalStateException("Request " + method + " " + target + " was used after its response was sent;"
+                    + " the connection recycled it for the next request. Copy what is needed before returning the response.");
+        }
     }
 
     // ---- Getters ----
-    public HttpMethod getMethod() { return method; }
-    public String getPath() { return path; }
-    public HttpVersion getHttpVersion() { return httpVersion; }
-    public String getOriginalHttpVersion() { return originalHttpVersion; }
-    public Map<String, String> getHeaders() { return headers; }
-    public String getBody() { return body; }
-    public Map<String, String> getCookies() { return cookies; }
-    public Map<String, String> getParameters() { return parameters; }
-    public Map<String, String> getFormFields() { return formFields; }
+    public HttpMethod getMethod() { checkNotRecycled(); return method; }
+    public String getPath() { checkNotRecycled(); return path; }
+    public HttpVersion getHttpVersion() { checkNotRecycled(); return httpVersion; }
+    public String getOriginalHttpVersion() { checkNotRecycled(); return originalHttpVersion; }
+    /**
+     * @return the headers, keyed by lower-case name; read-only
+     */
+    public Map<String, String> getHeaders() { checkNotRecycled(); return Collections.unmodifiableMap(headers); }
+    /**
+     * @return the body decoded with the charset of Content-Type (UTF-8 by default), or null if there is none.
+     * A streamed body is read from the connection completely on the first call.
+     * @throws IllegalStateException if the body was already taken with {@link #getBodyStream()}
+     */
+    public String getBody() {
+        checkNotRecycled();
+        if (body == null && bodyStream != null) {
+            if (bodyStreamTaken) throw new IllegalStateException("The body was already read as a stream");
+            try {
+                body = new String(bodyStream.readAllBytes(), bodyCharset);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return body;
+    }
+
+    /**
+     * The body as bytes. A streamed body is read from the connection as the caller reads this stream,
+     * without keeping it in memory; closing it leaves the connection open. Otherwise the stream is over
+     * the body that was read up front (empty if there is none).
+     */
+    public InputStream getBodyStream() {
+        checkNotRecycled();
+        if (bodyStream != null && body == null) {
+            bodyStreamTaken = true;
+            return bodyStream;
+        }
+        return body == null ? InputStream.nullInputStream() : new ByteArrayInputStream(body.getBytes(bodyCharset));
+    }
+
+    /**
+     * @return whether the body is read from the connection on demand, i.e. may still be (partly) unread
+     */
+    public boolean isBodyStreamed() {
+        checkNotRecycled();
+        return bodyStream != null;
+    }
+
+    /**
+     * Skips what the handler left unread of a streamed body, so the next request can be read.
+     *
+     * @return true if nothing of the body is left on the connection, false if more than maxBytes were left
+     */
+    public boolean drainBody(long maxBytes) throws IOException {
+        checkNotRecycled();
+        return bodyStream == null || bodyStream.drain(maxBytes);
+    }
+
+    /**
+     * @return the name=value pairs of the Cookie header, split on the first call
+     */
+    public Map<String, String> getCookies() {
+        checkNotRecycled();
+        if (cookies == null) cookies = withGiven(parseCookies(headers.get(HttpHeader.COOKIE)), givenCookies);
+        return cookies;
+    }
+
+    /**
+     * @return the query parameters, URL-decoded on the first call
+     */
+    public Map<String, String> getParameters() {
+        checkNotRecycled();
+        if (parameters == null) parameters = withGiven(parseUrlEncoded(rawQuery), givenParameters);
+        return parameters;
+    }
+
+    /**
+     * @return the text fields of a multipart/form-data body, or the fields of an application/x-www-form-urlencoded
+     * body, decoded on the first call. A streamed url-encoded body is read for it, like {@link #getBody()} does.
+     */
+    public Map<String, String> getFormFields() {
+        checkNotRecycled();
+        if (formFields == null) {
+            Map<String, String> fields = SupportedContentType.isFormUrlEncoded(contentType)
+                    ? parseUrlEncoded(getBody())
+                    : new LinkedHashMap<>();
+            formFields = withGiven(fields, givenFormFields);
+        }
+        return formFields;
+    }
 
     // Convenience helper (case-insensitive header lookup)
     public String getHeader(String name) {
-        return headers.get(name.toLowerCase(Locale.ROOT));
+        checkNotRecycled();
+        return headers.get(name);
+    }
+    public String getHeader(HttpHeader header) {
+        checkNotRecycled();
+        return headers.get(header);
     }
     public String getCookie(String name) {
-        return cookies.get(name.toLowerCase(Locale.ROOT));
+        checkNotRecycled();
+        return getCookies().get(name.toLowerCase(Locale.ROOT));
     }
     public String getParameter(String name) {
-        return parameters.get(name);
+        checkNotRecycled();
+        return getParameters().get(name);
+    }
+    public String getFormField(String name) {
+        checkNotRecycled();
+        return getFormFields().get(name);
     }
 
     public String getRawQuery() {
+        checkNotRecycled();
         return rawQuery;
     }
 
     public String getTarget() {
+        checkNotRecycled();
         return target;
     }
     public String getContentType() {
+        checkNotRecycled();
         return contentType;
     }
     public String getContentLength() {
+        checkNotRecycled();
         return contentLength;
     }
     public List<MultipartRawFile> getMultipartRawFiles() {
+        checkNotRecycled();
         return multipartRawFiles;
     }
 
+    /**
+     * Deletes the temporary files of large multipart uploads. The server calls it once the response
+     * was produced, so a handler that keeps an upload moves its file first.
+     */
+    public void deleteTemporaryFiles() {
+        for (MultipartRawFile file : multipartRawFiles) {
+            try {
+                file.delete();
+            } catch (IOException e) {
+                log.warn("Could not delete {}: {}", file.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, String> withGiven(Map<String, String> parsed, Map<String, String> given) {
+        if (given != null) parsed.putAll(given);
+        return parsed.isEmpty() ? Map.of() : Collections.unmodifiableMap(parsed);
+    }
+
+    // Cookie header format: "name=value; name2=value2; ..."; pairs without '=' are ignored
+    private static Map<String, String> parseCookies(String cookieHeader) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        if (cookieHeader == null) return cookies;
+
+        int start = 0;
+        while (start < cookieHeader.length()) {
+            int end = cookieHeader.indexOf(';', start);
+            if (end < 0) end = cookieHeader.length();
+            int eq = cookieHeader.indexOf('=', start);
+            if (eq >= 0 && eq < end) {
+                cookies.put(cookieHeader.substring(start, eq).trim(), cookieHeader.substring(eq + 1, end).trim());
+            }
+            start = end + 1;
+        }
+        return cookies;
+    }
+
+    // "a=1&b=two+words&flag"; a key without '=' gets "", a pair that does not decode is kept as it is
+    private static Map<String, String> parseUrlEncoded(String encoded) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (encoded == null) return params;
+
+        int start = 0;
+        while (start < encoded.length()) {
+            int end = encoded.indexOf('&', start);
+            if (end < 0) end = encoded.length();
+            if (end > start) {
+                int eq = encoded.indexOf('=', start);
+                String key = eq >= 0 && eq < end ? encoded.substring(start, eq) : encoded.substring(start, end);
+                String value = eq >= 0 && eq < end ? encoded.substring(eq + 1, end) : "";
+                try {
+                    params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    // malformed %-escape
+                    params.put(key, value);
+                }
+            }
+            start = end + 1;
+        }
+        return params;
+    }
+
     // ---- Builder Pattern ----
     public static class Builder {
+        // recycled requests whose header storage can be reused
+        private static final int MAX_FREE_HEADERS = 16;
+
         private HttpMethod method;
         private String path;
         private HttpVersion httpVersion;
         private String originalHttpVersion;
-        private final Map<String, String> headers = new LinkedHashMap<>();
+        private HttpHeaders headers = new HttpHeaders(true);
         private String body;
-        private final Map<String, String> cookies = new LinkedHashMap<>();
-        private final Map<String, String> parameters = new LinkedHashMap<>();
+        private RequestBodyInputStream bodyStream;
+        private Charset bodyCharset = StandardCharsets.UTF_8;
+        // only what is set explicitly; the request decodes the rest on demand
+        private Map<String, String> cookies;
+        private Map<String, String> parameters;
         private String rawQuery;
         private String target;
         private String contentType;
         private String contentLength;
-        private List<MultipartRawFile> multipartRawFiles = new ArrayList<>();
-        private Map<String, String> formFields = new HashMap<>();
+        private List<MultipartRawFile> multipartRawFiles;
+        private Map<String, String> formFields;
+        // headers was handed to a built request
+        private boolean built;
+        // header storage taken back from recycled requests; null until the first one
+        private ArrayDeque<HttpHeaders> freeHeaders;
+
+        /**
+         * Clears the builder for the next request on a connection. The header storage comes from a
+         * recycled request when there is one.
+         */
+        public Builder reset() {
+            method = null;
+            path = null;
+            httpVersion = null;
+            originalHttpVersion = null;
+            if (built) {
+                HttpHeaders free = freeHeaders != null ? freeHeaders.poll() : null;
+                headers = free != null ? free : new HttpHeaders(true);
+                built = false;
+            } else {
+                headers.clear();
+            }
+            body = null;
+            bodyStream = null;
+            bodyCharset = StandardCharsets.UTF_8;
+            cookies = null;
+            parameters = null;
+            rawQuery = null;
+            target = null;
+            contentType = null;
+            contentLength = null;
+            multipartRawFiles = null;
+            formFields = null;
+            return this;
+        }
+
+        /**
+         * Takes back the header storage of a request built here, once its response was sent, so a later
+         * {@link #reset()} reuses it. Recycling a request twice does nothing.
+         *
+         * @param poison make every later use of the request fail, to find handlers that keep requests
+         */
+        public void recycle(HttpRequest request, boolean poison) {
+            if (request.recycled) return;
+            request.recycled = true;
+            if (poison) request.poisoned = true;
+            if (freeHeaders == null) freeHeaders = new ArrayDeque<>();
+            if (freeHeaders.size() < MAX_FREE_HEADERS) {
+                request.headers.clear();
+                freeHeaders.push(request.headers);
+            }
+        }
 
         public void method(String methodName) {
             try {
@@ -105,6 +365,10 @@ public class HttpRequest {
             }
         }
 
+        public void method(HttpMethod method) {
+            this.method = method;
+        }
+
         public void contentType(String contentType) {
             this.contentType = contentType;
         }
@@ -140,27 +404,15 @@ public class HttpRequest {
             this.originalHttpVersion = versionString;
         }
 
-        public void rawQuery(String query) {
-            this.rawQuery = query;
-            if (query != null && !query.isEmpty()) {
-                setParameters(query);
-            }
+        // a version the request line named exactly, e.g. "HTTP/1.1"
+        public void httpVersion(HttpVersion version) {
+            this.httpVersion = version;
+            this.originalHttpVersion = version.literal;
         }
 
-        private void setParameters(String query) {
-            String[] pairs = query.split("&");
-            for (String pair : pairs) {
-                int idx = pair.indexOf('=');
-                if (idx >= 0) {
-                    String key = URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8);
-                    String value = URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8);
-                    this.parameters.put(key, value);
-                } else {
-                    // key with no value
-                    String key = URLDecoder.decode(pair, StandardCharsets.UTF_8);
-                    this.parameters.put(key, "");
-                }
-            }
+        // decoded into parameters by the request, when they are asked for
+        public void rawQuery(String query) {
+            this.rawQuery = query;
         }
 
         public void target(String target) {
@@ -172,53 +424,65 @@ public class HttpRequest {
         }
 
         public void cookies(Map<String, String> cookies) {
-            this.cookies.putAll(cookies);
+            cookies().putAll(cookies);
         }
 
         public void parameters(Map<String, String> parameters) {
-            this.parameters.putAll(parameters);
+            parameters().putAll(parameters);
         }
 
         public void addHeader(String key, String value) {
-            headers.put(key.toLowerCase(Locale.ROOT), value);
+            headers.set(key, value);
         }
 
         public void addCookie(String key, String value) {
-            cookies.put(key, value);
+            cookies().put(key, value);
         }
 
         public void addParameter(String key, String value) {
-            parameters.put(key, value);
+            parameters().put(key, value);
         }
 
 
         public void addMultipartRawFile(MultipartRawFile file) {
-            this.multipartRawFiles.add(file);
+            multipartRawFiles().add(file);
         }
         public void addFormFields(Map<String, String> formFields) {
-            this.formFields.putAll(formFields);
+            formFields().putAll(formFields);
         }
 
         public void body(String body) {
             this.body = body;
         }
 
-        public Map<String, String> headers() {
+        public void bodyStream(RequestBodyInputStream bodyStream) {
+            this.bodyStream = bodyStream;
+        }
+
+        public void bodyCharset(Charset bodyCharset) {
+            this.bodyCharset = bodyCharset;
+        }
+
+        public HttpHeaders headers() {
             return headers;
         }
 
         public Map<String, String> cookies() {
+            if (cookies == null) cookies = new LinkedHashMap<>();
             return cookies;
         }
 
         public Map<String, String> parameters() {
+            if (parameters == null) parameters = new LinkedHashMap<>();
             return parameters;
         }
 
         public List<MultipartRawFile> multipartRawFiles() {
+            if (multipartRawFiles == null) multipartRawFiles = new ArrayList<>();
             return multipartRawFiles;
         }
         public Map<String, String> formFields() {
+            if (formFields == null) formFields = new LinkedHashMap<>();
             return formFields;
         }
 
@@ -227,6 +491,7 @@ public class HttpRequest {
         }
 
         public HttpRequest build() {
+            built = true;
             return new HttpRequest(this);
         }
     }
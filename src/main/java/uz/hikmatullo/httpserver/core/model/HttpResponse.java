@@ -1,10 +1,14 @@
 package uz.hikmatullo.httpserver.core.model;
 
+import uz.hikmatullo.httpserver.core.io.ChunkedOutputStream;
+import uz.hikmatullo.httpserver.core.io.ConnectionOutputStream;
+import uz.hikmatullo.httpserver.core.io.FixedLengthOutputStream;
+import uz.hikmatullo.httpserver.core.io.ResponseHeadEncoder;
+
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class HttpResponse {
@@ -12,8 +16,21 @@ public class HttpResponse {
     private String protocol;
     private int statusCode;
     private String reasonPhrase;
-    private final Map<String, String> headers = new LinkedHashMap<>();
+    private final HttpHeaders headers = new HttpHeaders();
     private byte[] body = new byte[0];
+    // set instead of body for files, which are not loaded into memory
+    private FileRegion fileBody;
+    // encoded forms of body shared with other responses, e.g. of a cached file; may be null
+    private BodyVariants bodyVariants;
+    // set instead of body for bodies made of several pieces, e.g. multipart/byteranges
+    private List<BodySegment> bodySegments;
+    // set instead of body for bodies produced while the response is written
+    private StreamingBody streamingBody;
+    // a response to HEAD: the body a GET would get, described by the headers but never sent
+    private byte[] headOnlyBody;
+    private FileRegion headOnlyFile;
+    // sent after a chunked streaming body; the body may still add to them while it writes
+    private final Map<String, String> trailers = new LinkedHashMap<>();
 
     public String getProtocol() {
         return protocol;
@@ -27,7 +44,7 @@ public class HttpResponse {
         return reasonPhrase;
     }
 
-    public Map<String, String> getHeaders() {
+    public HttpHeaders getHeaders() {
         return headers;
     }
 
@@ -35,10 +52,49 @@ public class HttpResponse {
         return body;
     }
 
+    public FileRegion getFileBody() {
+        return fileBody;
+    }
+
+    public List<BodySegment> getBodySegments() {
+        return bodySegments;
+    }
+
+    public StreamingBody getStreamingBody() {
+        return streamingBody;
+    }
+
+    /**
+     * @return true if the body is streamed with Transfer-Encoding: chunked
+     */
+    public boolean isChunked() {
+        return streamingBody != null && "chunked".equals(headers.get(HttpHeader.TRANSFER_ENCODING));
+    }
+
+    public Map<String, String> getTrailers() {
+        return trailers;
+    }
+
+    public BodyVariants getBodyVariants() {
+        return bodyVariants;
+    }
+
+    public byte[] getHeadOnlyBody() {
+        return headOnlyBody;
+    }
+
+    public FileRegion getHeadOnlyFile() {
+        return headOnlyFile;
+    }
+
     public String getHeader(String name) {
         return headers.get(name);
     }
 
+    public String getHeader(HttpHeader header) {
+        return headers.get(header);
+    }
+
     public HttpResponse(HttpStatusCode status) {
         this.statusCode = status.statusCode;
         this.reasonPhrase = status.reasonPhrase;
@@ -46,48 +102,177 @@ public class HttpResponse {
 
     public void setStatus(HttpStatusCode status) {
         this.statusCode = status.statusCode;
-        this.reasonPhrase = status.name();
+        this.reasonPhrase = status.reasonPhrase;
     }
 
+    // replaces a previous value; names are case-insensitive
     public void addHeader(String name, String value) {
-        headers.put(name, value);
+        headers.set(name, value);
+    }
+
+    public void addHeader(HttpHeader header, String value) {
+        headers.set(header, value);
+    }
+
+    public void removeHeader(String name) {
+        headers.remove(name);
+    }
+
+    public void removeHeader(HttpHeader header) {
+        headers.remove(header);
+    }
+
+    /**
+     * Adds a trailer field, sent after a chunked body (e.g. a checksum of the streamed data).
+     * A streaming body may call this while it writes; the names should be announced in a Trailer header.
+     */
+    public void addTrailer(String name, String value) {
+        trailers.put(name, value);
     }
 
     public void setBody(byte[] body) {
+        clearBody();
         this.body = (body != null) ? body : new byte[0];
-        headers.put("Content-Length", String.valueOf(this.body.length));
+        headers.set(HttpHeader.CONTENT_LENGTH, String.valueOf(this.body.length));
     }
 
-    public void write(OutputStream outputStream) throws IOException {
-        final String CRLF = "\r\n";
-        StringBuilder responseBuilder = new StringBuilder();
+    /**
+     * Sets the body together with a memo of its encoded forms, so compressing it again can be skipped.
+     */
+    public void setBody(byte[] body, BodyVariants bodyVariants) {
+        setBody(body);
+        this.bodyVariants = bodyVariants;
+    }
 
-        if (protocol == null) {
-            protocol = "HTTP/1.1";
-        }
+    /**
+     * Sends (a part of) a file as the body. The file is read only when the response is written.
+     */
+    public void setBody(FileRegion fileBody) {
+        clearBody();
+        this.fileBody = fileBody;
+        headers.set(HttpHeader.CONTENT_LENGTH, String.valueOf(fileBody.getLength()));
+    }
 
-        // 1 Status line
-        responseBuilder.append(protocol).append(" ")
-                       .append(statusCode).append(" ")
-                       .append(reasonPhrase).append(CRLF);
-
-        // 2 Headers
-        for (var entry : headers.entrySet()) {
-            responseBuilder.append(entry.getKey())
-                           .append(": ")
-                           .append(entry.getValue())
-                           .append(CRLF);
+    /**
+     * Sends the segments one after another as the body. File segments are read only when the response is written.
+     */
+    public void setBody(List<BodySegment> bodySegments) {
+        clearBody();
+        this.bodySegments = List.copyOf(bodySegments);
+        long length = 0;
+        for (BodySegment segment : this.bodySegments) {
+            length += segment.getLength();
         }
+        headers.set(HttpHeader.CONTENT_LENGTH, String.valueOf(length));
+    }
+
+    /**
+     * Answers a HEAD request: the headers describe this body (Content-Length, and an encoding chosen for it),
+     * but nothing is sent after them.
+     *
+     * @param bodyVariants encoded forms of the body shared with GET responses, may be null
+     */
+    public void setHeadOnlyBody(byte[] body, BodyVariants bodyVariants) {
+        clearBody();
+        this.headOnlyBody = body;
+        this.bodyVariants = bodyVariants;
+        headers.set(HttpHeader.CONTENT_LENGTH, String.valueOf(body.length));
+    }
+
+    /**
+     * Answers a HEAD request for (a part of) a file, which is not read.
+     */
+    public void setHeadOnlyBody(FileRegion file) {
+        clearBody();
+        this.headOnlyFile = file;
+        headers.set(HttpHeader.CONTENT_LENGTH, String.valueOf(file.getLength()));
+    }
 
-        // 3 End of headers
-        responseBuilder.append(CRLF);
+    /**
+     * Streams a body of unknown length with Transfer-Encoding: chunked. The body runs when the response is written,
+     * so the first bytes reach the client before the rest exists.
+     */
+    public void setBody(StreamingBody streamingBody) {
+        clearBody();
+        this.streamingBody = streamingBody;
+        headers.remove(HttpHeader.CONTENT_LENGTH);
+        headers.set(HttpHeader.TRANSFER_ENCODING, "chunked");
+    }
 
-        // 4 Write headers + body
-        outputStream.write(responseBuilder.toString().getBytes(StandardCharsets.UTF_8));
-        outputStream.write(body);
+    /**
+     * Streams a body whose length is known up front; it must write exactly contentLength bytes.
+     */
+    public void setBody(StreamingBody streamingBody, long contentLength) {
+        clearBody();
+        this.streamingBody = streamingBody;
+        headers.set(HttpHeader.CONTENT_LENGTH, String.valueOf(contentLength));
+    }
+
+    private void clearBody() {
+        this.body = new byte[0];
+        this.fileBody = null;
+        this.bodyVariants = null;
+        this.bodySegments = null;
+        this.streamingBody = null;
+        this.headOnlyBody = null;
+        this.headOnlyFile = null;
+        headers.remove(HttpHeader.TRANSFER_ENCODING);
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        writeTo(outputStream);
         outputStream.flush();
     }
 
+    /**
+     * Same as {@link #write(OutputStream)} without the flush, so several responses
+     * (e.g. for pipelined requests) can go out with one flush of a buffered stream.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        writeHead(outputStream);
+        writeBody(outputStream);
+    }
+
+    /**
+     * The body only, framed as announced in the head: chunked, Content-Length or up to the connection close.
+     */
+    public void writeBody(OutputStream outputStream) throws IOException {
+        if (streamingBody != null) {
+            writeStreamingBody(outputStream);
+        } else if (fileBody != null) {
+            ConnectionOutputStream.copyFile(fileBody, outputStream);
+        } else if (bodySegments != null) {
+            for (BodySegment segment : bodySegments) {
+                switch (segment) {
+                    case BodySegment.Bytes bytes -> outputStream.write(bytes.data(), bytes.offset(), bytes.length());
+                    case FileRegion region -> ConnectionOutputStream.copyFile(region, outputStream);
+                }
+            }
+        } else {
+            outputStream.write(body);
+        }
+    }
+
+    private void writeStreamingBody(OutputStream outputStream) throws IOException {
+        if (isChunked()) {
+            ChunkedOutputStream chunked = new ChunkedOutputStream(outputStream);
+            streamingBody.writeTo(chunked);
+            chunked.finish(trailers);
+            return;
+        }
+        String contentLength = headers.get(HttpHeader.CONTENT_LENGTH);
+        FixedLengthOutputStream fixed = new FixedLengthOutputStream(outputStream, contentLength != null ? Long.parseLong(contentLength) : -1);
+        streamingBody.writeTo(fixed);
+        fixed.finish();
+    }
+
+    /**
+     * Status line and headers only, in one write.
+     */
+    public void writeHead(OutputStream outputStream) throws IOException {
+        outputStream.write(ResponseHeadEncoder.encode(this));
+    }
+
     public void setProtocol(String protocol) {
         this.protocol = protocol;
     }
@@ -95,7 +280,7 @@ public class HttpResponse {
     public static class Builder {
         private HttpStatusCode status;
         private String protocol;
-        private final Map<String, String> headers = new HashMap<>();
+        private final HttpHeaders headers = new HttpHeaders();
         private byte[] body = new byte[0];
 
         public Builder status(HttpStatusCode status) {
@@ -109,7 +294,7 @@ public class HttpResponse {
         }
 
         public Builder header(String name, String value) {
-            this.headers.put(name, value);
+            this.headers.set(name, value);
             return this;
         }
 
@@ -1,18 +1,66 @@
 package uz.hikmatullo.httpserver.core.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
-
+/**
+ * A file part of a multipart/form-data body. Small files are kept in memory, usually as a read-only view
+ * of the received body ({@link #getContent()}); larger ones were written to a temporary file while the body
+ * was received ({@link #getPath()}), which is deleted once the request was handled. A handler that wants
+ * to keep such a file moves it elsewhere.
+ */
 public class MultipartRawFile {
     private final String fieldName; // e.g., "profilePic"
     private final String fileName;  // e.g., "photo.jpg"
     private final String contentType; // e.g., "image/jpeg"
+    // set by the byte[] constructor
     private final byte[] data;
+    // in-memory content, read-only; may share its array with the whole request body
+    private final ByteBuffer content;
+    // set when the content is in a temporary file
+    private final Path path;
+    private final long size;
 
     public MultipartRawFile(String fieldName, String fileName, String contentType, byte[] data) {
         this.fieldName = fieldName;
         this.fileName = fileName;
         this.contentType = contentType;
         this.data = data;
+        this.content = ByteBuffer.wrap(data).asReadOnlyBuffer();
+        this.path = null;
+        this.size = data.length;
+    }
+
+    /**
+     * @param content the part's bytes; kept as a read-only view, not copied
+     */
+    public MultipartRawFile(String fieldName, String fileName, String contentType, ByteBuffer content) {
+        this.fieldName = fieldName;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.data = null;
+        this.content = content.slice().asReadOnlyBuffer();
+        this.path = null;
+        this.size = this.content.remaining();
+    }
+
+    public MultipartRawFile(String fieldName, String fileName, String contentType, Path path, long size) {
+        this.fieldName = fieldName;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.data = null;
+        this.content = null;
+        this.path = path;
+        this.size = size;
     }
 
     public String getFieldName() {
@@ -27,7 +75,92 @@ public class MultipartRawFile {
         return contentType;
     }
 
+    /**
+     * @return the content as an array; a view is copied and a file on disk read into memory,
+     * prefer {@link #getContent()} or {@link #openChannel()}
+     */
     public byte[] getData() {
-        return data;
+        if (data != null) return data;
+        if (content != null) {
+            byte[] copy = new byte[content.remaining()];
+            content.duplicate().get(copy);
+            return copy;
+        }
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the content as a read-only buffer with its own position, without copying;
+     * a file on disk is mapped into memory
+     */
+    public ByteBuffer getContent() {
+        if (content != null) return content.duplicate();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isInMemory() {
+        return path == null;
+    }
+
+    /**
+     * @return the temporary file holding the content, or null if it is in memory
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    public InputStream openStream() throws IOException {
+        if (path != null) return Files.newInputStream(path);
+        return data != null ? new ByteArrayInputStream(data) : new ByteBufferInputStream(content.duplicate());
+    }
+
+    public ReadableByteChannel openChannel() throws IOException {
+        return path != null ? FileChannel.open(path, StandardOpenOption.READ) : Channels.newChannel(openStream());
+    }
+
+    /**
+     * Deletes the temporary file, if there is one and it was not moved away.
+     */
+    public void delete() throws IOException {
+        if (path != null) Files.deleteIfExists(path);
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
 }
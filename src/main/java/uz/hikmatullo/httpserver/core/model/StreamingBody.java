@@ -0,0 +1,15 @@
+package uz.hikmatullo.httpserver.core.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Response body produced while the response is written, instead of being held in memory.
+ * The stream is already framed for the connection (chunked when the length is unknown);
+ * flushing it sends what was written so far. Closing it ends the body, not the connection.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+
+    void writeTo(OutputStream out) throws IOException;
+}
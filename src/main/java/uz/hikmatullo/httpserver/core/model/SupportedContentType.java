@@ -48,4 +48,12 @@ public enum SupportedContentType {
         if (contentType == null) return false;
         return contentType.toLowerCase(Locale.ROOT).startsWith(MULTIPART_FORM_DATA.mimeType);
     }
+
+    /**
+     * Checks if the content type is application/x-www-form-urlencoded.
+     */
+    public static boolean isFormUrlEncoded(String contentType) {
+        if (contentType == null) return false;
+        return contentType.regionMatches(true, 0, FORM_URL_ENCODED.mimeType, 0, FORM_URL_ENCODED.mimeType.length());
+    }
 }
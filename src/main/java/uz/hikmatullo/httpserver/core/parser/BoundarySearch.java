@@ -0,0 +1,44 @@
+package uz.hikmatullo.httpserver.core.parser;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool search for one fixed pattern, e.g. a multipart delimiter.
+ * The shift table is built once per pattern; a search then compares the last byte of each window and,
+ * when it does not match, skips ahead by up to the pattern length. Long random-looking part data
+ * (files) is passed over in roughly n / m steps instead of n · m for a naive scan.
+ */
+final class BoundarySearch {
+
+    private final byte[] pattern;
+    // by byte value: how far the window may move when that byte is under its last position
+    private final int[] shift = new int[256];
+
+    BoundarySearch(byte[] pattern) {
+        if (pattern.length == 0) throw new IllegalArgumentException("empty pattern");
+        this.pattern = pattern;
+        int last = pattern.length - 1;
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < last; i++) {
+            shift[pattern[i] & 0xFF] = last - i;
+        }
+    }
+
+    int length() {
+        return pattern.length;
+    }
+
+    /**
+     * @return the index of the first occurrence within source[from, to), or -1
+     */
+    int indexOf(byte[] source, int from, int to) {
+        int last = pattern.length - 1;
+        byte lastByte = pattern[last];
+        for (int i = from; i + last < to; ) {
+            byte b = source[i + last];
+            if (b == lastByte && Arrays.equals(source, i, i + last, pattern, 0, last)) return i;
+            i += shift[b & 0xFF];
+        }
+        return -1;
+    }
+}
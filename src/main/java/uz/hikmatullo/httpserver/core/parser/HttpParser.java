@@ -2,75 +2,154 @@ package uz.hikmatullo.httpserver.core.parser;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.config.Configuration;
+import uz.hikmatullo.httpserver.core.io.ChunkedInputStream;
+import uz.hikmatullo.httpserver.core.io.ConnectionInputBuffer;
+import uz.hikmatullo.httpserver.core.io.FixedLengthInputStream;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpHeaders;
+import uz.hikmatullo.httpserver.core.model.HttpMethod;
 import uz.hikmatullo.httpserver.core.model.HttpRequest;
 import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
 import uz.hikmatullo.httpserver.core.model.HttpVersion;
 import uz.hikmatullo.httpserver.core.model.SupportedContentType;
 import uz.hikmatullo.httpserver.exception.HttpParsingException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
 import java.net.URI;
-import java.net.URLDecoder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashMap;
+import java.nio.file.Path;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 
 /**
  * Strict HTTP/1.x request parser.
  * Key decisions:
- * - Uses raw InputStream so we can enforce strict CRLF sequences.
+ * - Reads through a {@link ConnectionInputBuffer} and scans lines in bulk, enforcing strict CRLF sequences.
  * - Uses ISO-8859-1 (latin1) for request-line and header bytes per RFC7230.
  * - Body decoding (to String) uses UTF-8 by default; you may inspect Content-Type charset to change this.
+ * - Multipart bodies larger than the spill threshold (and chunked ones) are parsed while they are read,
+ *   with large file parts written to temporary files ({@link StreamingMultipartParser}).
+ * - In streaming mode a body (other than multipart) is not read here: the request carries a stream that
+ *   reads it from the connection when the handler asks for it.
+ * - One parser serves one connection: it reuses its request builder, and the header storage of requests handed
+ *   back with {@link #recycle(HttpRequest)}, for the following requests. It is not thread-safe.
  * Note: this parser is intentionally strict — it rejects many malformed cases that lenient servers might accept.
  */
 public class HttpParser {
 
     private static final Logger log = LoggerFactory.getLogger(HttpParser.class);
 
-    // ASCII control bytes
-    private static final int CR = 0x0D; // '\r'
-    private static final int LF = 0x0A; // '\n'
-
     // Limits (tunable)
     private static final int MAX_REQUEST_LINE_LENGTH = 8192; // bytes
     private static final int MAX_HEADER_LINE_LENGTH = 8192; // bytes
     private static final int MAX_HEADERS = 200; // header count
     private static final int MAX_HEADER_TOTAL_SIZE = 65536; // bytes combined
 
+    private static final long DEFAULT_MULTIPART_SPILL_THRESHOLD = 256 * 1024;
+
+    private final boolean streamBodies;
+    private final long multipartSpillThreshold;
+    private final StreamingMultipartParser multipartParser;
+    private final boolean recycleRequests;
+    private final boolean detectRetainedRequests;
+    // reset for every request; keeps the header storage of recycled requests
+    private final HttpRequest.Builder builder = new HttpRequest.Builder();
+
+    public HttpParser() {
+        this(false);
+    }
+
+    public HttpParser(boolean streamBodies) {
+        this(streamBodies, DEFAULT_MULTIPART_SPILL_THRESHOLD, null);
+    }
+
+    /**
+     * @param streamBodies            leave request bodies on the connection for the handler to read
+     *                                (see {@link HttpRequest#getBodyStream()})
+     * @param multipartSpillThreshold multipart bodies up to this size are parsed in memory, file parts above it
+     *                                go to temporary files
+     * @param multipartTempDir        directory of those files; null for the system default
+     */
+    public HttpParser(boolean streamBodies, long multipartSpillThreshold, Path multipartTempDir) {
+        this(streamBodies, multipartSpillThreshold, multipartTempDir, true, true);
+    }
+
+    /**
+     * @param recycleRequests        reuse the header storage of requests passed to {@link #recycle(HttpRequest)}
+     * @param detectRetainedRequests make recycled requests fail on any later use
+     */
+    public HttpParser(boolean streamBodies, long multipartSpillThreshold, Path multipartTempDir,
+                      boolean recycleRequests, boolean detectRetainedRequests) {
+        this.streamBodies = streamBodies;
+        this.multipartSpillThreshold = multipartSpillThreshold;
+        this.multipartParser = new StreamingMultipartParser(multipartSpillThreshold, multipartTempDir);
+        this.recycleRequests = recycleRequests;
+        this.detectRetainedRequests = detectRetainedRequests;
+    }
+
+    public static HttpParser create(Configuration configuration) {
+        String tempDir = configuration.getMultipartTempDir();
+        return new HttpParser(configuration.isStreamRequestBodies(), configuration.getMultipartSpillThresholdBytes(),
+                tempDir == null || tempDir.isBlank() ? null : Path.of(tempDir),
+                configuration.isRecycleRequests(), configuration.isDetectRetainedRequests());
+    }
+
+    /**
+     * Hands back a request parsed here once its response was sent and nothing on the server side uses it any more.
+     * Its header storage then serves a following request of the connection; with retention detection, any later
+     * use of the request fails. Does nothing if recycling is off.
+     */
+    public void recycle(HttpRequest request) {
+        if (recycleRequests && request != null) {
+            builder.recycle(request, detectRetainedRequests);
+        }
+    }
+
     /**
      * Parse an HTTP request from the input stream.
      *
-     * @param input Input stream from socket (must be blocking and contiguous for a single request)
+     * @param input Input stream from socket (must be blocking). Pass the connection's {@link ConnectionInputBuffer}
+     *              when more requests follow on the same connection; any other stream is wrapped in a fresh
+     *              buffer, which may read past the end of this request.
      * @return fully built HttpRequest
      */
     public HttpRequest parse(InputStream input) {
-        Objects.requireNonNull(input, "input stream required");
+        return parse(input, null);
+    }
 
-        HttpRequest.Builder builder = new HttpRequest.Builder();
+    /**
+     * Same as {@link #parse(InputStream)}, but tells the caller when the head of the request is complete,
+     * e.g. to switch from a header read deadline to a body inactivity timeout.
+     *
+     * @param onHeadersParsed called after the request line and headers were read and validated, before the body; may be null
+     */
+    public HttpRequest parse(InputStream in, Runnable onHeadersParsed) {
+        Objects.requireNonNull(in, "input stream required");
+        // a connection passes its own buffer, so bytes read past this request are kept for the next one
+        ConnectionInputBuffer input = in instanceof ConnectionInputBuffer buffer ? buffer : new ConnectionInputBuffer(in);
+
+        HttpRequest.Builder builder = this.builder.reset();
 
         try {
             // Request line
-            String requestLine = readLineStrictRequestLine(input);
+            int requestLineLength = input.readLineInPlace(MAX_REQUEST_LINE_LENGTH, true);
 
-            //It is null if it is empty request.
-            if (requestLine == null) {
+            //It is -1 if it is empty request.
+            if (requestLineLength < 0) {
                 log.debug("Empty request line");
                 return null;
             }
-            parseRequestLine(requestLine, builder);
+            parseRequestLine(input.array(), input.lineStart(), requestLineLength, builder);
 
             // Headers
-            Map<String, String> headers = parseHeaders(input);
-            builder.headers(headers);
+            HttpHeaders headers = builder.headers();
+            parseHeaders(input, headers);
 
-            // Cookie parsing
-            Map<String, String> cookies = parseCookiesFromHeaders(headers);
-            if (!cookies.isEmpty()) builder.cookies(cookies);
+            // Cookies, query parameters and url-encoded form fields are decoded by the request when asked for
 
             // Validate Host for HTTP/1.1
             HttpVersion version = builder.getHttpVersion();
@@ -78,10 +157,12 @@ public class HttpParser {
                 // fallback: attempt to compute from header 'Host' or previously set - but ideally builder.httpVersion() already set by request line.
                 throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "HTTP version is required");
             }
-            if (version.isHttp11() && !headers.containsKey("host")) {
+            if (version.isHttp11() && !headers.contains(HttpHeader.HOST)) {
                 throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Host is required for HTTP/1.1");
             }
 
+            if (onHeadersParsed != null) onHeadersParsed.run();
+
             // Body
             parseBody(input, builder, headers);
 
@@ -103,32 +184,36 @@ public class HttpParser {
     // ---------------------------
 // Request-line parsing (strict per RFC 9112)
 // ---------------------------
-    private void parseRequestLine(String requestLine, HttpRequest.Builder builder) {
-        if (requestLine == null || requestLine.isEmpty()) {
+    /**
+     * Splits the request line where it sits in the connection buffer; only the target becomes a String.
+     * The method and the usual versions are matched by bytes.
+     */
+    private void parseRequestLine(byte[] buf, int start, int length, HttpRequest.Builder builder) {
+        if (length == 0) {
             throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
         }
+        int end = start + length;
 
         // Split into 3 exact parts: METHOD SP REQUEST_TARGET SP HTTP_VERSION CRLF
-        String[] parts = requestLine.split("\\s+");
-        if (parts.length != 3) {
+        int methodEnd = nextWhitespace(buf, start, end);
+        int targetStart = skipWhitespace(buf, methodEnd, end);
+        int targetEnd = nextWhitespace(buf, targetStart, end);
+        int versionStart = skipWhitespace(buf, targetEnd, end);
+        int versionEnd = nextWhitespace(buf, versionStart, end);
+        if (methodEnd == start || targetStart == targetEnd || versionStart == versionEnd
+                || skipWhitespace(buf, versionEnd, end) != end) {
             throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
         }
 
-        String methodStr = parts[0];
-        String target = parts[1];
-        String versionLiteral = parts[2];
-
         // --- Method ---
-        try {
-            builder.method(methodStr);
-        } catch (HttpParsingException ex) {
+        HttpMethod method = HttpMethod.match(buf, start, methodEnd - start);
+        if (method == null) {
             throw new HttpParsingException(HttpStatusCode.NOT_IMPLEMENTED);
         }
+        builder.method(method);
 
         // --- Target ---
-        if (target == null || target.isEmpty()) {
-            throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
-        }
+        String target = new String(buf, targetStart, targetEnd - targetStart, StandardCharsets.ISO_8859_1);
 
         // Handle different request target forms
         if (target.startsWith("http://") || target.startsWith("https://")) {
@@ -160,72 +245,121 @@ public class HttpParser {
         }
 
         // --- HTTP Version ---
-        HttpVersion best = HttpVersion.getBestCompatibleVersion(versionLiteral);
-        if (best == null) {
-            throw new HttpParsingException(HttpStatusCode.HTTP_VERSION_NOT_SUPPORTED);
+        int versionLength = versionEnd - versionStart;
+        if (equalsAscii(buf, versionStart, versionLength, HttpVersion.HTTP_1_1.literal)) {
+            builder.httpVersion(HttpVersion.HTTP_1_1);
+        } else if (equalsAscii(buf, versionStart, versionLength, HttpVersion.HTTP_1_0.literal)) {
+            builder.httpVersion(HttpVersion.HTTP_1_0);
+        } else {
+            // anything else is validated and mapped to the closest supported version, or rejected
+            builder.httpVersion(new String(buf, versionStart, versionLength, StandardCharsets.ISO_8859_1));
         }
-        builder.httpVersion(versionLiteral);
+    }
+
+    private static boolean equalsAscii(byte[] buf, int offset, int length, String literal) {
+        if (length != literal.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (buf[offset + i] != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int nextWhitespace(byte[] buf, int from, int end) {
+        while (from < end && !isWhitespace(buf[from])) from++;
+        return from;
+    }
+
+    private static int skipWhitespace(byte[] buf, int from, int end) {
+        while (from < end && isWhitespace(buf[from])) from++;
+        return from;
+    }
+
+    // what the regex \s matches
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
     }
 
 
     // ---------------------------
     // Headers parsing
     // ---------------------------
-    private Map<String, String> parseHeaders(InputStream input) throws IOException {
-        Map<String, String> headers = new LinkedHashMap<>();
+    /**
+     * Tokenizes header lines where they sit in the connection buffer: no String per line, no substring or trim.
+     * Well-known names are matched by bytes and go to their slot, without a name String; other names are
+     * lower-cased in place before the one copy. Values are handed over as trimmed bytes and only become Strings
+     * when asked for.
+     */
+    private void parseHeaders(ConnectionInputBuffer input, HttpHeaders headers) throws IOException {
         int headerCount = 0;
         int totalSize = 0;
 
         while (true) {
-            String line = readLineStrict(input);
-            // line == "" => end of headers
-            if (line.isEmpty()) break;
+            int length = input.readLineInPlace(MAX_HEADER_LINE_LENGTH);
+            // empty line => end of headers
+            if (length == 0) break;
+            byte[] buf = input.array();
+            int start = input.lineStart();
+            int end = start + length;
 
             headerCount++;
-            totalSize += line.length();
+            totalSize += length;
             if (headerCount > MAX_HEADERS || totalSize > MAX_HEADER_TOTAL_SIZE) {
                 throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE);
             }
 
             // per RFC7230 obs-fold is now invalid; reject lines starting with SP or HTAB
-            char firstChar = line.charAt(0);
-            if (firstChar == ' ' || firstChar == '\t') {
+            if (buf[start] == ' ' || buf[start] == '\t') {
                 throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
             }
 
-            int colonIndex = line.indexOf(':');
-            if (colonIndex <= 0) {
+            int colon = start;
+            while (colon < end && buf[colon] != ':') colon++;
+            if (colon == start || colon == end) {
                 throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
             }
 
-            String name = line.substring(0, colonIndex).trim();
-            String value = line.substring(colonIndex + 1).trim();
-
-            // Normalize header name case-insensitively. We'll store canonical form as lower-case.
-            String nameLower = name.toLowerCase(Locale.ROOT);
+            int nameEnd = colon;
+            while (nameEnd > start && isTrimmed(buf[nameEnd - 1])) nameEnd--;
+            int valueStart = colon + 1;
+            while (valueStart < end && isTrimmed(buf[valueStart])) valueStart++;
+            int valueEnd = end;
+            while (valueEnd > valueStart && isTrimmed(buf[valueEnd - 1])) valueEnd--;
 
             // Combine repeated headers per RFC (concatenate with ", ").
-            if (headers.containsKey(nameLower)) {
-                String prev = headers.get(nameLower);
-                String val = prev + ", " + value;
-                headers.put(nameLower, val);
+            HttpHeader known = HttpHeader.match(buf, start, nameEnd - start);
+            if (known != null) {
+                headers.add(known, buf, valueStart, valueEnd - valueStart);
             } else {
-                headers.put(nameLower, value);
+                headers.add(lowerCaseName(buf, start, nameEnd - start), buf, valueStart, valueEnd - valueStart);
             }
         }
+    }
+
+    // Header names are stored lower-case.
+    private static String lowerCaseName(byte[] buf, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            buf[i] = HttpHeader.toLowerCase(buf[i]);
+        }
+        return new String(buf, offset, length, StandardCharsets.ISO_8859_1);
+    }
 
-        return headers;
+    // what String.trim() removes
+    private static boolean isTrimmed(byte b) {
+        return (b & 0xFF) <= ' ';
     }
 
     // ---------------------------
     // Body parsing (Content-Length and chunked)
     // ---------------------------
-    private void parseBody(InputStream input, HttpRequest.Builder builder, Map<String, String> headers) throws IOException {
-        builder.contentLength(getHeaderIgnoreCase(headers, "content-length"));
-        builder.contentType(getHeaderIgnoreCase(headers, "content-type"));
+    private void parseBody(ConnectionInputBuffer input, HttpRequest.Builder builder, HttpHeaders headers) throws IOException {
+        String contentLengthValue = headers.get(HttpHeader.CONTENT_LENGTH);
+        String contentType = headers.get(HttpHeader.CONTENT_TYPE);
+        builder.contentLength(contentLengthValue);
+        builder.contentType(contentType);
 
-        String transferEncoding = getHeaderIgnoreCase(headers, "transfer-encoding");
-        String contentType = getHeaderIgnoreCase(headers, "content-type");
+        String transferEncoding = headers.get(HttpHeader.TRANSFER_ENCODING);
+        Charset charset = charsetOf(contentType);
+        builder.bodyCharset(charset);
 
 
         // Chunked transfer
@@ -235,38 +369,52 @@ public class HttpParser {
                 throw new HttpParsingException(HttpStatusCode.NOT_IMPLEMENTED);
             }
 
-            byte[] bodyBytes = readChunkedBody(input);
-            String bodyString = bytesToStringWithCharset(bodyBytes, headers);
-            builder.body(bodyString);
+            ChunkedInputStream chunked = new ChunkedInputStream(input);
+            if (SupportedContentType.isMultipart(contentType)) {
+                parseMultipart(multipartParser.parse(chunked, extractBoundary(contentType)), builder);
+                return;
+            }
+            if (streamBodies) {
+                builder.bodyStream(chunked);
+                return;
+            }
+            // trailers are read, but ignored
+            builder.body(new String(chunked.readAllBytes(), charset));
             return;
         }
 
-        String contentLengthValue = getHeaderIgnoreCase(headers, "content-length");
         if (contentLengthValue == null || contentLengthValue.equals("0")) {
             builder.body(null);
             return;
         }
 
-        int contentLength;
+        long contentLength;
         try {
-            contentLength = Integer.parseInt(contentLengthValue);
+            contentLength = Long.parseLong(contentLengthValue);
         } catch (NumberFormatException e) {
             throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
         }
+        if (contentLength < 0) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
 
         // Multipart (form-data)
         if (SupportedContentType.isMultipart(contentType)) {
             String boundary = extractBoundary(contentType);
-            ParseMultipartFormDataBody.Result multi = ParseMultipartFormDataBody.parse(input, boundary, contentLength);
-            builder.multipartRawFiles(multi.files);
-            builder.formFields(multi.fields);
+            // small bodies in one piece, large ones without holding them
+            ParseMultipartFormDataBody.Result multi = contentLength <= multipartSpillThreshold
+                    ? ParseMultipartFormDataBody.parse(input, boundary, toIntLength(contentLength))
+                    : multipartParser.parse(new FixedLengthInputStream(input, contentLength), boundary);
+            parseMultipart(multi, builder);
             return;
         }
 
         // Fixed-length body
         if (contentLength != 0) {
 
-            if (contentLength < 0) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
+            if (streamBodies) {
+                // any type: the handler decides what it accepts
+                builder.bodyStream(new FixedLengthInputStream(input, contentLength));
+                return;
+            }
 
             // Only allow known types
             if (!SupportedContentType.isSupported(contentType)) {
@@ -274,9 +422,8 @@ public class HttpParser {
                 throw new HttpParsingException(HttpStatusCode.UNSUPPORTED_MEDIA_TYPE);
             }
 
-            byte[] bodyBytes = readFixedLength(input, contentLength);
-            String bodyString = bytesToStringWithCharset(bodyBytes, headers);
-            builder.body(bodyString);
+            byte[] bodyBytes = readFixedLength(input, toIntLength(contentLength));
+            builder.body(new String(bodyBytes, charset));
             return;
         }
 
@@ -285,6 +432,17 @@ public class HttpParser {
     }
 
 
+    private static void parseMultipart(ParseMultipartFormDataBody.Result multi, HttpRequest.Builder builder) {
+        builder.multipartRawFiles(multi.files);
+        builder.formFields(multi.fields);
+    }
+
+    // bodies read into memory are limited to an array
+    private static int toIntLength(long contentLength) {
+        if (contentLength > Integer.MAX_VALUE) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
+        return (int) contentLength;
+    }
+
     private byte[] readFixedLength(InputStream input, int length) throws IOException {
         byte[] buffer = new byte[length];
         int offset = 0;
@@ -299,204 +457,11 @@ public class HttpParser {
         return buffer;
     }
 
-    /**
-     * Read and decode chunked transfer-encoding body.
-     * Implements RFC7230 chunked transfer decoding:
-     * <chunk-size> [; extensions] CRLF
-     * <chunk-data> CRLF
-     * ...
-     * 0 CRLF
-     * [trailer headers] CRLF
-     */
-    private byte[] readChunkedBody(InputStream input) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        while (true) {
-            // Read chunk-size line strictly
-            String sizeLine = readLineStrict(input);
-            // strip chunk extensions (after ';')
-            int semi = sizeLine.indexOf(';');
-            String sizeToken = semi >= 0 ? sizeLine.substring(0, semi).trim() : sizeLine.trim();
-            if (sizeToken.isEmpty()) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Chunk size is empty");
-
-            int chunkSize;
-            try {
-                chunkSize = Integer.parseInt(sizeToken, 16);
-            } catch (NumberFormatException ex) {
-                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Chunk size is not a valid integer");
-            }
-
-            if (chunkSize < 0) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Chunk size is negative");
-
-            if (chunkSize == 0) {
-                // final chunk; consume trailer headers (if any) until CRLF CRLF
-                Map<String, String> trailers = new LinkedHashMap<>();
-                while (true) {
-                    String trailerLine = readLineStrict(input);
-                    if (trailerLine.isEmpty()) break;
-                    int colon = trailerLine.indexOf(':');
-                    if (colon <= 0) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
-                    String name = trailerLine.substring(0, colon).trim();
-                    String value = trailerLine.substring(colon + 1).trim();
-                    String key = name.toLowerCase(Locale.ROOT);
-                    if (trailers.containsKey(key)) {
-                        trailers.put(key, trailers.get(key) + ", " + value);
-                    } else {
-                        trailers.put(key, value);
-                    }
-                }
-                // We ignore trailers for now, but they exist if needed.
-                return out.toByteArray();
-            }
-
-            // Read chunk data exactly chunkSize bytes
-            byte[] chunk = readFixedLength(input, chunkSize);
-            out.write(chunk);
-
-            // After chunk data must be CRLF
-            int c1 = input.read();
-            int c2 = input.read();
-            if (c1 != CR || c2 != LF) {
-                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "CRLF expected after chunk data");
-            }
-        }
-    }
-
-    // ---------------------------
-    // Utility - strict line reader (CRLF only)
-    // ---------------------------
-    private String readLineStrict(InputStream input) throws IOException {
-        ByteArrayOutputStream buf = new ByteArrayOutputStream(128);
-        int total = 0;
-
-        while (true) {
-            int b = input.read();
-            if (b == -1) {
-                // EOF while reading a line -> protocol error
-                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "EOF while reading a line");
-            }
-            total++;
-            if (total > HttpParser.MAX_HEADER_LINE_LENGTH) {
-                throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request header fields too large");
-            }
-
-            if (readLines(input, buf, b)) return buf.toString(StandardCharsets.ISO_8859_1);
-        }
-    }
-
-    // ---------------------------
-    // Utility - strict line reader (CRLF only)
-    // ---------------------------
-    private String readLineStrictRequestLine(InputStream input) throws IOException {
-        ByteArrayOutputStream buf = new ByteArrayOutputStream(128);
-        int total = 0;
-
-        while (true) {
-            int b = input.read();
-            if (b == -1) {
-                if(buf.size() == 0) {
-                    return null;
-                }
-                // EOF while reading a line -> protocol error
-                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "EOF while reading a line");
-            }
-            total++;
-            if (total > HttpParser.MAX_REQUEST_LINE_LENGTH) {
-                throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request header fields too large");
-            }
-
-            if (readLines(input, buf, b)) return buf.toString(StandardCharsets.ISO_8859_1);
-        }
-    }
-
-    private boolean readLines(InputStream input, ByteArrayOutputStream buf, int b) throws IOException {
-        if (b == CR) {
-            int next = input.read();
-            if (next == -1) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "EOF while reading a line");
-            if (next != LF) {
-                // CR not followed by LF: invalid per strict HTTP parsing
-                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "CR not followed by LF");
-            }
-            // line ended. convert bytes to String using ISO-8859-1 as RFC suggests for header bytes
-            return true;
-        }
-
-        if (b == LF) {
-            // LF without preceding CR -> invalid
-            throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "LF without preceding CR");
-        }
-
-        buf.write(b);
-        return false;
-    }
-
-    // ---------------------------
-    // Cookies parsing
-    // ---------------------------
-    private Map<String, String> parseCookiesFromHeaders(Map<String, String> headers) {
-        Map<String, String> cookies = new LinkedHashMap<>();
-        // header names stored lower-case
-        // Cookies may appear in "cookie" header; multiple cookie headers may be present combined with ', '
-        String cookieHeader = headers.get("cookie");
-        if (cookieHeader == null) return cookies;
-
-        // Cookie header format: "name=value; name2=value2; ..."
-        String[] pairs = cookieHeader.split(";");
-        for (String pair : pairs) {
-            String trimmed = pair.trim();
-            if (trimmed.isEmpty()) continue;
-            String[] kv = trimmed.split("=", 2);
-            if (kv.length == 2) {
-                cookies.put(kv[0].trim(), kv[1].trim());
-            }
-        }
-        return cookies;
-    }
-
-    // ---------------------------
-    // Form parameters parsing
-    // ---------------------------
-    private void parseFormParametersIfNeeded(HttpRequest.Builder builder, Map<String, String> headers, String body) {
-        if (body == null || body.isEmpty()) return;
-
-        String contentType = getHeaderIgnoreCase(headers, "content-type");
-        if (contentType != null) {
-            String lower = contentType.toLowerCase(Locale.ROOT);
-            if (lower.contains("application/x-www-form-urlencoded")) {
-                Map<String, String> params = parseUrlEncoded(body);
-                if (!params.isEmpty()) builder.parameters(params);
-            }
-        }
-    }
-
-    private Map<String, String> parseUrlEncoded(String body) {
-        Map<String, String> params = new LinkedHashMap<>();
-        String[] pairs = body.split("&");
-        for (String pair : pairs) {
-            if (pair.isEmpty()) continue;
-            String[] kv = pair.split("=", 2);
-            try {
-                String k = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
-                String v = kv.length == 2 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "";
-                params.put(k, v);
-            } catch (Exception ex) {
-                // leave raw if decoding fails
-                params.put(kv[0], kv.length == 2 ? kv[1] : "");
-            }
-        }
-        return params;
-    }
-
     // ---------------------------
     // Helpers
     // ---------------------------
-    private static String getHeaderIgnoreCase(Map<String, String> headers, String key) {
-        if (key == null) return null;
-        return headers.get(key.toLowerCase(Locale.ROOT));
-    }
-
-    private static String bytesToStringWithCharset(byte[] bytes, Map<String, String> headers) {
-        // If Content-Type has charset parameter, use it; otherwise fall back to UTF-8
-        String contentType = getHeaderIgnoreCase(headers, "content-type");
+    // the charset parameter of Content-Type, UTF-8 if there is none or it is unknown
+    private static Charset charsetOf(String contentType) {
         if (contentType != null) {
             // naive parse of charset
             String[] parts = contentType.split(";");
@@ -505,14 +470,14 @@ public class HttpParser {
                 if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
                     String cs = trimmed.substring(8).trim();
                     try {
-                        return new String(bytes, cs);
+                        return Charset.forName(cs);
                     } catch (Exception ignored) {
                         // fallthrough to utf-8
                     }
                 }
             }
         }
-        return new String(bytes, StandardCharsets.UTF_8);
+        return StandardCharsets.UTF_8;
     }
 
 
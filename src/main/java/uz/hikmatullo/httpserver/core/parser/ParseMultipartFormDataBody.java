@@ -4,13 +4,21 @@ import uz.hikmatullo.httpserver.exception.HttpParsingException;
 import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
 import uz.hikmatullo.httpserver.core.model.MultipartRawFile;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+/**
+ * Parses a multipart/form-data body that is read into memory as a whole (small bodies, see
+ * {@link StreamingMultipartParser} for large ones). Delimiters are found with {@link BoundarySearch};
+ * file parts are read-only views of the body array and text fields are decoded straight from it,
+ * so no part is copied out.
+ */
 public class ParseMultipartFormDataBody {
 
-    private static final int MAX_HEADER_LINE_LENGTH = 8192;
+    private static final BoundarySearch HEADER_END = new BoundarySearch("\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
 
     /**
      * Parses multipart/form-data body into form fields and file parts.
@@ -24,55 +32,54 @@ public class ParseMultipartFormDataBody {
         if (boundary == null || boundary.isEmpty()) {
             throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
         }
+        return parse(input.readNBytes(contentLength), boundary);
+    }
 
-        byte[] boundaryBytes = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
-        byte[] endBoundaryBytes = ("--" + boundary + "--").getBytes(StandardCharsets.US_ASCII);
-
-        byte[] bodyBytes = input.readNBytes(contentLength);
+    /**
+     * @param body the complete body; file parts of the result keep referring to it
+     */
+    static Result parse(byte[] body, String boundary) {
+        // the first delimiter may start the body, every other one follows the CRLF that ends a part
+        BoundarySearch firstBoundary = new BoundarySearch(("--" + boundary).getBytes(StandardCharsets.US_ASCII));
+        BoundarySearch delimiter = new BoundarySearch(("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII));
 
         Result result = new Result();
-        int pos = 0;
+        int boundaryIndex = firstBoundary.indexOf(body, 0, body.length);
+        if (boundaryIndex < 0) return result;
+        int pos = boundaryIndex + firstBoundary.length();
 
         while (true) {
-            // Find start boundary
-            int boundaryIndex = indexOf(bodyBytes, boundaryBytes, pos);
-            if (boundaryIndex < 0) break;
-            pos = boundaryIndex + boundaryBytes.length;
-
             // Detect final boundary
-            if (startsWith(bodyBytes, endBoundaryBytes, boundaryIndex)) {
+            if (pos + 2 <= body.length && body[pos] == '-' && body[pos + 1] == '-') {
                 break;
             }
 
             // Skip CRLF if present
-            if (pos + 2 <= bodyBytes.length && bodyBytes[pos] == '\r' && bodyBytes[pos + 1] == '\n') {
+            if (pos + 2 <= body.length && body[pos] == '\r' && body[pos + 1] == '\n') {
                 pos += 2;
             }
 
             // Find header section end
-            int headerEnd = indexOf(bodyBytes, "\r\n\r\n".getBytes(StandardCharsets.US_ASCII), pos);
+            int headerEnd = HEADER_END.indexOf(body, pos, body.length);
             if (headerEnd < 0) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
 
-            String headersBlock = new String(bodyBytes, pos, headerEnd - pos, StandardCharsets.US_ASCII);
-            pos = headerEnd + 4;
+            String headersBlock = new String(body, pos, headerEnd - pos, StandardCharsets.US_ASCII);
+            pos = headerEnd + HEADER_END.length();
 
             Map<String, String> partHeaders = parseHeaders(headersBlock);
 
-            // Find next boundary
-            int nextBoundaryIndex = indexOf(bodyBytes, boundaryBytes, pos);
-            if (nextBoundaryIndex < 0) break;
-
-            byte[] partData = Arrays.copyOfRange(bodyBytes, pos, nextBoundaryIndex - 2); // exclude \r\n before boundary
-            pos = nextBoundaryIndex;
+            // Find next boundary; the CRLF before it belongs to the delimiter
+            int nextDelimiter = delimiter.indexOf(body, pos, body.length);
+            if (nextDelimiter < 0) break;
 
-            // Process part
-            handlePart(result, partHeaders, partData);
+            handlePart(result, partHeaders, body, pos, nextDelimiter - pos);
+            pos = nextDelimiter + delimiter.length();
         }
 
         return result;
     }
 
-    private static void handlePart(Result result, Map<String, String> headers, byte[] data) {
+    private static void handlePart(Result result, Map<String, String> headers, byte[] body, int offset, int length) {
         String disposition = headers.get("content-disposition");
         if (disposition == null) return;
 
@@ -86,12 +93,12 @@ public class ParseMultipartFormDataBody {
                     fieldName,
                     filename,
                     headers.getOrDefault("content-type", "application/octet-stream"),
-                    data
+                    ByteBuffer.wrap(body, offset, length)
             );
             result.files.add(file);
         } else if (fieldName != null) {
             // Text field
-            String value = new String(data, StandardCharsets.UTF_8);
+            String value = new String(body, offset, length, StandardCharsets.UTF_8);
             result.fields.put(fieldName, value);
         }
     }
@@ -130,25 +137,6 @@ public class ParseMultipartFormDataBody {
         return map;
     }
 
-    private static boolean startsWith(byte[] source, byte[] target, int offset) {
-        if (offset + target.length > source.length) return false;
-        for (int i = 0; i < target.length; i++) {
-            if (source[offset + i] != target[i]) return false;
-        }
-        return true;
-    }
-
-    private static int indexOf(byte[] source, byte[] target, int fromIndex) {
-        outer:
-        for (int i = fromIndex; i <= source.length - target.length; i++) {
-            for (int j = 0; j < target.length; j++) {
-                if (source[i + j] != target[j]) continue outer;
-            }
-            return i;
-        }
-        return -1;
-    }
-
     // --- Result holder ---
     public static class Result {
         public final Map<String, String> fields = new LinkedHashMap<>();
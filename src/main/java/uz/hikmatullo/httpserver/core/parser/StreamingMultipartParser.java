@@ -0,0 +1,336 @@
+package uz.hikmatullo.httpserver.core.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.core.model.MultipartRawFile;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses a multipart/form-data body while it is read, through a fixed window instead of the whole body.
+ * Part data is handed on as soon as it cannot be the start of the next delimiter: text fields are
+ * collected in memory, file parts too until they exceed the spill threshold, after which they continue
+ * in a temporary file. Memory per upload is the window plus at most the threshold per file part.
+ */
+public class StreamingMultipartParser {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingMultipartParser.class);
+
+    private static final int WINDOW_SIZE = 65536;
+    private static final int MAX_HEADER_SIZE = 8192;
+    // text fields always stay in memory
+    private static final int MAX_FIELD_SIZE = 1024 * 1024;
+    private static final int MAX_PARTS = 1000;
+
+    private final long spillThreshold;
+    private final Path tempDir;
+
+    /**
+     * @param spillThreshold file parts larger than this go to a temporary file
+     * @param tempDir        where the temporary files are created; null for the system default
+     */
+    public StreamingMultipartParser(long spillThreshold, Path tempDir) {
+        this.spillThreshold = Math.max(0, spillThreshold);
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * @param input    the body, ending where the body ends (e.g. a Content-Length bounded stream)
+     * @param boundary multipart boundary from Content-Type
+     */
+    public ParseMultipartFormDataBody.Result parse(InputStream input, String boundary) throws IOException {
+        if (boundary == null || boundary.isEmpty()) {
+            throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
+        }
+        ParseMultipartFormDataBody.Result result = new ParseMultipartFormDataBody.Result();
+        try {
+            new Reader(input, boundary).read(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // whatever was spilled so far is nobody's
+            for (MultipartRawFile file : result.files) {
+                deleteQuietly(file);
+            }
+            throw e;
+        }
+    }
+
+    private static void deleteQuietly(MultipartRawFile file) {
+        try {
+            file.delete();
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * State of one body. The window holds buf[start, end); what precedes start was consumed.
+     */
+    private final class Reader {
+        private final InputStream input;
+        // CRLF "--" boundary: every delimiter but the first is preceded by the CRLF ending the previous part
+        private final BoundarySearch delimiter;
+        private final byte[] buf;
+        private int start;
+        private int end;
+        private boolean eof;
+
+        Reader(InputStream input, String boundary) {
+            this.input = input;
+            this.delimiter = new BoundarySearch(("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII));
+            this.buf = new byte[Math.max(WINDOW_SIZE, delimiter.length() * 2)];
+            // the body starts right with the first delimiter, which has no CRLF before it
+            buf[0] = '\r';
+            buf[1] = '\n';
+            end = 2;
+        }
+
+        void read(ParseMultipartFormDataBody.Result result) throws IOException {
+            // preamble
+            if (!skipToDelimiter(null)) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "No multipart boundary");
+
+            int parts = 0;
+            while (!isCloseDelimiter()) {
+                if (++parts > MAX_PARTS) {
+                    throw new HttpParsingException(HttpStatusCode.PAYLOAD_TOO_LARGE, "Too many multipart parts");
+                }
+                Map<String, String> headers = readPartHeaders();
+                Map<String, String> disposition = parseDisposition(headers.get("content-disposition"));
+                String fieldName = disposition.get("name");
+                String fileName = disposition.get("filename");
+
+                if (fileName != null && !fileName.isEmpty()) {
+                    FilePart file = new FilePart();
+                    try {
+                        if (!skipToDelimiter(file)) throw unterminated();
+                    } catch (IOException | RuntimeException e) {
+                        file.discard();
+                        throw e;
+                    }
+                    result.files.add(file.toRawFile(fieldName, fileName,
+                            headers.getOrDefault("content-type", "application/octet-stream")));
+                } else {
+                    FieldPart field = new FieldPart();
+                    if (!skipToDelimiter(field)) throw unterminated();
+                    if (fieldName != null) {
+                        result.fields.put(fieldName, field.toString());
+                    }
+                }
+            }
+            // epilogue: read to the end, so the connection is positioned at the next request
+            start = end;
+            while (fill()) {
+                start = end;
+            }
+        }
+
+        /**
+         * Passes the data up to the next delimiter to the sink (null: discard) and consumes the delimiter.
+         *
+         * @return false if the body ended first
+         */
+        private boolean skipToDelimiter(OutputStream sink) throws IOException {
+            while (true) {
+                int found = delimiter.indexOf(buf, start, end);
+                if (found >= 0) {
+                    if (sink != null) sink.write(buf, start, found - start);
+                    start = found + delimiter.length();
+                    return true;
+                }
+                // keep a tail that could still turn into a delimiter
+                int safe = Math.max(start, end - (delimiter.length() - 1));
+                if (sink != null && safe > start) sink.write(buf, start, safe - start);
+                start = safe;
+                if (!fill()) return false;
+            }
+        }
+
+        /**
+         * After a delimiter: "--" ends the body, otherwise optional whitespace and CRLF start a part.
+         */
+        private boolean isCloseDelimiter() throws IOException {
+            ensure(2);
+            if (end - start >= 2 && buf[start] == '-' && buf[start + 1] == '-') {
+                start += 2;
+                return true;
+            }
+            return false;
+        }
+
+        private Map<String, String> readPartHeaders() throws IOException {
+            // transport padding, then the CRLF that ends the delimiter line
+            String rest = readLine();
+            if (!rest.isBlank()) throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Invalid multipart delimiter");
+
+            Map<String, String> headers = new LinkedHashMap<>();
+            int total = 0;
+            while (true) {
+                String line = readLine();
+                if (line.isEmpty()) return headers;
+                total += line.length();
+                if (total > MAX_HEADER_SIZE) {
+                    throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Multipart headers too large");
+                }
+                int idx = line.indexOf(':');
+                if (idx > 0) {
+                    headers.put(line.substring(0, idx).trim().toLowerCase(Locale.ROOT), line.substring(idx + 1).trim());
+                }
+            }
+        }
+
+        private String readLine() throws IOException {
+            int scanned = 0;
+            while (true) {
+                for (int i = start + scanned; i + 1 < end; i++) {
+                    if (buf[i] == '\r' && buf[i + 1] == '\n') {
+                        // part headers are ASCII, filenames are commonly sent as UTF-8
+                        String line = new String(buf, start, i - start, StandardCharsets.UTF_8);
+                        start = i + 2;
+                        return line;
+                    }
+                }
+                scanned = Math.max(0, end - start - 1);
+                if (scanned > MAX_HEADER_SIZE) {
+                    throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Multipart headers too large");
+                }
+                if (!fill()) throw unterminated();
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            while (end - start < bytes && fill()) {
+                // reading
+            }
+        }
+
+        /**
+         * Moves the unconsumed bytes to the front and reads more behind them.
+         *
+         * @return false at the end of the body
+         */
+        private boolean fill() throws IOException {
+            if (eof) return false;
+            if (start > 0) {
+                System.arraycopy(buf, start, buf, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            if (end == buf.length) {
+                throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Multipart headers too large");
+            }
+            int n = input.read(buf, end, buf.length - end);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            end += n;
+            return true;
+        }
+
+        private HttpParsingException unterminated() {
+            return new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Multipart body ended inside a part");
+        }
+    }
+
+    /**
+     * A text field, kept in memory.
+     */
+    private static final class FieldPart extends ByteArrayOutputStream {
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > MAX_FIELD_SIZE) {
+                throw new HttpParsingException(HttpStatusCode.PAYLOAD_TOO_LARGE, "Multipart field too large");
+            }
+            super.write(b, off, len);
+        }
+
+        @Override
+        public String toString() {
+            return toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A file part: in memory up to the spill threshold, then in a temporary file.
+     */
+    private final class FilePart extends OutputStream {
+        private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private Path file;
+        private OutputStream fileOut;
+        private long size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            if (fileOut == null && size + len > spillThreshold) {
+                spill();
+            }
+            if (fileOut != null) {
+                fileOut.write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+            size += len;
+        }
+
+        private void spill() throws IOException {
+            file = tempDir != null
+                    ? Files.createTempFile(tempDir, "upload-", ".part")
+                    : Files.createTempFile("upload-", ".part");
+            fileOut = Files.newOutputStream(file);
+            memory.writeTo(fileOut);
+            memory.reset();
+        }
+
+        MultipartRawFile toRawFile(String fieldName, String fileName, String contentType) throws IOException {
+            if (fileOut == null) {
+                return new MultipartRawFile(fieldName, fileName, contentType, memory.toByteArray());
+            }
+            fileOut.close();
+            return new MultipartRawFile(fieldName, fileName, contentType, file, size);
+        }
+
+        void discard() {
+            if (file == null) return;
+            try {
+                fileOut.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, String> parseDisposition(String disposition) {
+        Map<String, String> map = new LinkedHashMap<>();
+        if (disposition == null) return map;
+        for (String p : disposition.split(";")) {
+            String trimmed = p.trim();
+            int eq = trimmed.indexOf('=');
+            if (eq > 0) {
+                String value = trimmed.substring(eq + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                map.put(trimmed.substring(0, eq).trim().toLowerCase(Locale.ROOT), value);
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,208 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.config.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One or more accept loops for a single port.
+ * With more than one acceptor every loop gets its own listening channel bound with SO_REUSEPORT,
+ * so the kernel load-balances incoming connections between them instead of all threads
+ * contending on one accept queue. Where SO_REUSEPORT is not available the acceptors share one channel.
+ * Every accepted connection first passes the {@link AdmissionController}; only admitted channels
+ * (in blocking mode, together with their permit) reach the consumer.
+ */
+public class AcceptorGroup {
+
+    private static final Logger log = LoggerFactory.getLogger(AcceptorGroup.class);
+
+    @FunctionalInterface
+    public interface ConnectionConsumer {
+        void onAccepted(SocketChannel channel, AdmissionController.Permit permit) throws IOException;
+    }
+
+    private final List<ServerSocketChannel> listeners = new ArrayList<>();
+    private final List<Acceptor> acceptors = new ArrayList<>();
+    private final ConnectionConsumer consumer;
+    private final AdmissionController admissionController;
+    private final CpuOffloader cpuOffloader;
+    private final SocketTuning socketTuning;
+    private final int statsIntervalSeconds;
+    private volatile boolean open = true;
+
+    public AcceptorGroup(ServerContext context, ConnectionConsumer consumer) throws IOException {
+        Configuration configuration = context.getConfiguration();
+        int port = configuration.getPort();
+        this.consumer = consumer;
+        this.admissionController = context.getAdmissionController();
+        this.cpuOffloader = context.getCpuOffloader();
+        this.statsIntervalSeconds = configuration.getAcceptorStatsIntervalSeconds();
+        this.socketTuning = new SocketTuning(configuration);
+        int count = Math.max(1, configuration.getAcceptorThreads());
+
+        boolean reusePort = count > 1 && supportsReusePort();
+        if (count > 1 && !reusePort) {
+            log.warn("SO_REUSEPORT is not supported on this platform, {} acceptors will share one listener", count);
+        }
+
+        for (int i = 0; i < count; i++) {
+            ServerSocketChannel listener;
+            if (i == 0 || reusePort) {
+                listener = ServerSocketChannel.open();
+                if (reusePort) {
+                    listener.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                socketTuning.applyToListener(listener);
+                listener.bind(new InetSocketAddress(port), socketTuning.getBacklog());
+                listeners.add(listener);
+            } else {
+                listener = listeners.get(0);
+            }
+            acceptors.add(new Acceptor("acceptor-" + i, listener));
+        }
+        log.info("Socket options: {}", socketTuning.describe(listeners.get(0)));
+    }
+
+    /**
+     * Runs the first acceptor on the calling thread and the rest on their own threads.
+     * Returns once the group is closed.
+     */
+    public void serve() {
+        for (int i = 1; i < acceptors.size(); i++) {
+            Thread.ofPlatform().name(acceptors.get(i).name).start(acceptors.get(i));
+        }
+        if (statsIntervalSeconds > 0) {
+            Thread.ofPlatform().daemon().name("acceptor-stats").start(this::reportStats);
+        }
+        log.info("Accepting connections with {} acceptor(s) on {} listener(s)", acceptors.size(), listeners.size());
+        acceptors.get(0).run();
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void close() {
+        open = false;
+        for (ServerSocketChannel listener : listeners) {
+            try {
+                listener.close();
+            } catch (IOException e) {
+                log.error("Could not close server socket. {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Total accepted connections per acceptor, in acceptor order.
+     */
+    public List<Long> getAcceptedCounts() {
+        List<Long> counts = new ArrayList<>(acceptors.size());
+        for (Acceptor acceptor : acceptors) {
+            counts.add(acceptor.accepted.sum());
+        }
+        return Collections.unmodifiableList(counts);
+    }
+
+    private void reportStats() {
+        long[] previous = new long[acceptors.size()];
+        while (open) {
+            try {
+                Thread.sleep(statsIntervalSeconds * 1000L);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            StringBuilder report = new StringBuilder();
+            long intervalTotal = 0;
+            for (int i = 0; i < acceptors.size(); i++) {
+                long total = acceptors.get(i).accepted.sum();
+                long delta = total - previous[i];
+                previous[i] = total;
+                intervalTotal += delta;
+                report.append(acceptors.get(i).name).append('=')
+                      .append(String.format("%.1f/s", (double) delta / statsIntervalSeconds)).append(' ');
+            }
+            if (intervalTotal > 0) {
+                log.info("Accept rates over last {}s: {} ({}) ({})", statsIntervalSeconds, report.toString().trim(), admissionController, cpuOffloader);
+            }
+        }
+    }
+
+    private static void pauseAfterFailure() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean supportsReusePort() {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private final class Acceptor implements Runnable {
+        private final String name;
+        private final ServerSocketChannel listener;
+        private final LongAdder accepted = new LongAdder();
+
+        private Acceptor(String name, ServerSocketChannel listener) {
+            this.name = name;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            while (open && listener.isOpen()) {
+                SocketChannel channel;
+                try {
+                    channel = listener.accept();
+                } catch (IOException e) {
+                    if (open) {
+                        // e.g. too many open files: keep accepting, the condition is usually transient
+                        log.error("{} failed to accept connection: {}", name, e.getMessage());
+                        pauseAfterFailure();
+                        continue;
+                    }
+                    return;
+                }
+                accepted.increment();
+                SocketAddress remoteAddress = channel.socket().getRemoteSocketAddress();
+                log.debug("{} accepted connection from {}", name, remoteAddress);
+
+                AdmissionController.Permit permit = admissionController.tryAdmit(remoteAddress);
+                if (permit == null) {
+                    log.debug("Connection from {} rejected by admission control", remoteAddress);
+                    admissionController.reject(channel);
+                    continue;
+                }
+
+                socketTuning.applyToAccepted(channel);
+                try {
+                    consumer.onAccepted(channel, permit);
+                } catch (IOException e) {
+                    log.error("Could not hand off connection: {}", e.getMessage());
+                    permit.release();
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {}
+                }
+            }
+        }
+    }
+}
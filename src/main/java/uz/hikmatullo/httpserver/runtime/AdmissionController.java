@@ -0,0 +1,148 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides in the accept loop whether a new connection may be served.
+ * - a global cap on concurrently open connections
+ * - a cap per client IP
+ * Rejected connections get a pre-encoded 503 with Retry-After and are closed right away,
+ * without ever reaching a connection handler or a thread.
+ * A value of 0 disables the corresponding limit.
+ */
+public class AdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final int maxConnections;
+    private final int maxConnectionsPerIp;
+    private final byte[] serviceUnavailable;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final ConcurrentMap<InetAddress, Integer> perIp = new ConcurrentHashMap<>();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedGlobal = new LongAdder();
+    private final LongAdder rejectedPerIp = new LongAdder();
+
+    public AdmissionController(int maxConnections, int maxConnectionsPerIp, int retryAfterSeconds) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        this.serviceUnavailable = encodeServiceUnavailable(retryAfterSeconds);
+    }
+
+    /**
+     * @return a permit that must be released when the connection closes, or null if the connection is rejected
+     */
+    public Permit tryAdmit(SocketAddress remoteAddress) {
+        int current = active.incrementAndGet();
+        if (maxConnections > 0 && current > maxConnections) {
+            active.decrementAndGet();
+            rejectedGlobal.increment();
+            return null;
+        }
+
+        InetAddress ip = maxConnectionsPerIp > 0 && remoteAddress instanceof InetSocketAddress inet ? inet.getAddress() : null;
+        if (ip != null) {
+            // merge/computeIfPresent are atomic per key, so the count and the entry removal cannot race
+            if (perIp.merge(ip, 1, Integer::sum) > maxConnectionsPerIp) {
+                releaseIp(ip);
+                active.decrementAndGet();
+                rejectedPerIp.increment();
+                return null;
+            }
+        }
+
+        admitted.increment();
+        return new Permit(ip);
+    }
+
+    /**
+     * Writes the pre-encoded 503 and closes the channel. The response is tiny and the socket is fresh,
+     * so the write does not block the accept loop in practice.
+     */
+    public void reject(SocketChannel channel) {
+        try {
+            channel.write(ByteBuffer.wrap(serviceUnavailable));
+            channel.shutdownOutput();
+        } catch (IOException e) {
+            log.debug("Could not send 503 to rejected connection: {}", e.getMessage());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private void releaseIp(InetAddress ip) {
+        perIp.computeIfPresent(ip, (k, count) -> count <= 1 ? null : count - 1);
+    }
+
+    public int getActiveConnections() {
+        return active.get();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getRejectedGlobalCount() {
+        return rejectedGlobal.sum();
+    }
+
+    public long getRejectedPerIpCount() {
+        return rejectedPerIp.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + getActiveConnections() +
+                " admitted=" + getAdmittedCount() +
+                " rejectedGlobal=" + getRejectedGlobalCount() +
+                " rejectedPerIp=" + getRejectedPerIpCount();
+    }
+
+    private static byte[] encodeServiceUnavailable(int retryAfterSeconds) {
+        HttpStatusCode status = HttpStatusCode.SERVICE_UNAVAILABLE;
+        String response = "HTTP/1.1 " + status.getCode() + " " + status.getReasonPhrase() + "\r\n" +
+                "Retry-After: " + Math.max(1, retryAfterSeconds) + "\r\n" +
+                "Content-Length: 0\r\n" +
+                "Connection: close\r\n" +
+                "\r\n";
+        return response.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Slot held by one admitted connection. Releasing is idempotent, so every close path can call it.
+     */
+    public final class Permit {
+        private final InetAddress ip;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(InetAddress ip) {
+            this.ip = ip;
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) return;
+            if (ip != null) {
+                releaseIp(ip);
+            }
+            active.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Classic transport: blocking accept, every connection runs {@link HttpConnectionHandler}
+ * as one task on the http executor (a virtual thread by default).
+ */
+public class BlockingTransport implements ServerTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingTransport.class);
+
+    private final AcceptorGroup acceptorGroup;
+    private final ServerContext context;
+
+    public BlockingTransport(ServerContext context) throws IOException {
+        this.acceptorGroup = new AcceptorGroup(context, this::handle);
+        this.context = context;
+    }
+
+    @Override
+    public void serve() {
+        acceptorGroup.serve();
+    }
+
+    private void handle(SocketChannel channel, AdmissionController.Permit permit) {
+        Socket socket = channel.socket();
+        var workerThread = new HttpConnectionHandler(socket, context, permit);
+        try {
+            ExecutorsHolder.httpExecutor().execute(workerThread);
+        } catch (RejectedExecutionException rex) {
+            log.warn("Server is overloaded - rejecting connection from {}", socket.getRemoteSocketAddress());
+            permit.release();
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return acceptorGroup.isOpen();
+    }
+
+    @Override
+    public void stopAccepting() {
+        acceptorGroup.close();
+    }
+
+    @Override
+    public void close() {
+        stopAccepting();
+        // connection threads end once their socket is closed
+        context.getDrainCoordinator().forceCloseAll();
+    }
+}
@@ -0,0 +1,147 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.core.HttpErrorResponses;
+import uz.hikmatullo.httpserver.core.handler.RequestHandler;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs CPU-bound handlers ({@link RequestHandler#isCpuBound(HttpRequest)}) on the cpu executor,
+ * so long computations do not occupy the carriers that drive connection I/O.
+ * The connection thread just waits for the result (a virtual thread unmounts while waiting).
+ * At most {@code maxPending} requests may be queued or running; beyond that the request is
+ * answered with 503 right away instead of growing the queue.
+ */
+public class CpuOffloader {
+
+    private static final Logger log = LoggerFactory.getLogger(CpuOffloader.class);
+
+    private final Semaphore pending;
+    private final int retryAfterSeconds;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param maxPending queued + running offloaded requests, 0 for no limit
+     */
+    public CpuOffloader(int maxPending, int retryAfterSeconds) {
+        this.pending = maxPending > 0 ? new Semaphore(maxPending) : null;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    /**
+     * Calls the handler directly, or on the cpu executor if it declares the request CPU-bound.
+     */
+    public HttpResponse handle(RequestHandler handler, HttpRequest request) {
+        if (!handler.isCpuBound(request)) {
+            return handler.handle(request);
+        }
+
+        if (pending != null && !pending.tryAcquire()) {
+            rejected.increment();
+            return serviceUnavailable();
+        }
+
+        long enqueuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        Future<HttpResponse> future;
+        try {
+            future = ExecutorsHolder.cpuExecutor().submit(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                queued.decrementAndGet();
+                running.incrementAndGet();
+                totalWaitNanos.add(waited);
+                maxWaitNanos.accumulate(waited);
+                try {
+                    return handler.handle(request);
+                } finally {
+                    running.decrementAndGet();
+                    completed.increment();
+                    if (pending != null) pending.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            if (pending != null) pending.release();
+            rejected.increment();
+            return serviceUnavailable();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // not cancelled: the task still owns its pending slot and releases it when done
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for CPU-bound handler", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private HttpResponse serviceUnavailable() {
+        log.debug("CPU executor saturated, rejecting request");
+        HttpResponse response = HttpErrorResponses.create(HttpStatusCode.SERVICE_UNAVAILABLE, "Server is busy, try again later");
+        response.addHeader(HttpHeader.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return response;
+    }
+
+    /**
+     * Requests waiting for a cpu thread.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getRunning() {
+        return running.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Average time between submission and start on a cpu thread, over all started tasks.
+     */
+    public double getAverageWaitMillis() {
+        long started = completed.sum() + running.get();
+        return started == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / started;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "cpuQueued=" + getQueueDepth() +
+                " cpuRunning=" + getRunning() +
+                " cpuCompleted=" + getCompletedCount() +
+                " cpuRejected=" + getRejectedCount() +
+                String.format(" cpuWaitAvg=%.2fms cpuWaitMax=%.2fms", getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
@@ -0,0 +1,171 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks open HTTP connections and in-flight requests so that shutdown can drain instead of cutting off responses.
+ * Drain: once {@link #beginDrain()} is called, responses go out with Connection: close, idle connections are
+ * closed and connections with a request in progress close themselves after their response.
+ * {@link #awaitDrained(long)} waits for that up to a deadline and force-closes what is left.
+ */
+public final class DrainCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(DrainCoordinator.class);
+
+    private static final long POLL_INTERVAL_MS = 50;
+
+    /**
+     * An open HTTP connection as seen by the drain.
+     */
+    public interface Drainable {
+        /**
+         * Closes the connection if it is waiting for the next request. May happen asynchronously.
+         */
+        void closeIfIdle();
+
+        /**
+         * Closes the connection regardless of its state.
+         */
+        void forceClose();
+    }
+
+    private final Set<Drainable> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean draining;
+
+    public void register(Drainable connection) {
+        connections.add(connection);
+        if (draining) {
+            connection.closeIfIdle();
+        }
+    }
+
+    public void unregister(Drainable connection) {
+        connections.remove(connection);
+    }
+
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @return true once shutdown started: connections must not be kept alive
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public int getInFlightRequests() {
+        return inFlight.get();
+    }
+
+    public int getOpenConnections() {
+        return connections.size();
+    }
+
+    public void beginDrain() {
+        draining = true;
+        log.info("Draining {} connections, {} requests in flight", connections.size(), inFlight.get());
+        closeIdle();
+    }
+
+    /**
+     * Waits until every connection closed itself or the timeout passed, then force-closes the rest.
+     * @return what had to be cut off
+     */
+    public DrainReport awaitDrained(long timeoutMillis) {
+        long start = System.currentTimeMillis();
+        long deadline = start + timeoutMillis;
+        while (!connections.isEmpty() && System.currentTimeMillis() < deadline) {
+            // a connection may have gone idle after the previous pass (keep-alive decided just before the drain)
+            closeIdle();
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        int requestsCutOff = inFlight.get();
+        int connectionsCutOff = forceCloseAll();
+        return new DrainReport(System.currentTimeMillis() - start, requestsCutOff, connectionsCutOff);
+    }
+
+    /**
+     * Force-closes every registered connection, e.g. when a transport is closed without a drain.
+     * @return how many there were
+     */
+    public int forceCloseAll() {
+        List<Drainable> open = new ArrayList<>(connections);
+        for (Drainable connection : open) {
+            connection.forceClose();
+        }
+        return open.size();
+    }
+
+    private void closeIdle() {
+        for (Drainable connection : connections) {
+            try {
+                connection.closeIfIdle();
+            } catch (Exception e) {
+                log.debug("Could not close idle connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Outcome of a drain.
+     */
+    public static final class DrainReport {
+        private final long elapsedMillis;
+        private final int requestsCutOff;
+        private final int connectionsCutOff;
+        private int webSocketSessionsCutOff;
+
+        DrainReport(long elapsedMillis, int requestsCutOff, int connectionsCutOff) {
+            this.elapsedMillis = elapsedMillis;
+            this.requestsCutOff = requestsCutOff;
+            this.connectionsCutOff = connectionsCutOff;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public int getRequestsCutOff() {
+            return requestsCutOff;
+        }
+
+        public int getConnectionsCutOff() {
+            return connectionsCutOff;
+        }
+
+        public int getWebSocketSessionsCutOff() {
+            return webSocketSessionsCutOff;
+        }
+
+        void setWebSocketSessionsCutOff(int webSocketSessionsCutOff) {
+            this.webSocketSessionsCutOff = webSocketSessionsCutOff;
+        }
+
+        @Override
+        public String toString() {
+            return "elapsed=" + elapsedMillis + "ms" +
+                    " requestsCutOff=" + requestsCutOff +
+                    " connectionsCutOff=" + connectionsCutOff +
+                    " webSocketSessionsCutOff=" + webSocketSessionsCutOff;
+        }
+    }
+}
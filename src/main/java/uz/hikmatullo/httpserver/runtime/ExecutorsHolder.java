@@ -1,52 +1,141 @@
 package uz.hikmatullo.httpserver.runtime;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.config.Configuration;
+import uz.hikmatullo.httpserver.config.ExecutorType;
+
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 
 /**
- * Central place for executors used by the server.
- * - VIRTUAL_EXECUTOR: virtual-thread-per-task executor (Java 21)
- * - CPU_EXECUTOR: fixed platform-thread pool for CPU-bound jobs
+ * Central place for executors used by the server. Each kind of work gets its own executor whose
+ * execution model is chosen in http.json (see {@link ExecutorType}):
+ * - http: connection handlers (blocking transport) and request processing (NIO transport)
+ * - webSocket: WebSocket sessions
+ * - cpu: CPU-bound jobs
+ * Without {@link #configure(Configuration)} the defaults are virtual threads for http/webSocket
+ * and a platform pool sized to the CPUs for cpu. After {@link #shutdownAll()} the getters throw
+ * {@link RejectedExecutionException} instead of starting new executors, until configured again.
  */
 public final class ExecutorsHolder {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorsHolder.class);
+
+    private static final String PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+
+    // volatile: read on every dispatch without taking the lock
+    private static volatile ExecutorService httpExecutor;
+    private static volatile ExecutorService webSocketExecutor;
+    private static volatile ExecutorService cpuExecutor;
+    // set by shutdownAll, cleared by configure; only touched under the class lock
+    private static boolean closed;
+
     private ExecutorsHolder() {
     }
 
+    /**
+     * Creates the executors from the configuration. Must run before the first virtual thread is started,
+     * otherwise the carrier parallelism can no longer be changed (the JDK reads it once).
+     */
+    public static synchronized void configure(Configuration configuration) {
+        if (configuration.getVirtualThreadParallelism() > 0) {
+            if (System.getProperty(PARALLELISM_PROPERTY) == null) {
+                System.setProperty(PARALLELISM_PROPERTY, String.valueOf(configuration.getVirtualThreadParallelism()));
+            } else {
+                log.warn("{} is already set on the command line, ignoring virtualThreadParallelism", PARALLELISM_PROPERTY);
+            }
+        }
 
-    public static final ExecutorService VIRTUAL_EXECUTOR =
-            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory());
-
+        shutdownAll();
+        closed = false;
+        httpExecutor = create("http", configuration.getHttpExecutor(), configuration.getHttpExecutorThreads());
+        webSocketExecutor = create("ws", configuration.getWebSocketExecutor(), configuration.getWebSocketExecutorThreads());
+        cpuExecutor = create("cpu", configuration.getCpuExecutor(), configuration.getCpuExecutorThreads());
+        log.info("Executors: http={} websocket={} cpu={}",
+                configuration.getHttpExecutor(), configuration.getWebSocketExecutor(), configuration.getCpuExecutor());
+    }
 
-    public static final ExecutorService CPU_EXECUTOR =
-            Executors.newFixedThreadPool(
-                    Math.max(2, Runtime.getRuntime().availableProcessors())
-            );
+    public static ExecutorService httpExecutor() {
+        ExecutorService executor = httpExecutor;
+        if (executor != null) return executor;
+        synchronized (ExecutorsHolder.class) {
+            checkNotClosed();
+            if (httpExecutor == null) {
+                httpExecutor = create("http", ExecutorType.VIRTUAL, 0);
+            }
+            return httpExecutor;
+        }
+    }
 
+    public static ExecutorService webSocketExecutor() {
+        ExecutorService executor = webSocketExecutor;
+        if (executor != null) return executor;
+        synchronized (ExecutorsHolder.class) {
+            checkNotClosed();
+            if (webSocketExecutor == null) {
+                webSocketExecutor = create("ws", ExecutorType.VIRTUAL, 0);
+            }
+            return webSocketExecutor;
+        }
+    }
 
-    public static void shutdownAll() {
-// Shutdown virtual executor first (it will interrupt none of the carrier threads but will stop accepting tasks)
-        try {
-            VIRTUAL_EXECUTOR.shutdown();
-            if (!VIRTUAL_EXECUTOR.awaitTermination(5, TimeUnit.SECONDS)) {
-                VIRTUAL_EXECUTOR.shutdownNow();
+    public static ExecutorService cpuExecutor() {
+        ExecutorService executor = cpuExecutor;
+        if (executor != null) return executor;
+        synchronized (ExecutorsHolder.class) {
+            checkNotClosed();
+            if (cpuExecutor == null) {
+                cpuExecutor = create("cpu", ExecutorType.PLATFORM_POOL, 0);
             }
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-            VIRTUAL_EXECUTOR.shutdownNow();
+            return cpuExecutor;
         }
+    }
 
+    private static void checkNotClosed() {
+        if (closed) throw new RejectedExecutionException("Executors are shut down");
+    }
+
+    private static ExecutorService create(String name, ExecutorType type, int threads) {
+        int size = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        return switch (type) {
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-virtual-", 0).factory());
+            case PLATFORM_POOL -> Executors.newFixedThreadPool(size, Thread.ofPlatform().name(name + "-pool-", 0).daemon().factory());
+            // async mode: FIFO for submitted tasks, which suits independent request tasks better than LIFO
+            case FORK_JOIN -> new ForkJoinPool(size, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName(name + "-fj-" + thread.getPoolIndex());
+                return thread;
+            }, null, true);
+        };
+    }
+
+
+    public static synchronized void shutdownAll() {
+        closed = true;
+        // HTTP first: its tasks may still hand work to the others
+        httpExecutor = shutdown(httpExecutor);
+        webSocketExecutor = shutdown(webSocketExecutor);
+        cpuExecutor = shutdown(cpuExecutor);
+    }
 
+    private static ExecutorService shutdown(ExecutorService executor) {
+        if (executor == null) return null;
         try {
-            CPU_EXECUTOR.shutdown();
-            if (!CPU_EXECUTOR.awaitTermination(5, TimeUnit.SECONDS)) {
-                CPU_EXECUTOR.shutdownNow();
+            executor.shutdown();
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
             }
         } catch (InterruptedException ignored) {
             Thread.currentThread().interrupt();
-            CPU_EXECUTOR.shutdownNow();
+            executor.shutdownNow();
         }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -2,86 +2,135 @@ package uz.hikmatullo.httpserver.runtime;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.core.HttpErrorResponses;
 import uz.hikmatullo.httpserver.core.HttpHeaderDefaults;
 import uz.hikmatullo.httpserver.core.HttpKeepAliveManager;
-import uz.hikmatullo.httpserver.core.handler.RequestHandler;
+import uz.hikmatullo.httpserver.core.io.ConnectionInputBuffer;
+import uz.hikmatullo.httpserver.core.io.ConnectionOutputStream;
 import uz.hikmatullo.httpserver.core.model.HttpRequest;
 import uz.hikmatullo.httpserver.core.model.HttpResponse;
 import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
 import uz.hikmatullo.httpserver.core.parser.HttpParser;
 import uz.hikmatullo.httpserver.exception.HttpParsingException;
 import uz.hikmatullo.httpserver.websocket.WebSocketSession;
-import uz.hikmatullo.httpserver.websocket.WebSocketSessionManager;
 import uz.hikmatullo.httpserver.websocket.WebSocketUtils;
-import uz.hikmatullo.httpserver.websocket.listener.WebSocketListener;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
-import java.net.SocketTimeoutException;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 public class HttpConnectionHandler implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(HttpConnectionHandler.class);
 
-    private static final ExecutorService WS_EXECUTOR = Executors.newCachedThreadPool();
     private final Socket socket;
-    private final RequestHandler requestHandler;
-    private final WebSocketListener webSocketListener;
-    private final WebSocketSessionManager webSocketSessionManager;
-    public HttpConnectionHandler(Socket socket, RequestHandler requestHandler, WebSocketListener webSocketListener, WebSocketSessionManager webSocketSessionManager) {
+    private final ServerContext context;
+    private final AdmissionController.Permit permit;
+    private final HttpKeepAliveManager keepAliveManager;
+    private final long keepAliveTimeoutMillis;
+    // one parser per connection, reused for every keep-alive request; it recycles their header storage
+    private final HttpParser parser;
+    // an unread streamed body up to this size is skipped, a longer one closes the connection
+    private final long bodyDrainMaxBytes;
+    // the requests of one pipelined batch and their responses; cleared for the next batch
+    private final List<HttpRequest> batch = new ArrayList<>();
+    private final List<HttpResponse> responses = new ArrayList<>();
+
+    public HttpConnectionHandler(Socket socket, ServerContext context, AdmissionController.Permit permit) {
+        this(socket, context, permit, new HttpKeepAliveManager(), HttpParser.create(context.getConfiguration()));
+    }
+
+    // Used when a parked keep-alive connection becomes readable again: the keep-alive state and the parser carry over.
+    private HttpConnectionHandler(Socket socket, ServerContext context, AdmissionController.Permit permit,
+                                  HttpKeepAliveManager keepAliveManager, HttpParser parser) {
         this.socket = socket;
-        this.requestHandler = requestHandler;
-        this.webSocketListener = webSocketListener;
-        this.webSocketSessionManager = webSocketSessionManager;
+        this.context = context;
+        this.permit = permit;
+        this.keepAliveManager = keepAliveManager;
+        this.keepAliveTimeoutMillis = context.getConfiguration().getKeepAliveTimeoutMillis();
+        this.parser = parser;
+        this.bodyDrainMaxBytes = context.getConfiguration().getRequestBodyDrainMaxBytes();
     }
 
     @Override
     public void run() {
         log.debug("Connection handler started");
         boolean upgradedToWebSocket = false;
+        boolean parked = false;
 
-        InputStream inputStream = null;
+        ReadDeadlineInputStream inputStream = null;
+        ConnectionInputBuffer buffer = null;
         OutputStream outputStream = null;
         try {
 
-            inputStream = socket.getInputStream();
-            outputStream = socket.getOutputStream();
-
-            // Set a timeout so we don't hang forever waiting for data
-            // Set timeout to 5 seconds. this means that we wait for 5 seconds for data to be available in the input stream
-            // Data will not come immediately when socket is accepted or created, so we need to wait for it.
-            //Data may come in chunks, it means GET may come then other chunks and then other chunks for example. "GET / HT" first, then "TP/1.1\r\nHost: ..."
-            // when we read data inputStream.read(), we may wait up to 5 seconds for data to be available in the input stream each time.
-            socket.setSoTimeout(5000);
+            // No SO_TIMEOUT: waiting for the next request, reading headers and reading the body are bounded
+            // by deadlines on the server timer, which shut the input down when they expire (see ReadDeadlineInputStream).
+            inputStream = new ReadDeadlineInputStream(socket, context.getTimer(), keepAliveTimeoutMillis,
+                    context.getConfiguration().getHeaderReadTimeoutMillis());
+            // survives across requests: bytes of the next (pipelined) request stay buffered
+            buffer = new ConnectionInputBuffer(inputStream);
+            // responses of one pipelined batch are collected here and flushed once
+            // file bodies go from the page cache straight to the socket channel
+            outputStream = new ConnectionOutputStream(socket.getOutputStream(), socket.getChannel());
+            context.getDrainCoordinator().register(inputStream);
 
-            HttpKeepAliveManager keepAliveManager = new HttpKeepAliveManager();
-            boolean keepAlive;
+            boolean keepAlive = false;
 
             do {
-                HttpParser parser = new HttpParser();
-                HttpRequest request = parser.parse(inputStream);
+                inputStream.awaitRequest();
+                HttpRequest request = parser.parse(buffer, inputStream::headersRead);
+                // a streamed body is read by the handler: the body deadline stays armed until the response is out
+                if (request == null || !request.isBodyStreamed()) inputStream.requestRead();
                 if (request == null) {
                     log.debug("Request is null");
                     break;
                 }
 
-                // --- Detect WebSocket upgrade BEFORE normal HTTP handling ---
-                if (WebSocketUtils.isWebSocketUpgrade(request)) {
+                // --- Pipelining: take the requests that are already buffered behind this one ---
+                batch.clear();
+                batch.add(request);
+                HttpParsingException pipelineError = null;
+                try {
+                    readPipelinedRequests(batch, buffer, inputStream);
+                } catch (HttpParsingException e) {
+                    // answer the requests before the broken one first, in order
+                    pipelineError = e;
+                }
 
-                    //if this is websocket connection, we do not put time out. because data may come any time.
-                    socket.setSoTimeout(0);
+                HttpRequest last = batch.get(batch.size() - 1);
+                HttpRequest upgrade = WebSocketUtils.isWebSocketUpgrade(last) ? batch.remove(batch.size() - 1) : null;
 
-                    // perform handshake and transfer ownership
-                    handleWebSocketUpgrade(request, outputStream);
+                if (!batch.isEmpty()) {
+                    keepAlive = respond(batch, outputStream);
+                    inputStream.requestRead();
+                    log.debug("Batch of {} request(s) processed. keepAlive={}", batch.size(), keepAlive);
+                }
+                if (pipelineError != null) {
+                    throw pipelineError;
+                }
 
+                // --- Detect WebSocket upgrade BEFORE normal HTTP handling ---
+                if (upgrade != null && (batch.isEmpty() || keepAlive)) {
 
-                    WebSocketSession session = new WebSocketSession(socket, webSocketListener, webSocketSessionManager);
-                    ExecutorsHolder.VIRTUAL_EXECUTOR.submit(session);
+                    // perform handshake and transfer ownership
+                    handleWebSocketUpgrade(upgrade, outputStream);
+
+                    // the session keeps reading through the buffer: frames sent right after the handshake may already be in it
+                    WebSocketSession session = new WebSocketSession(socket, buffer, context.getWebSocketListener(), context.getWebSocketSessionManager());
+                    try {
+                        ExecutorsHolder.webSocketExecutor().execute(() -> runWebSocketSession(session, context, permit));
+                    } catch (RejectedExecutionException e) {
+                        // shutting down: the connection is closed below, no error response on an upgraded connection
+                        log.debug("Server is shutting down, closing connection instead of upgrading it.");
+                        return;
+                    }
 
                     // IMPORTANT: after upgrade we must NOT close socket or streams here.
                     // Hand-off is complete; stop HTTP loop and return.
@@ -89,40 +138,243 @@ public class HttpConnectionHandler implements Runnable {
                     return;
                 }
 
-                // --- Handle request ---
-                HttpResponse response = requestHandler.handle(request);
+                // --- Park idle keep-alive connection instead of blocking this thread ---
+                if (keepAlive && canPark(buffer)) {
+                    park();
+                    parked = true;
+                    return;
+                }
 
-                // --- Handle Keep-Alive ---
-                keepAlive = keepAliveManager.shouldKeepAlive(request);
+            } while (keepAlive && !socket.isClosed());
+
+        } catch (HttpParsingException e) {
+            if (isReadTimeout(inputStream)) {
+                log.debug("Request read timeout reached, closing connection.");
+                sendErrorResponse(HttpStatusCode.REQUEST_TIMEOUT, "Request read timeout", outputStream);
+            } else {
+                sendErrorResponse(e.getErrorCode(), e.getMessage(), outputStream);
+            }
+        } catch (IOException e) {
+            log.error("I/O error happened: {}", e.getMessage());
+            sendErrorResponse(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage(), outputStream);
+        } catch (Exception e) {
+            if (isReadTimeout(inputStream)) {
+                log.debug("Request read timeout reached, closing connection.");
+            } else {
+                log.error("Unexpected error: {}", e.getMessage());
+                sendErrorResponse(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage(), outputStream);
+            }
+        } finally {
+            if (inputStream != null) {
+                inputStream.requestRead();
+                // parked and upgraded connections are no longer HTTP connections in progress
+                context.getDrainCoordinator().unregister(inputStream);
+            }
+            if (!upgradedToWebSocket && !parked) {
+                closeConnection(inputStream, outputStream);
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * Parses the requests whose heads are already in the buffer, so they can be answered together.
+     * Stops at the batch limit, after a request that ends the connection (Connection: close, HTTP/1.0,
+     * the last one the connection may serve), once the server drains, after a streamed body (the next
+     * request starts behind it) and after a WebSocket upgrade (what follows an upgrade is no longer HTTP).
+     * So every request read here is answered.
+     */
+    private void readPipelinedRequests(List<HttpRequest> batch, ConnectionInputBuffer buffer, ReadDeadlineInputStream inputStream) {
+        int maxBatch = Math.max(1, context.getConfiguration().getPipelineMaxBatch());
+        HttpRequest last = batch.get(batch.size() - 1);
+        while (batch.size() < maxBatch
+                && keepAliveManager.canKeepAlive(last, batch.size() - 1)
+                && !context.getDrainCoordinator().isDraining()
+                && !WebSocketUtils.isWebSocketUpgrade(last)
+                && !last.isBodyStreamed()
+                && buffer.hasCompleteHead()) {
+            // the head is buffered, but a body may still be on its way: keep the body deadline armed
+            last = parser.parse(buffer, inputStream::headersRead);
+            if (!last.isBodyStreamed()) inputStream.requestRead();
+            batch.add(last);
+        }
+    }
+
+    /**
+     * Writes the responses of a batch in request order with a single flush. Handlers run one after another,
+     * each right before its response is written, so a request whose response cannot be sent (the write failed)
+     * is not handled either. Only a batch of safe requests may have its handlers run concurrently up front.
+     *
+     * @return whether the connection stays open after the batch
+     */
+    private boolean respond(List<HttpRequest> batch, OutputStream outputStream) throws IOException {
+        DrainCoordinator drain = context.getDrainCoordinator();
+        for (int i = 0; i < batch.size(); i++) drain.requestStarted();
+        try {
+            List<HttpResponse> handled = isConcurrent(batch) ? handleConcurrently(batch) : null;
+
+            boolean keepAlive = false;
+            for (int i = 0; i < batch.size(); i++) {
+                HttpResponse response = handled != null ? handled.get(i) : handle(batch.get(i));
+
+                // --- Handle Keep-Alive --- (a drain that started meanwhile closes after the requests already read)
+                boolean last = i == batch.size() - 1;
+                keepAlive = keepAliveManager.shouldKeepAlive(batch.get(i)) && !(last && drain.isDraining());
+                // what the handler left of a streamed body has to go before the next request can be read
+                if (keepAlive && !drainBody(batch.get(i))) {
+                    keepAlive = false;
+                }
+
+                if (context.getResponseCompressor() != null) {
+                    context.getResponseCompressor().apply(batch.get(i), response);
+                }
+                if (HttpKeepAliveManager.adaptStreamingBody(batch.get(i), response)) {
+                    keepAlive = false;
+                }
 
                 //Setting default headers and connection header based on keepAlive
-                HttpHeaderDefaults.applyDefaultResponseHeaders(response, keepAlive);
+                HttpHeaderDefaults.applyDefaultResponseHeaders(response, keepAlive, keepAliveTimeoutMillis);
 
                 // --- Send Response ---
-                response.write(outputStream);
+                try {
+                    response.writeTo(outputStream);
+                } catch (IOException | RuntimeException e) {
+                    // the head may already be out: an error response would be read as body, only closing is left
+                    log.warn("Could not complete the response: {}", e.getMessage());
+                    keepAlive = false;
+                    break;
+                }
+                if (!keepAlive) break;
+            }
+            outputStream.flush();
+            return keepAlive;
+        } finally {
+            for (HttpRequest request : batch) {
+                request.deleteTemporaryFiles();
+                drain.requestFinished();
+                // answered (or never will be): its header storage serves the next requests
+                parser.recycle(request);
+            }
+        }
+    }
 
-                log.debug("Request processed. keepAlive={}", keepAlive);
+    private boolean drainBody(HttpRequest request) {
+        try {
+            return request.drainBody(bodyDrainMaxBytes);
+        } catch (IOException | HttpParsingException e) {
+            log.debug("Could not drain the request body: {}", e.getMessage());
+            return false;
+        }
+    }
 
-            } while (keepAlive && !socket.isClosed());
+    private HttpResponse handle(HttpRequest request) {
+        return context.getCpuOffloader().handle(context.getRequestHandler(), request);
+    }
 
-        } catch (HttpParsingException e) {
-            sendErrorResponse(e.getErrorCode(), e.getMessage(), outputStream);
+    /**
+     * Handlers may run concurrently when enabled and every request of the batch is safe (GET/HEAD/OPTIONS),
+     * so that their order cannot matter.
+     */
+    private boolean isConcurrent(List<HttpRequest> batch) {
+        return batch.size() > 1
+                && context.getConfiguration().isPipelineConcurrentSafeRequests()
+                && batch.stream().allMatch(request -> request.getMethod().isSafe());
+    }
+
+    private List<HttpResponse> handleConcurrently(List<HttpRequest> batch) {
+        responses.clear();
+        // the first request runs here, the others on the http executor; a task still queued when its turn comes
+        // is run here too, so that a bounded pool busy with connections cannot leave this one waiting on itself
+        List<FutureTask<HttpResponse>> tasks = new ArrayList<>(batch.size() - 1);
+        for (HttpRequest request : batch.subList(1, batch.size())) {
+            FutureTask<HttpResponse> task = new FutureTask<>(() -> handle(request));
+            tasks.add(task);
+            try {
+                ExecutorsHolder.httpExecutor().execute(task);
+            } catch (RejectedExecutionException e) {
+                // runs here when collected
+            }
         }
-        catch (SocketTimeoutException e) {
-            log.debug("Keep-alive timeout reached, closing connection.");
-        }catch (IOException e) {
-            log.error("I/O error happened: {}", e.getMessage());
-            sendErrorResponse(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage(), outputStream);
-        } catch (Exception e) {
-            log.error("Unexpected error: {}", e.getMessage());
-            sendErrorResponse(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage(), outputStream);
+        RuntimeException failure = null;
+        try {
+            responses.add(handle(batch.get(0)));
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        // every handler is waited for, even after a failure: the requests are recycled once this returns
+        for (FutureTask<HttpResponse> task : tasks) {
+            task.run();
+            try {
+                responses.add(task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for pipelined request", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) throw failure;
+        return responses;
+    }
+
+    /**
+     * Runs the WebSocket session of an upgraded connection on the calling thread, with the idle timeout armed.
+     * The session owns the connection from here on, so it also gives back the admission permit.
+     */
+    public static void runWebSocketSession(WebSocketSession session, ServerContext context, AdmissionController.Permit permit) {
+        long idleTimeoutMillis = context.getConfiguration().getWebSocketIdleTimeoutMillis();
+        IdleTimeout idleTimeout = null;
+        if (idleTimeoutMillis > 0) {
+            // sending the close frame may block, so it does not run on the timer thread
+            idleTimeout = new IdleTimeout(context.getTimer(), idleTimeoutMillis, session::getLastActivityMillis,
+                    () -> Thread.ofVirtual().name("ws-idle-close").start(() -> closeIdleSession(session)));
+            idleTimeout.start();
+        }
+        try {
+            session.run();
         } finally {
-            if (!upgradedToWebSocket)
-                closeConnection(inputStream, outputStream);
+            if (idleTimeout != null) {
+                idleTimeout.cancel();
+            }
+            permit.release();
         }
     }
 
+    private static void closeIdleSession(WebSocketSession session) {
+        log.debug("WebSocket idle timeout reached, closing session {}", session.getId());
+        try {
+            session.sendClose(1001, "Idle timeout");
+        } catch (IOException e) {
+            log.debug("Could not send close frame to idle session: {}", e.getMessage());
+        }
+    }
 
+    private static boolean isReadTimeout(ReadDeadlineInputStream inputStream) {
+        return inputStream != null && inputStream.getExpiredIn() != null;
+    }
+
+    /**
+     * Parking only pays off when the next request has not arrived yet. Bytes already sitting
+     * in the socket or in the connection buffer are served right away on this thread.
+     * The buffer itself is not kept while parked; the resumed handler starts with a fresh one.
+     */
+    private boolean canPark(ConnectionInputBuffer buffer) throws IOException {
+        return context.getIdleConnectionParker() != null
+                && socket.getChannel() != null
+                && buffer.available() == 0;
+    }
+
+    private void park() {
+        SocketChannel channel = socket.getChannel();
+        HttpConnectionHandler resumed = new HttpConnectionHandler(socket, context, permit, keepAliveManager, parser);
+        context.getIdleConnectionParker().park(channel, resumed, () -> {
+            closeConnection(null, null);
+            permit.release();
+        });
+        log.debug("Connection parked");
+    }
 
     private void closeConnection(InputStream inputStream, OutputStream outputStream) {
         if (socket != null) {
@@ -152,14 +404,7 @@ public class HttpConnectionHandler implements Runnable {
 
     private void sendErrorResponse(HttpStatusCode status, String message, OutputStream outputStream) {
         try {
-            byte[] bodyBytes = getError(status, message);
-            HttpResponse response = new HttpResponse(status);
-            response.addHeader("Content-Type", "text/html; charset=utf-8");
-            response.addHeader("Content-Length", String.valueOf(bodyBytes.length));
-            response.addHeader("Connection", "close");
-            HttpHeaderDefaults.applyServerInfoHeaders(response);
-            response.setBody(bodyBytes);
-
+            HttpResponse response = HttpErrorResponses.create(status, message);
             response.write(outputStream);
             System.out.println("Error message sent: " + status.getCode());
         } catch (IOException e) {
@@ -167,30 +412,14 @@ public class HttpConnectionHandler implements Runnable {
         }
     }
 
-    private byte[] getError(HttpStatusCode status, String message) {
-        String reason = status.getReasonPhrase(); // e.g. "Bad Request"
-        String body = "<html><body><h2>" + status.getCode() + " " + reason + "</h2>" +
-                "<p>" + message + "</p></body></html>";
-
-        return body.getBytes(StandardCharsets.UTF_8);
-    }
-
-
 
     private void handleWebSocketUpgrade(HttpRequest request, OutputStream outputStream) throws IOException {
-        String clientKey = request.getHeader("Sec-WebSocket-Key");
-        if (clientKey == null || clientKey.isEmpty()) {
+        HttpResponse response = WebSocketUtils.createHandshakeResponse(request);
+        if (response == null) {
             sendErrorResponse(HttpStatusCode.BAD_REQUEST, "Missing Sec-WebSocket-Key", outputStream);
             return;
         }
 
-        String accept = WebSocketUtils.computeAccept(clientKey);
-
-        HttpResponse response = new HttpResponse(HttpStatusCode.SWITCHING_PROTOCOLS);
-        response.addHeader("Upgrade", "websocket");
-        response.addHeader("Connection", "Upgrade");
-        response.addHeader("Sec-WebSocket-Accept", accept);
-
         response.write(outputStream);
         log.info("WebSocket handshake completed for remoteAddress={}", socket.getRemoteSocketAddress());
     }
@@ -2,29 +2,35 @@ package uz.hikmatullo.httpserver.runtime;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.config.Configuration;
 import uz.hikmatullo.httpserver.core.handler.RequestHandler;
+import uz.hikmatullo.httpserver.runtime.nio.NioTransport;
 import uz.hikmatullo.httpserver.websocket.WebSocketSessionManager;
 import uz.hikmatullo.httpserver.websocket.listener.WebSocketListener;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HttpServer extends Thread{
 
     private static final Logger log = LoggerFactory.getLogger(HttpServer.class);
-    private final ServerSocket serverSocket;
-    private final RequestHandler requestHandler;
-    private final WebSocketListener webSocketListener;
+    private final ServerTransport transport;
+    private final ServerContext context;
     private final WebSocketSessionManager webSocketSessionManager = new WebSocketSessionManager();
-    public HttpServer(int port, RequestHandler requestHandler, WebSocketListener webSocketListener) throws IOException {
-        serverSocket = new ServerSocket(port);
-        this.requestHandler = requestHandler;
-        this.webSocketListener = webSocketListener;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    public HttpServer(Configuration configuration, RequestHandler requestHandler, WebSocketListener webSocketListener) throws IOException {
+        // before anything starts a virtual thread: the carrier parallelism is read only once
+        ExecutorsHolder.configure(configuration);
+        this.context = new ServerContext(configuration, requestHandler, webSocketListener, webSocketSessionManager);
+        this.transport = switch (configuration.getTransport()) {
+            case BLOCKING -> new BlockingTransport(context);
+            case NIO -> new NioTransport(context);
+        };
+        log.info("Using {} transport", configuration.getTransport());
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            log.info("Shutdown signal received. Closing all WebSocket sessions...");
+            log.info("Shutdown signal received. Draining connections...");
             try {
                 close();
             } catch (Exception e) {
@@ -36,43 +42,68 @@ public class HttpServer extends Thread{
     @Override
     public void run() {
         try {
-            while(serverSocket.isBound() && !serverSocket.isClosed()) {
-                log.info("Waiting for connection...");
-                Socket socket = serverSocket.accept();
-                log.info("Client connected!");
-
-                var workerThread = new HttpConnectionHandler(socket, requestHandler, webSocketListener, webSocketSessionManager);
-                try {
-                    ExecutorsHolder.VIRTUAL_EXECUTOR.execute(workerThread);
-                } catch (RejectedExecutionException rex) {
-                    log.warn("Server is overloaded - rejecting connection from {}", socket.getRemoteSocketAddress());
-                    try {
-                        socket.close();
-                    } catch (IOException ignored) {}
-                }
-            }
+            transport.serve();
         } catch (IOException e) {
-            log.error("Error occurred when setting up socket", e);
-            throw new RuntimeException(e);
+            if (transport.isOpen()) {
+                log.error("Error occurred when setting up socket", e);
+                throw new RuntimeException(e);
+            }
+            log.debug("Transport closed");
         } finally {
             close();
         }
     }
 
+    /**
+     * Admitted/rejected connection counters, useful for tuning the admission limits.
+     */
+    public AdmissionController getAdmissionController() {
+        return context.getAdmissionController();
+    }
+
+    /**
+     * Queue depth and wait times of CPU-bound requests, useful for sizing the cpu executor.
+     */
+    public CpuOffloader getCpuOffloader() {
+        return context.getCpuOffloader();
+    }
+
+    /**
+     * Graceful shutdown:
+     * 1. stop accepting
+     * 2. drain HTTP: responses go out with Connection: close, idle connections are closed,
+     *    in-flight requests get up to drainTimeoutMillis to finish
+     * 3. meanwhile close WebSocket sessions, in parallel with each other
+     * 4. report what had to be cut off, then release transport, timer and executors
+     * Safe to call more than once (shutdown hook and serve thread both do).
+     */
     public void close() {
-        try {
-            webSocketSessionManager.closeAll();
-        } catch (Throwable t) {
-            log.error("Error during sessionManager.closeAll(): {}", t.getMessage());
+        if (!closed.compareAndSet(false, true)) return;
+
+        transport.stopAccepting();
+
+        long drainTimeoutMillis = context.getConfiguration().getDrainTimeoutMillis();
+        // WebSocket close handshakes run alongside the HTTP drain
+        CompletableFuture<Integer> webSocketsClosed = CompletableFuture.supplyAsync(
+                () -> webSocketSessionManager.closeAll(drainTimeoutMillis), task -> Thread.ofVirtual().name("ws-drain").start(task));
+
+        DrainCoordinator drain = context.getDrainCoordinator();
+        drain.beginDrain();
+        if (context.getIdleConnectionParker() != null) {
+            // parked connections are idle by definition
+            context.getIdleConnectionParker().close();
         }
+        DrainCoordinator.DrainReport report = drain.awaitDrained(drainTimeoutMillis);
 
-        if (serverSocket != null) {
-            try {
-                serverSocket.close();
-            }catch (IOException e) {
-                log.error("Could not close server socket. {}", e.getMessage());
-            }
+        try {
+            report.setWebSocketSessionsCutOff(webSocketsClosed.join());
+        } catch (Exception e) {
+            log.error("Error during sessionManager.closeAll(): {}", e.getMessage());
         }
+        log.info("Drain finished: {}", report);
+
+        transport.close();
+        context.close();
 
         ExecutorsHolder.shutdownAll();
         log.debug("HttpServer stopped");
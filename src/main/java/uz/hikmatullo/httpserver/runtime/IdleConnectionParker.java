@@ -0,0 +1,199 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds idle keep-alive connections of the blocking transport without a thread.
+ * After a response is written and nothing is buffered, the connection handler parks the channel here
+ * and its virtual thread exits. A single selector thread watches all parked channels; when one becomes
+ * readable it is switched back to blocking mode and its resume task is started on a new virtual thread.
+ * Channels that stay idle longer than the keep-alive timeout are expired (closed) by a timeout on the
+ * server timer, armed at park time and cancelled on resume.
+ */
+public final class IdleConnectionParker implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(IdleConnectionParker.class);
+
+    private final Selector selector;
+    private final Queue<Parked> pending = new ConcurrentLinkedQueue<>();
+    private final HashedWheelTimer timer;
+    private final long idleTimeoutMillis;
+    private volatile boolean running = true;
+
+    /**
+     * @param idleTimeoutMillis how long a parked connection may stay idle, 0 for no limit
+     */
+    public IdleConnectionParker(HashedWheelTimer timer, long idleTimeoutMillis) throws IOException {
+        this.selector = Selector.open();
+        this.timer = timer;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        Thread.ofPlatform().daemon().name("idle-connection-parker").start(this);
+    }
+
+    /**
+     * @param channel blocking channel with no unread request bytes buffered in user space
+     * @param resume  started on a virtual thread once the channel is readable again
+     * @param expire  called on the timer or parker thread if the channel stays idle too long or cannot be parked
+     */
+    public void park(SocketChannel channel, Runnable resume, Runnable expire) {
+        Parked parked = new Parked(channel, resume, expire);
+        if (idleTimeoutMillis > 0) {
+            parked.timeout = timer.newTimeout(() -> expireIdle(parked), idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        pending.add(parked);
+        selector.wakeup();
+        if (!running) {
+            // closed concurrently: the parker thread may already be gone
+            expirePending();
+        }
+    }
+
+    /**
+     * Number of connections currently parked (approximate).
+     */
+    public int getParkedCount() {
+        return selector.isOpen() ? selector.keys().size() : 0;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPending();
+
+                List<Parked> ready = new ArrayList<>();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    key.cancel();
+                    Parked parked = (Parked) key.attachment();
+                    // lost the race against the idle timeout: the connection is already closed
+                    if (parked.claim()) {
+                        ready.add(parked);
+                    }
+                }
+                if (!ready.isEmpty()) {
+                    // cancelled keys are deregistered on the next selection, only then can the channel go back to blocking
+                    selector.selectNow();
+                    for (Parked parked : ready) {
+                        resume(parked);
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            log.debug("Parker selector closed");
+        } catch (IOException e) {
+            log.error("Idle connection parker failed: {}", e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Stops the parker; all parked connections are expired (closed).
+     */
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void registerPending() {
+        Parked parked;
+        while ((parked = pending.poll()) != null) {
+            if (parked.done.get()) continue;
+            try {
+                parked.channel.configureBlocking(false);
+                parked.key = parked.channel.register(selector, SelectionKey.OP_READ, parked);
+            } catch (IOException e) {
+                log.debug("Could not park connection: {}", e.getMessage());
+                expire(parked);
+            }
+        }
+    }
+
+    private void resume(Parked parked) {
+        if (parked.timeout != null) {
+            parked.timeout.cancel();
+        }
+        try {
+            parked.channel.configureBlocking(true);
+            ExecutorsHolder.httpExecutor().execute(parked.resume);
+        } catch (Exception e) {
+            log.debug("Could not resume parked connection: {}", e.getMessage());
+            parked.expire.run();
+        }
+    }
+
+    // timer thread
+    private void expireIdle(Parked parked) {
+        log.debug("Keep-alive timeout reached, closing parked connection.");
+        expire(parked);
+    }
+
+    private void expire(Parked parked) {
+        if (!parked.claim()) return;
+        if (parked.timeout != null) {
+            parked.timeout.cancel();
+        }
+        SelectionKey key = parked.key;
+        if (key != null) {
+            key.cancel();
+        }
+        parked.expire.run();
+    }
+
+    private void expirePending() {
+        Parked parked;
+        while ((parked = pending.poll()) != null) {
+            expire(parked);
+        }
+    }
+
+    private void closeAll() {
+        if (selector.isOpen()) {
+            for (SelectionKey key : selector.keys()) {
+                expire((Parked) key.attachment());
+            }
+        }
+        expirePending();
+        try {
+            selector.close();
+        } catch (IOException ignored) {}
+    }
+
+    private static final class Parked {
+        private final SocketChannel channel;
+        private final Runnable resume;
+        private final Runnable expire;
+        // exactly one of resume / expire wins
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile HashedWheelTimer.Timeout timeout;
+        private volatile SelectionKey key;
+
+        private Parked(SocketChannel channel, Runnable resume, Runnable expire) {
+            this.channel = channel;
+            this.resume = resume;
+            this.expire = expire;
+        }
+
+        private boolean claim() {
+            return done.compareAndSet(false, true);
+        }
+    }
+}
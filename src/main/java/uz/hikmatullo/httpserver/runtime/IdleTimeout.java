@@ -0,0 +1,57 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Inactivity timeout on top of {@link HashedWheelTimer}.
+ * Activity only bumps a timestamp owned by the caller; nothing is rescheduled per read or write.
+ * When the timeout fires it looks at the last activity and either re-arms itself for the remaining
+ * time or, if the connection really was idle for the whole period, runs {@code onIdle}.
+ * {@code onIdle} runs on the timer thread, so it must not block. It may call {@link #start()} again
+ * if it decides the connection is busy after all.
+ */
+public final class IdleTimeout {
+
+    private final HashedWheelTimer timer;
+    private final long idleMillis;
+    private final LongSupplier lastActivityMillis;
+    private final Runnable onIdle;
+
+    private volatile HashedWheelTimer.Timeout timeout;
+    private volatile boolean cancelled;
+
+    public IdleTimeout(HashedWheelTimer timer, long idleMillis, LongSupplier lastActivityMillis, Runnable onIdle) {
+        this.timer = timer;
+        this.idleMillis = idleMillis;
+        this.lastActivityMillis = lastActivityMillis;
+        this.onIdle = onIdle;
+    }
+
+    public void start() {
+        schedule(idleMillis);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        HashedWheelTimer.Timeout current = timeout;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        if (cancelled) return;
+        timeout = timer.newTimeout(this::check, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void check() {
+        if (cancelled) return;
+        long idleFor = System.currentTimeMillis() - lastActivityMillis.getAsLong();
+        if (idleFor < idleMillis) {
+            schedule(idleMillis - idleFor);
+        } else {
+            onIdle.run();
+        }
+    }
+}
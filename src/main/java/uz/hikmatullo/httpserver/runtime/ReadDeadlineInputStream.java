@@ -0,0 +1,160 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Socket input of the blocking transport with read deadlines kept on the shared {@link HashedWheelTimer}
+ * instead of SO_TIMEOUT (which turns every blocking read into a poll + read).
+ * Phases of one request:
+ * - IDLE: waiting for the first byte, limited by the keep-alive timeout
+ * - HEADERS: request line and headers must arrive within the header read timeout (slow-header clients)
+ * - BODY: body reads may take long, but not with more than the keep-alive timeout between bytes
+ * On expiry the input side of the socket is shut down, so the blocked read simply sees EOF.
+ * The same trick lets a server drain close the connection while it waits in IDLE.
+ */
+final class ReadDeadlineInputStream extends FilterInputStream implements DrainCoordinator.Drainable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadDeadlineInputStream.class);
+
+    enum Phase { NONE, IDLE, HEADERS, BODY }
+
+    private final Socket socket;
+    private final HashedWheelTimer timer;
+    private final long keepAliveTimeoutMillis;
+    private final long headerReadTimeoutMillis;
+
+    // phase changes only on the reading thread, expiry only on the timer thread
+    private volatile Phase phase = Phase.NONE;
+    private volatile long lastReadMillis;
+    private volatile Phase expiredIn;
+    private int generation;
+    private HashedWheelTimer.Timeout deadline;
+    private IdleTimeout bodyTimeout;
+
+    ReadDeadlineInputStream(Socket socket, HashedWheelTimer timer, long keepAliveTimeoutMillis, long headerReadTimeoutMillis) throws IOException {
+        super(socket.getInputStream());
+        this.socket = socket;
+        this.timer = timer;
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+        this.headerReadTimeoutMillis = headerReadTimeoutMillis;
+    }
+
+    /**
+     * Arms the keep-alive deadline for the next request.
+     */
+    void awaitRequest() {
+        arm(Phase.IDLE, keepAliveTimeoutMillis);
+    }
+
+    /**
+     * Headers are complete: from now on only inactivity counts.
+     */
+    synchronized void headersRead() {
+        int armed = disarm();
+        phase = Phase.BODY;
+        lastReadMillis = System.currentTimeMillis();
+        if (keepAliveTimeoutMillis > 0) {
+            bodyTimeout = new IdleTimeout(timer, keepAliveTimeoutMillis, () -> lastReadMillis, () -> expire(armed, Phase.BODY));
+            bodyTimeout.start();
+        }
+    }
+
+    /**
+     * The request was read completely (or the connection is done): no deadline until the next {@link #awaitRequest()}.
+     */
+    synchronized void requestRead() {
+        disarm();
+        phase = Phase.NONE;
+    }
+
+    @Override
+    public synchronized void closeIfIdle() {
+        if (phase != Phase.IDLE) return;
+        disarm();
+        shutdownInput();
+    }
+
+    @Override
+    public void forceClose() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Could not close socket: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the phase in which the deadline expired, or null if it did not
+     */
+    Phase getExpiredIn() {
+        return expiredIn;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) onBytesRead();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) onBytesRead();
+        return n;
+    }
+
+    private void onBytesRead() {
+        Phase current = phase;
+        if (current == Phase.IDLE) {
+            arm(Phase.HEADERS, headerReadTimeoutMillis);
+        } else if (current == Phase.BODY) {
+            lastReadMillis = System.currentTimeMillis();
+        }
+    }
+
+    private synchronized void arm(Phase next, long timeoutMillis) {
+        int armed = disarm();
+        phase = next;
+        if (timeoutMillis > 0) {
+            deadline = timer.newTimeout(() -> expire(armed, next), timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Cancels whatever is armed; a timer task that already fired for an older generation becomes a no-op.
+     * @return the new generation
+     */
+    private int disarm() {
+        if (deadline != null) {
+            deadline.cancel();
+            deadline = null;
+        }
+        if (bodyTimeout != null) {
+            bodyTimeout.cancel();
+            bodyTimeout = null;
+        }
+        return ++generation;
+    }
+
+    private synchronized void expire(int armedGeneration, Phase expired) {
+        if (armedGeneration != generation) return;
+        expiredIn = expired;
+        log.debug("Read deadline expired in phase {}", expired);
+        shutdownInput();
+    }
+
+    private void shutdownInput() {
+        try {
+            socket.shutdownInput();
+        } catch (IOException e) {
+            log.debug("Could not shut down input: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import uz.hikmatullo.httpserver.config.Configuration;
+import uz.hikmatullo.httpserver.config.TransportType;
+import uz.hikmatullo.httpserver.core.compression.ResponseCompressor;
+import uz.hikmatullo.httpserver.core.handler.RequestHandler;
+import uz.hikmatullo.httpserver.websocket.WebSocketSessionManager;
+import uz.hikmatullo.httpserver.websocket.listener.WebSocketListener;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything a transport needs to serve a connection, shared by all connections of one server.
+ */
+public final class ServerContext {
+    private final Configuration configuration;
+    private final RequestHandler requestHandler;
+    private final WebSocketListener webSocketListener;
+    private final WebSocketSessionManager webSocketSessionManager;
+    private final AdmissionController admissionController;
+    private final IdleConnectionParker idleConnectionParker;
+    private final HashedWheelTimer timer;
+    private final DrainCoordinator drainCoordinator = new DrainCoordinator();
+    private final CpuOffloader cpuOffloader;
+    private final ResponseCompressor responseCompressor;
+
+    public ServerContext(Configuration configuration, RequestHandler requestHandler,
+                         WebSocketListener webSocketListener, WebSocketSessionManager webSocketSessionManager) throws IOException {
+        this.configuration = configuration;
+        this.requestHandler = requestHandler;
+        this.webSocketListener = webSocketListener;
+        this.webSocketSessionManager = webSocketSessionManager;
+        this.admissionController = new AdmissionController(configuration.getMaxConnections(),
+                configuration.getMaxConnectionsPerIp(), configuration.getOverloadRetryAfterSeconds());
+        this.cpuOffloader = new CpuOffloader(configuration.getCpuOffloadMaxPending(), configuration.getOverloadRetryAfterSeconds());
+        this.responseCompressor = ResponseCompressor.create(configuration);
+        // 100ms ticks x 512 buckets: one wheel turn covers ~51s, longer deadlines just take extra rounds
+        this.timer = new HashedWheelTimer(100, TimeUnit.MILLISECONDS, 512);
+        boolean parking = configuration.isIdleConnectionParking() && configuration.getTransport() == TransportType.BLOCKING;
+        this.idleConnectionParker = parking ? new IdleConnectionParker(timer, configuration.getKeepAliveTimeoutMillis()) : null;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public RequestHandler getRequestHandler() {
+        return requestHandler;
+    }
+
+    public WebSocketListener getWebSocketListener() {
+        return webSocketListener;
+    }
+
+    public WebSocketSessionManager getWebSocketSessionManager() {
+        return webSocketSessionManager;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * @return the parker for idle keep-alive connections, or null if parking is disabled
+     */
+    public IdleConnectionParker getIdleConnectionParker() {
+        return idleConnectionParker;
+    }
+
+    /**
+     * Shared timer for connection deadlines (keep-alive idle, header read, WebSocket idle).
+     */
+    public HashedWheelTimer getTimer() {
+        return timer;
+    }
+
+    /**
+     * Open HTTP connections and in-flight requests, used to drain on shutdown.
+     */
+    public DrainCoordinator getDrainCoordinator() {
+        return drainCoordinator;
+    }
+
+    /**
+     * Runs the request handler, on the cpu executor for CPU-bound requests.
+     */
+    public CpuOffloader getCpuOffloader() {
+        return cpuOffloader;
+    }
+
+    /**
+     * @return the compression step for responses, or null if compression is disabled
+     */
+    public ResponseCompressor getResponseCompressor() {
+        return responseCompressor;
+    }
+
+    public void close() {
+        if (idleConnectionParker != null) {
+            idleConnectionParker.close();
+        }
+        timer.stop();
+    }
+}
@@ -0,0 +1,24 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import java.io.IOException;
+
+/**
+ * Accepts connections and drives them through the HTTP request handler.
+ * {@link #serve()} blocks the calling thread until the transport is closed.
+ */
+public interface ServerTransport {
+
+    void serve() throws IOException;
+
+    boolean isOpen();
+
+    /**
+     * Closes the listeners only; accepted connections keep being served (first step of a drain).
+     */
+    void stopAccepting();
+
+    /**
+     * Stops accepting and releases everything the transport owns, including its open connections.
+     */
+    void close();
+}
@@ -0,0 +1,122 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import jdk.net.ExtendedSocketOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.config.Configuration;
+
+import java.io.IOException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Socket options from the configuration, applied to the listeners and to every accepted connection.
+ * Options the platform does not support (e.g. the Linux-only TCP_QUICKACK) are skipped with a warning.
+ * SO_RCVBUF is set on the listener before bind, because the TCP window scale is negotiated during
+ * the handshake; accepted sockets inherit it.
+ */
+public class SocketTuning {
+
+    private static final Logger log = LoggerFactory.getLogger(SocketTuning.class);
+
+    private final int backlog;
+    private final int receiveBufferSize;
+    // only supported options, in the order they are applied
+    private final Map<SocketOption<?>, Object> connectionOptions = new LinkedHashMap<>();
+
+    public SocketTuning(Configuration configuration) {
+        this.backlog = configuration.getListenBacklog();
+        this.receiveBufferSize = configuration.getReceiveBufferSize();
+
+        Set<SocketOption<?>> supported = supportedOptions();
+        Map<SocketOption<?>, Object> requested = new LinkedHashMap<>();
+        requested.put(StandardSocketOptions.TCP_NODELAY, configuration.isTcpNoDelay());
+        requested.put(StandardSocketOptions.SO_KEEPALIVE, configuration.isTcpKeepAlive());
+        if (configuration.getSendBufferSize() > 0) {
+            requested.put(StandardSocketOptions.SO_SNDBUF, configuration.getSendBufferSize());
+        }
+        if (configuration.isTcpKeepAlive()) {
+            if (configuration.getTcpKeepIdleSeconds() > 0) {
+                requested.put(ExtendedSocketOptions.TCP_KEEPIDLE, configuration.getTcpKeepIdleSeconds());
+            }
+            if (configuration.getTcpKeepIntervalSeconds() > 0) {
+                requested.put(ExtendedSocketOptions.TCP_KEEPINTERVAL, configuration.getTcpKeepIntervalSeconds());
+            }
+            if (configuration.getTcpKeepCount() > 0) {
+                requested.put(ExtendedSocketOptions.TCP_KEEPCOUNT, configuration.getTcpKeepCount());
+            }
+        }
+        if (configuration.isTcpQuickAck()) {
+            // the kernel may switch back to delayed ACKs later, so this mostly helps the first request
+            requested.put(ExtendedSocketOptions.TCP_QUICKACK, true);
+        }
+
+        requested.forEach((option, value) -> {
+            if (supported.contains(option)) {
+                connectionOptions.put(option, value);
+            } else {
+                log.warn("Socket option {} is not supported on this platform, ignoring it", option.name());
+            }
+        });
+    }
+
+    /**
+     * Backlog to pass to bind, 0 for the JDK default.
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Must run before the listener is bound.
+     */
+    public void applyToListener(ServerSocketChannel listener) throws IOException {
+        if (receiveBufferSize > 0) {
+            listener.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+        }
+    }
+
+    public void applyToAccepted(SocketChannel channel) {
+        for (Map.Entry<SocketOption<?>, Object> entry : connectionOptions.entrySet()) {
+            try {
+                setOption(channel, entry.getKey(), entry.getValue());
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("Could not set {} on accepted socket: {}", entry.getKey().name(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Effective values: what the kernel reports for the listener, plus the options set on every connection.
+     */
+    public String describe(ServerSocketChannel listener) {
+        StringBuilder description = new StringBuilder("backlog=").append(backlog > 0 ? backlog : "default");
+        try {
+            description.append(" SO_RCVBUF=").append(listener.getOption(StandardSocketOptions.SO_RCVBUF));
+            description.append(" SO_REUSEADDR=").append(listener.getOption(StandardSocketOptions.SO_REUSEADDR));
+        } catch (IOException e) {
+            description.append(" (listener options unavailable: ").append(e.getMessage()).append(')');
+        }
+        connectionOptions.forEach((option, value) -> description.append(' ').append(option.name()).append('=').append(value));
+        return description.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void setOption(SocketChannel channel, SocketOption<T> option, Object value) throws IOException {
+        channel.setOption(option, (T) value);
+    }
+
+    private static Set<SocketOption<?>> supportedOptions() {
+        try (SocketChannel probe = SocketChannel.open()) {
+            return probe.supportedOptions();
+        } catch (IOException e) {
+            log.warn("Could not determine supported socket options: {}", e.getMessage());
+            return Set.of(StandardSocketOptions.TCP_NODELAY, StandardSocketOptions.SO_KEEPALIVE, StandardSocketOptions.SO_SNDBUF);
+        }
+    }
+}
@@ -0,0 +1,701 @@
+package uz.hikmatullo.httpserver.runtime.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.core.HttpErrorResponses;
+import uz.hikmatullo.httpserver.core.HttpHeaderDefaults;
+import uz.hikmatullo.httpserver.core.HttpKeepAliveManager;
+import uz.hikmatullo.httpserver.core.io.ConnectionInputBuffer;
+import uz.hikmatullo.httpserver.core.io.ResponseHeadEncoder;
+import uz.hikmatullo.httpserver.core.model.BodySegment;
+import uz.hikmatullo.httpserver.core.model.FileRegion;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+import uz.hikmatullo.httpserver.runtime.AdmissionController;
+import uz.hikmatullo.httpserver.runtime.DrainCoordinator;
+import uz.hikmatullo.httpserver.runtime.ExecutorsHolder;
+import uz.hikmatullo.httpserver.runtime.HashedWheelTimer;
+import uz.hikmatullo.httpserver.runtime.HttpConnectionHandler;
+import uz.hikmatullo.httpserver.runtime.IdleTimeout;
+import uz.hikmatullo.httpserver.runtime.ServerContext;
+import uz.hikmatullo.httpserver.websocket.WebSocketSession;
+import uz.hikmatullo.httpserver.websocket.WebSocketUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * State of one connection served by a {@link NioEventLoop}.
+ * Life cycle: READ until a full request is buffered -> stop reading and dispatch it to a worker ->
+ * worker hands the encoded response back to the loop -> WRITE it -> READ again (or close).
+ * Everything except {@link #process(byte[])} runs on the event loop thread. A streaming response body is
+ * produced on the worker and handed to the loop in chunks ({@link StreamOutbound}).
+ * Deadlines live on the server timer: an idle timeout (keep-alive, also bounds a stalled body) and
+ * a header read deadline armed while a request head is incomplete. Both post their check back to the loop.
+ */
+final class NioConnection implements DrainCoordinator.Drainable {
+
+    private static final Logger log = LoggerFactory.getLogger(NioConnection.class);
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    // a streaming body is handed to the loop in pieces of this size (or smaller, when the producer flushes)
+    private static final int STREAM_CHUNK_SIZE = 16384;
+    // the producer of a streaming body waits while this much is queued for a slow client
+    private static final long STREAM_HIGH_WATER = 256 * 1024;
+
+    private final SocketChannel channel;
+    private final NioEventLoop loop;
+    private final ServerContext context;
+    private final AdmissionController.Permit permit;
+    private final HttpKeepAliveManager keepAliveManager = new HttpKeepAliveManager();
+    // a streamed body is read from the framed request bytes, which are complete before the handler runs
+    private final HttpParser parser;
+    private final Queue<Outbound> outbound = new ArrayDeque<>();
+    private final IdleTimeout idleTimeout;
+    private final long keepAliveTimeoutMillis;
+    private final long headerReadTimeoutMillis;
+
+    private SelectionKey key;
+    private byte[] readBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private int readLength;
+    private boolean processing;
+    private boolean closeAfterWrite;
+    // set by the worker once the handler starts, cleared by the loop when the response is written or the connection closes
+    private volatile boolean requestInFlight;
+    private HashedWheelTimer.Timeout headerDeadline;
+    // read by the timer thread
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    NioConnection(SocketChannel channel, NioEventLoop loop, ServerContext context, AdmissionController.Permit permit) {
+        this.channel = channel;
+        this.loop = loop;
+        this.context = context;
+        this.permit = permit;
+        this.parser = HttpParser.create(context.getConfiguration());
+        this.keepAliveTimeoutMillis = context.getConfiguration().getKeepAliveTimeoutMillis();
+        this.headerReadTimeoutMillis = context.getConfiguration().getHeaderReadTimeoutMillis();
+        this.idleTimeout = keepAliveTimeoutMillis > 0
+                ? new IdleTimeout(context.getTimer(), keepAliveTimeoutMillis, () -> lastActivity, () -> loop.execute(this::onIdleTimeout))
+                : null;
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+        if (idleTimeout != null) {
+            idleTimeout.start();
+        }
+        context.getDrainCoordinator().register(this);
+    }
+
+    boolean isIdleSince(long timestamp) {
+        return !processing && outbound.isEmpty() && lastActivity < timestamp;
+    }
+
+    // ---------------------------
+    // Event loop side
+    // ---------------------------
+    void onReadable() {
+        if (readLength == readBuffer.length) {
+            if (readBuffer.length >= RequestFramer.MAX_REQUEST_SIZE) {
+                respondAndClose(HttpErrorResponses.create(HttpStatusCode.PAYLOAD_TOO_LARGE, "Request too large"));
+                return;
+            }
+            readBuffer = Arrays.copyOf(readBuffer, Math.min(readBuffer.length * 2, RequestFramer.MAX_REQUEST_SIZE));
+        }
+
+        int read;
+        try {
+            read = channel.read(ByteBuffer.wrap(readBuffer, readLength, readBuffer.length - readLength));
+        } catch (IOException e) {
+            log.debug("Read failed: {}", e.getMessage());
+            close();
+            return;
+        }
+        if (read == -1) {
+            close();
+            return;
+        }
+        readLength += read;
+        lastActivity = System.currentTimeMillis();
+        dispatchIfComplete();
+        updateHeaderDeadline();
+    }
+
+    void onWritable() {
+        try {
+            while (!outbound.isEmpty()) {
+                Outbound next = outbound.peek();
+                if (!next.writeTo(channel)) {
+                    // a streaming body waiting for its producer resumes by itself, OP_WRITE would spin
+                    key.interestOps(next.awaitsData() ? 0 : SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbound.poll().release();
+            }
+        } catch (IOException e) {
+            log.debug("Write failed: {}", e.getMessage());
+            close();
+            return;
+        }
+
+        lastActivity = System.currentTimeMillis();
+        processing = false;
+        finishRequest();
+        if (closeAfterWrite) {
+            close();
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        // a pipelined request may already be sitting in the buffer
+        dispatchIfComplete();
+        updateHeaderDeadline();
+    }
+
+    private void dispatchIfComplete() {
+        if (processing || readLength == 0) return;
+
+        int frameLength;
+        try {
+            frameLength = RequestFramer.frameLength(readBuffer, readLength);
+        } catch (HttpParsingException e) {
+            respondAndClose(HttpErrorResponses.create(e.getErrorCode(), e.getMessage()));
+            return;
+        }
+        if (frameLength < 0) return;
+
+        byte[] requestBytes = Arrays.copyOf(readBuffer, frameLength);
+        System.arraycopy(readBuffer, frameLength, readBuffer, 0, readLength - frameLength);
+        readLength -= frameLength;
+
+        processing = true;
+        key.interestOps(0);
+        try {
+            ExecutorsHolder.httpExecutor().execute(() -> process(requestBytes));
+        } catch (RejectedExecutionException e) {
+            log.debug("Server is shutting down, closing connection.");
+            close();
+        }
+    }
+
+    /**
+     * Arms the header read deadline while the head of the next request is incomplete, cancels it otherwise.
+     */
+    private void updateHeaderDeadline() {
+        if (!channel.isOpen() || processing || readLength == 0 || RequestFramer.hasCompleteHead(readBuffer, readLength)) {
+            cancelHeaderDeadline();
+        } else if (headerDeadline == null && headerReadTimeoutMillis > 0) {
+            headerDeadline = context.getTimer().newTimeout(() -> loop.execute(this::onHeaderTimeout),
+                    headerReadTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelHeaderDeadline() {
+        if (headerDeadline != null) {
+            headerDeadline.cancel();
+            headerDeadline = null;
+        }
+    }
+
+    private void onHeaderTimeout() {
+        headerDeadline = null;
+        if (!channel.isOpen() || processing || RequestFramer.hasCompleteHead(readBuffer, readLength)) return;
+        log.debug("Header read timeout reached, closing connection.");
+        respondAndClose(HttpErrorResponses.create(HttpStatusCode.REQUEST_TIMEOUT, "Request header read timeout"));
+    }
+
+    private void onIdleTimeout() {
+        if (!channel.isOpen()) return;
+        // a request head in progress is bounded by the header deadline instead
+        if (headerDeadline == null && isIdleSince(System.currentTimeMillis() - keepAliveTimeoutMillis)) {
+            log.debug("Keep-alive timeout reached, closing connection.");
+            close();
+        } else {
+            // a request is being processed or written: look again one period later
+            idleTimeout.start();
+        }
+    }
+
+    /**
+     * @param head the encoded head, with a byte[] body if the response has one
+     * @param body file, segmented or streaming body sent after the head (files with transferTo), may be empty
+     */
+    private void enqueueResponse(Outbound head, List<Outbound> body, boolean keepAlive) {
+        if (!channel.isOpen()) {
+            body.forEach(Outbound::release);
+            // closed while the handler ran
+            finishRequest();
+            return;
+        }
+        outbound.add(head);
+        outbound.addAll(body);
+        closeAfterWrite = !keepAlive;
+        onWritable();
+    }
+
+    private void respondAndClose(HttpResponse response) {
+        processing = true;
+        enqueueResponse(encode(response), List.of(), false);
+    }
+
+    private void upgradeToWebSocket(HttpRequest request) {
+        cancelTimeouts();
+        // frames the client sent right after the upgrade request were read with it and wait in the buffer
+        byte[] leftover = Arrays.copyOf(readBuffer, readLength);
+        readLength = 0;
+        try {
+            loop.detach(this, key);
+        } catch (IOException e) {
+            log.error("Could not detach channel for WebSocket upgrade: {}", e.getMessage());
+            close();
+            return;
+        }
+
+        // The session uses blocking streams, so it gets its own thread like in the blocking transport.
+        // From here on the session owns the connection (and its admission permit).
+        Runnable upgrade = () -> {
+            Socket socket = channel.socket();
+            try {
+                HttpResponse handshake = WebSocketUtils.createHandshakeResponse(request);
+                if (handshake == null) {
+                    HttpErrorResponses.create(HttpStatusCode.BAD_REQUEST, "Missing Sec-WebSocket-Key").write(socket.getOutputStream());
+                    socket.close();
+                    return;
+                }
+                handshake.write(socket.getOutputStream());
+                log.info("WebSocket handshake completed for remoteAddress={}", socket.getRemoteSocketAddress());
+                InputStream in = new SequenceInputStream(new ByteArrayInputStream(leftover), socket.getInputStream());
+                WebSocketSession session = new WebSocketSession(socket, in, context.getWebSocketListener(), context.getWebSocketSessionManager());
+                HttpConnectionHandler.runWebSocketSession(session, context, permit);
+            } catch (IOException e) {
+                log.error("WebSocket upgrade failed: {}", e.getMessage());
+                try {
+                    socket.close();
+                } catch (IOException ignored) {}
+            } finally {
+                permit.release();
+            }
+        };
+        try {
+            ExecutorsHolder.webSocketExecutor().execute(upgrade);
+        } catch (RejectedExecutionException e) {
+            log.debug("Server is shutting down, closing connection instead of upgrading it.");
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            permit.release();
+        }
+    }
+
+    private void cancelTimeouts() {
+        cancelHeaderDeadline();
+        if (idleTimeout != null) {
+            idleTimeout.cancel();
+        }
+        context.getDrainCoordinator().unregister(this);
+    }
+
+    @Override
+    public void closeIfIdle() {
+        loop.execute(() -> {
+            if (channel.isOpen() && readLength == 0 && isIdleSince(Long.MAX_VALUE)) {
+                close();
+            }
+        });
+    }
+
+    @Override
+    public void forceClose() {
+        loop.execute(this::close);
+    }
+
+    void close() {
+        cancelTimeouts();
+        finishRequest();
+        while (!outbound.isEmpty()) {
+            outbound.poll().release();
+        }
+        loop.unregister(this);
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.error("Could not close channel. {}", e.getMessage());
+        }
+        permit.release();
+    }
+
+    // ---------------------------
+    // Worker side
+    // ---------------------------
+    private void process(byte[] requestBytes) {
+        HttpRequest request;
+        try {
+            request = parser.parse(new ConnectionInputBuffer(requestBytes, requestBytes.length));
+        } catch (HttpParsingException e) {
+            respond(HttpErrorResponses.create(e.getErrorCode(), e.getMessage()), false, null);
+            return;
+        } catch (Exception e) {
+            log.error("Unexpected error: {}", e.getMessage());
+            respond(HttpErrorResponses.create(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage()), false, null);
+            return;
+        }
+        respond(request);
+    }
+
+    private void respond(HttpRequest request) {
+        if (request == null) {
+            loop.execute(this::close);
+            return;
+        }
+
+        if (WebSocketUtils.isWebSocketUpgrade(request)) {
+            // the request goes on to the loop with the handshake, it is not recycled
+            request.deleteTemporaryFiles();
+            loop.execute(() -> upgradeToWebSocket(request));
+            return;
+        }
+
+        HttpResponse response;
+        boolean keepAlive = false;
+        try {
+            DrainCoordinator drain = context.getDrainCoordinator();
+            // in flight until the loop has written the response, as on the blocking transport
+            drain.requestStarted();
+            requestInFlight = true;
+            response = context.getCpuOffloader().handle(context.getRequestHandler(), request);
+            // never keep alive while the server drains
+            keepAlive = keepAliveManager.shouldKeepAlive(request) && !drain.isDraining();
+            if (context.getResponseCompressor() != null) {
+                context.getResponseCompressor().apply(request, response);
+            }
+            if (HttpKeepAliveManager.adaptStreamingBody(request, response)) {
+                keepAlive = false;
+            }
+            HttpHeaderDefaults.applyDefaultResponseHeaders(response, keepAlive, keepAliveTimeoutMillis);
+        } catch (HttpParsingException e) {
+            response = HttpErrorResponses.create(e.getErrorCode(), e.getMessage());
+        } catch (Exception e) {
+            log.error("Unexpected error: {}", e.getMessage());
+            response = HttpErrorResponses.create(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        respond(response, keepAlive, request);
+    }
+
+    /**
+     * @param request released (temporary files deleted, recycled) before the response is handed to the loop,
+     *                which may dispatch the next request of the connection right after; null if there is none
+     */
+    private void respond(HttpResponse response, boolean keepAlive, HttpRequest request) {
+        if (response.getStreamingBody() != null) {
+            stream(response, keepAlive, request);
+            return;
+        }
+
+        try {
+            List<Outbound> body = openBody(response);
+            Outbound head = encode(response);
+            release(request);
+            loop.execute(() -> enqueueResponse(head, body, keepAlive));
+        } catch (IOException e) {
+            log.error("Could not encode response: {}", e.getMessage());
+            release(request);
+            loop.execute(this::close);
+        }
+    }
+
+    /**
+     * Sends the head, then runs the streaming body on this worker thread while the loop writes what it produced.
+     * The loop takes the next request only once the stream is finished.
+     */
+    private void stream(HttpResponse response, boolean keepAlive, HttpRequest request) {
+        StreamOutbound stream = new StreamOutbound();
+        try {
+            Outbound head = encode(response);
+            loop.execute(() -> enqueueResponse(head, List.of(stream), keepAlive));
+            response.writeBody(stream);
+            release(request);
+            stream.finish();
+        } catch (IOException | RuntimeException e) {
+            // the head may already be out: the response cannot be replaced by an error any more
+            log.warn("Could not complete the streamed response: {}", e.getMessage());
+            release(request);
+            stream.release();
+            loop.execute(this::close);
+        }
+    }
+
+    private void finishRequest() {
+        if (requestInFlight) {
+            requestInFlight = false;
+            context.getDrainCoordinator().requestFinished();
+        }
+    }
+
+    private void release(HttpRequest request) {
+        if (request == null) return;
+        request.deleteTemporaryFiles();
+        parser.recycle(request);
+    }
+
+    /**
+     * @return the outbound pieces of a file or segmented body, empty if the body is a plain byte[] (sent with the head)
+     */
+    private static List<Outbound> openBody(HttpResponse response) throws IOException {
+        FileRegion fileBody = response.getFileBody();
+        if (fileBody != null) {
+            return fileBody.getLength() > 0 ? List.of(FileOutbound.open(fileBody)) : List.of();
+        }
+        if (response.getBodySegments() == null) {
+            return List.of();
+        }
+
+        List<Outbound> body = new ArrayList<>(response.getBodySegments().size());
+        try {
+            for (BodySegment segment : response.getBodySegments()) {
+                switch (segment) {
+                    case BodySegment.Bytes bytes -> body.add(new BufferOutbound(ByteBuffer.wrap(bytes.data(), bytes.offset(), bytes.length())));
+                    case FileRegion region -> body.add(FileOutbound.open(region));
+                }
+            }
+        } catch (IOException e) {
+            body.forEach(Outbound::release);
+            throw e;
+        }
+        return body;
+    }
+
+    /**
+     * The head, and a byte[] body behind it in the same gathering write (the body is not copied).
+     */
+    private static Outbound encode(HttpResponse response) {
+        ByteBuffer head = ByteBuffer.wrap(ResponseHeadEncoder.encode(response));
+        byte[] body = response.getBody();
+        return body.length > 0 ? new BufferOutbound(head, ByteBuffer.wrap(body)) : new BufferOutbound(head);
+    }
+
+    // ---------------------------
+    // Outbound data, written by the event loop as far as the socket accepts it
+    // ---------------------------
+    private interface Outbound {
+        /**
+         * @return true once everything is written
+         */
+        boolean writeTo(SocketChannel channel) throws IOException;
+
+        /**
+         * @return true if the last {@link #writeTo} stopped because nothing was available yet (not a full socket)
+         */
+        default boolean awaitsData() {
+            return false;
+        }
+
+        default void release() {
+        }
+    }
+
+    private record BufferOutbound(ByteBuffer... buffers) implements Outbound {
+        @Override
+        public boolean writeTo(SocketChannel channel) throws IOException {
+            channel.write(buffers);
+            return !buffers[buffers.length - 1].hasRemaining();
+        }
+    }
+
+    /**
+     * File body sent with transferTo (sendfile), so it never passes through the heap.
+     * A non-blocking transfer stops when the socket buffer is full and continues on the next OP_WRITE.
+     */
+    private static final class FileOutbound implements Outbound {
+        private final FileChannel file;
+        private final FileRegion region;
+        private long position;
+        private long remaining;
+
+        private FileOutbound(FileChannel file, FileRegion region) {
+            this.file = file;
+            this.region = region;
+            this.position = region.getPosition();
+            this.remaining = region.getLength();
+        }
+
+        static FileOutbound open(FileRegion region) throws IOException {
+            return new FileOutbound(FileChannel.open(region.getPath(), StandardOpenOption.READ), region);
+        }
+
+        @Override
+        public boolean writeTo(SocketChannel channel) throws IOException {
+            while (remaining > 0) {
+                long sent = file.transferTo(position, remaining, channel);
+                if (sent == 0) {
+                    if (position >= file.size()) {
+                        throw new EOFException("File " + region.getPath() + " is shorter than the announced length");
+                    }
+                    return false;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            return true;
+        }
+
+        @Override
+        public void release() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.debug("Could not close file {}: {}", region.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Streaming body: the worker writes into it like into a socket stream, the loop drains it to the channel.
+     * The worker blocks while {@link #STREAM_HIGH_WATER} bytes are queued, so a slow client does not make
+     * the whole body pile up in memory. ReentrantLock rather than synchronized: the worker is usually virtual.
+     */
+    private final class StreamOutbound extends OutputStream implements Outbound {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition drained = lock.newCondition();
+        private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+        private long queuedBytes;
+        private boolean finished;
+        private boolean released;
+        private boolean starved;
+
+        // worker side: collects small writes into one chunk
+        private byte[] pending = new byte[STREAM_CHUNK_SIZE];
+        private int pendingLength;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (pendingLength == pending.length) submit();
+            pending[pendingLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (pendingLength == pending.length) submit();
+                int n = Math.min(len, pending.length - pendingLength);
+                System.arraycopy(b, off, pending, pendingLength, n);
+                pendingLength += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (pendingLength > 0) submit();
+        }
+
+        void finish() throws IOException {
+            flush();
+            lock.lock();
+            try {
+                finished = true;
+            } finally {
+                lock.unlock();
+            }
+            loop.execute(this::resume);
+        }
+
+        private void submit() throws IOException {
+            lock.lock();
+            try {
+                while (queuedBytes >= STREAM_HIGH_WATER && !released) {
+                    drained.awaitUninterruptibly();
+                }
+                if (released) throw new IOException("Connection closed");
+                chunks.add(ByteBuffer.wrap(pending, 0, pendingLength));
+                queuedBytes += pendingLength;
+            } finally {
+                lock.unlock();
+            }
+            pending = new byte[STREAM_CHUNK_SIZE];
+            pendingLength = 0;
+            loop.execute(this::resume);
+        }
+
+        private void resume() {
+            // only while this body is being written; the connection may have moved on (or closed) meanwhile
+            if (channel.isOpen() && outbound.peek() == this) {
+                onWritable();
+            }
+        }
+
+        // loop side
+
+        @Override
+        public boolean writeTo(SocketChannel channel) throws IOException {
+            while (true) {
+                ByteBuffer chunk;
+                boolean done;
+                lock.lock();
+                try {
+                    chunk = chunks.peek();
+                    done = finished;
+                } finally {
+                    lock.unlock();
+                }
+                if (chunk == null) {
+                    starved = !done;
+                    return done;
+                }
+
+                channel.write(chunk);
+                if (chunk.hasRemaining()) {
+                    starved = false;
+                    return false;
+                }
+                lock.lock();
+                try {
+                    chunks.poll();
+                    queuedBytes -= chunk.limit();
+                    drained.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public boolean awaitsData() {
+            return starved;
+        }
+
+        @Override
+        public void release() {
+            lock.lock();
+            try {
+                released = true;
+                chunks.clear();
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package uz.hikmatullo.httpserver.runtime.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.runtime.AdmissionController;
+import uz.hikmatullo.httpserver.runtime.ServerContext;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single selector thread owning a set of connections.
+ * All reads, writes and interest changes of its connections happen on this thread;
+ * other threads talk to it only through {@link #execute(Runnable)}.
+ */
+final class NioEventLoop implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(NioEventLoop.class);
+
+    private final Selector selector;
+    private final ServerContext context;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = new HashSet<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    NioEventLoop(int index, ServerContext context) throws IOException {
+        this.selector = Selector.open();
+        this.context = context;
+        this.thread = Thread.ofPlatform().name("nio-event-loop-" + index).unstarted(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Hands a freshly accepted channel over to this loop.
+     */
+    void register(SocketChannel channel, AdmissionController.Permit permit) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                NioConnection connection = new NioConnection(channel, this, context, permit);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(key);
+                connections.add(connection);
+            } catch (IOException e) {
+                log.error("Could not register channel: {}", e.getMessage());
+                permit.release();
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                runTasks();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            log.debug("Selector closed");
+        } catch (IOException e) {
+            log.error("Event loop failed: {}", e.getMessage());
+        } finally {
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Removes the channel from this selector and switches it back to blocking mode,
+     * so that a thread can take it over (WebSocket upgrade).
+     * Must be called on the loop thread.
+     */
+    void detach(NioConnection connection, SelectionKey key) throws IOException {
+        connections.remove(connection);
+        key.cancel();
+        // the key is only deregistered on the next selection operation
+        selector.selectNow();
+        key.channel().configureBlocking(true);
+    }
+
+    void unregister(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Event loop task failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,74 @@
+package uz.hikmatullo.httpserver.runtime.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uz.hikmatullo.httpserver.runtime.AcceptorGroup;
+import uz.hikmatullo.httpserver.runtime.AdmissionController;
+import uz.hikmatullo.httpserver.runtime.ServerContext;
+import uz.hikmatullo.httpserver.runtime.ServerTransport;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking transport: connections are multiplexed over a small, fixed number of
+ * selector event loops. Only complete requests are dispatched to the RequestHandler
+ * (on the virtual-thread executor), so an idle keep-alive connection costs a selection
+ * key and a read buffer instead of a parked thread.
+ * Acceptors (see {@link AcceptorGroup}) hand accepted channels to the event loops round-robin.
+ */
+public class NioTransport implements ServerTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(NioTransport.class);
+
+    private final AcceptorGroup acceptorGroup;
+    private final NioEventLoop[] eventLoops;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public NioTransport(ServerContext context) throws IOException {
+        int threads = context.getConfiguration().getEventLoopThreads();
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        this.acceptorGroup = new AcceptorGroup(context, this::register);
+
+        this.eventLoops = new NioEventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            eventLoops[i] = new NioEventLoop(i, context);
+        }
+    }
+
+    @Override
+    public void serve() {
+        for (NioEventLoop loop : eventLoops) {
+            loop.start();
+        }
+        log.info("NIO transport started with {} event loops", eventLoops.length);
+        acceptorGroup.serve();
+    }
+
+    private void register(SocketChannel channel, AdmissionController.Permit permit) {
+        int index = Math.floorMod(next.getAndIncrement(), eventLoops.length);
+        eventLoops[index].register(channel, permit);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return acceptorGroup.isOpen();
+    }
+
+    @Override
+    public void stopAccepting() {
+        acceptorGroup.close();
+    }
+
+    @Override
+    public void close() {
+        stopAccepting();
+        for (NioEventLoop loop : eventLoops) {
+            loop.shutdown();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package uz.hikmatullo.httpserver.runtime.nio;
+
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Finds where the first complete HTTP request ends inside a read buffer.
+ * The event loop only needs framing (header end + body length); full validation
+ * is still done by HttpParser once the request bytes are complete.
+ */
+final class RequestFramer {
+
+    static final int MAX_HEADER_SIZE = 65536; // bytes, same order as HttpParser limits
+    static final int MAX_REQUEST_SIZE = 16 * 1024 * 1024; // 16 MB
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private RequestFramer() {
+    }
+
+    /**
+     * @return true once the request line and all headers of the first request are in buf[0, length)
+     */
+    static boolean hasCompleteHead(byte[] buf, int length) {
+        return indexOfHeaderEnd(buf, 0, length) >= 0;
+    }
+
+    /**
+     * @return length of the first complete request in buf[0, length), or -1 if more bytes are needed
+     */
+    static int frameLength(byte[] buf, int length) {
+        int headerEnd = indexOfHeaderEnd(buf, 0, length);
+        if (headerEnd < 0) {
+            if (length > MAX_HEADER_SIZE) {
+                throw new HttpParsingException(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request header fields too large");
+            }
+            return -1;
+        }
+        int bodyStart = headerEnd + 4;
+
+        long contentLength = -1;
+        boolean chunked = false;
+
+        // Skip the request line, then look only at the two headers that define the body length
+        int lineStart = indexOfCrlf(buf, 0, bodyStart) + 2;
+        while (lineStart < headerEnd + 2) {
+            int lineEnd = indexOfCrlf(buf, lineStart, bodyStart);
+            int colon = indexOf(buf, (byte) ':', lineStart, lineEnd);
+            if (colon > lineStart) {
+                String name = new String(buf, lineStart, colon - lineStart, StandardCharsets.ISO_8859_1).trim();
+                if (name.equalsIgnoreCase("content-length")) {
+                    String value = new String(buf, colon + 1, lineEnd - colon - 1, StandardCharsets.ISO_8859_1).trim();
+                    try {
+                        contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new HttpParsingException(HttpStatusCode.BAD_REQUEST);
+                    }
+                } else if (name.equalsIgnoreCase("transfer-encoding")) {
+                    String value = new String(buf, colon + 1, lineEnd - colon - 1, StandardCharsets.ISO_8859_1);
+                    chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                }
+            }
+            lineStart = lineEnd + 2;
+        }
+
+        if (chunked) {
+            return chunkedEnd(buf, bodyStart, length);
+        }
+        if (contentLength > 0) {
+            if (bodyStart + contentLength > MAX_REQUEST_SIZE) {
+                throw new HttpParsingException(HttpStatusCode.PAYLOAD_TOO_LARGE, "Request body too large");
+            }
+            long total = bodyStart + contentLength;
+            return total <= length ? (int) total : -1;
+        }
+        return bodyStart;
+    }
+
+    private static int chunkedEnd(byte[] buf, int pos, int length) {
+        while (true) {
+            int lineEnd = indexOfCrlf(buf, pos, length);
+            if (lineEnd < 0) return -1;
+
+            int sizeEnd = indexOf(buf, (byte) ';', pos, lineEnd);
+            String sizeToken = new String(buf, pos, (sizeEnd < 0 ? lineEnd : sizeEnd) - pos, StandardCharsets.ISO_8859_1).trim();
+            long chunkSize;
+            try {
+                chunkSize = Long.parseLong(sizeToken, 16);
+            } catch (NumberFormatException e) {
+                throw new HttpParsingException(HttpStatusCode.BAD_REQUEST, "Chunk size is not a valid integer");
+            }
+
+            if (chunkSize == 0) {
+                // last-chunk, then optional trailers terminated by an empty line
+                int trailerStart = lineEnd + 2;
+                if (trailerStart + 2 <= length && buf[trailerStart] == CR && buf[trailerStart + 1] == LF) {
+                    return trailerStart + 2;
+                }
+                int trailerEnd = indexOfHeaderEnd(buf, trailerStart, length);
+                return trailerEnd < 0 ? -1 : trailerEnd + 4;
+            }
+
+            long next = (long) lineEnd + 2 + chunkSize + 2;
+            if (chunkSize < 0 || next > MAX_REQUEST_SIZE) {
+                throw new HttpParsingException(HttpStatusCode.PAYLOAD_TOO_LARGE, "Request body too large");
+            }
+            if (next > length) return -1;
+            pos = (int) next;
+        }
+    }
+
+    private static int indexOfHeaderEnd(byte[] buf, int from, int to) {
+        for (int i = from; i + 3 < to; i++) {
+            if (buf[i] == CR && buf[i + 1] == LF && buf[i + 2] == CR && buf[i + 3] == LF) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfCrlf(byte[] buf, int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (buf[i] == CR && buf[i + 1] == LF) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] buf, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,43 @@
+package uz.hikmatullo.httpserver.util;
+
+import java.util.Locale;
+
+/**
+ * Content-Type of a file, guessed from its extension.
+ */
+public final class MimeTypes {
+
+    private MimeTypes() {
+    }
+
+    public static String probeContentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+
+        return switch (extension) {
+            case "html", "htm" -> "text/html";
+            case "css" -> "text/css";
+            case "js", "mjs" -> "text/javascript";
+            case "json" -> "application/json";
+            case "xml" -> "application/xml";
+            case "txt" -> "text/plain";
+            case "csv" -> "text/csv";
+            case "svg" -> "image/svg+xml";
+            case "gif" -> "image/gif";
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "webp" -> "image/webp";
+            case "ico" -> "image/x-icon";
+            case "mp4" -> "video/mp4";
+            case "webm" -> "video/webm";
+            case "mp3" -> "audio/mpeg";
+            case "pdf" -> "application/pdf";
+            case "wasm" -> "application/wasm";
+            case "woff" -> "font/woff";
+            case "woff2" -> "font/woff2";
+            case "zip" -> "application/zip";
+            case "gz" -> "application/gzip";
+            default -> "application/octet-stream";
+        };
+    }
+}
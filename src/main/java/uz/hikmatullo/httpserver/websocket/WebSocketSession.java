@@ -29,6 +29,7 @@ public class WebSocketSession implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(WebSocketSession.class);
 
     private final Socket socket;
+    private final InputStream in;
     private final WebSocketListener listener;
     private final WebSocketFrameReader reader;
     private final WebSocketFrameWriter writer;
@@ -36,10 +37,20 @@ public class WebSocketSession implements Runnable {
     private final String id;
     private final OutputStream out;
     private final WebSocketSessionManager manager;
-
+    // last frame received or sent, read by the idle timeout
+    private volatile long lastActivityMillis = System.currentTimeMillis();
 
     public WebSocketSession(Socket socket, WebSocketListener listener, WebSocketSessionManager manager) throws IOException {
+        this(socket, socket.getInputStream(), listener, manager);
+    }
+
+    /**
+     * @param in socket input to read frames from, e.g. the HTTP connection buffer that may already hold
+     *           bytes sent after the upgrade request
+     */
+    public WebSocketSession(Socket socket, InputStream in, WebSocketListener listener, WebSocketSessionManager manager) throws IOException {
         this.socket = socket;
+        this.in = in;
         this.listener = listener;
         this.manager = manager;
         this.reader = new WebSocketFrameReader();
@@ -50,7 +61,7 @@ public class WebSocketSession implements Runnable {
 
     @Override
     public void run() {
-        try (InputStream in = socket.getInputStream()) {
+        try (InputStream in = this.in) {
 
             // Notify listener that the connection is open
             try {
@@ -73,6 +84,7 @@ public class WebSocketSession implements Runnable {
                         // Stream closed cleanly by remote
                         break;
                     }
+                    lastActivityMillis = System.currentTimeMillis();
                 } catch (EOFException eof) {
                     // Remote closed connection abruptly
                     log.debug("EOF received, closing session {}", id);
@@ -95,8 +107,13 @@ public class WebSocketSession implements Runnable {
         }catch (SocketException e) {
             log.warn("Socket closed unexpectedly");
         } catch (IOException e) {
-            // network I/O broken
-            listener.onError(this, e);
+            if (!open.get()) {
+                // we closed the socket ourselves (sendClose) while the read was blocked
+                log.debug("Session {} closed locally", id);
+            } else {
+                // network I/O broken
+                listener.onError(this, e);
+            }
         } finally {
             // Ensure we inform listener and cleanup
             cleanup();
@@ -188,6 +205,7 @@ public class WebSocketSession implements Runnable {
         synchronized (writer) {
             writer.writeText(out, text);
         }
+        lastActivityMillis = System.currentTimeMillis();
     }
 
     /**
@@ -198,6 +216,7 @@ public class WebSocketSession implements Runnable {
         synchronized (writer) {
             writer.writeBinary(out, data);
         }
+        lastActivityMillis = System.currentTimeMillis();
     }
 
     /**
@@ -208,6 +227,7 @@ public class WebSocketSession implements Runnable {
         synchronized (writer) {
             writer.writePing(out, payload);
         }
+        lastActivityMillis = System.currentTimeMillis();
     }
 
     /**
@@ -269,6 +289,10 @@ public class WebSocketSession implements Runnable {
         return open.get() && !socket.isClosed();
     }
 
+    public long getLastActivityMillis() {
+        return lastActivityMillis;
+    }
+
     public String getId() {
         return id;
     }
@@ -5,7 +5,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -47,38 +49,61 @@ public class WebSocketSessionManager {
      * Gracefully close all sessions. Best-effort: send close frame and wait briefly for shutdown.
      */
     public void closeAll() {
-        log.info("Initiating graceful close of all WebSocket sessions...");
-        for (WebSocketSession s : sessions.values()) {
+        closeAll(200);
+    }
+
+    /**
+     * Sends close frames to all sessions in parallel (one slow client cannot hold up the others)
+     * and waits up to {@code timeoutMillis} for the sessions to clean up.
+     * @return number of sessions that had to be force-closed
+     */
+    public int closeAll(long timeoutMillis) {
+        List<WebSocketSession> snapshot = new ArrayList<>(sessions.values());
+        log.info("Initiating graceful close of {} WebSocket sessions...", snapshot.size());
+        for (WebSocketSession s : snapshot) {
+            Thread.ofVirtual().name("ws-close-" + s.getId()).start(() -> close(s));
+        }
+
+        // Wait for sessions to finish their cleanup loops (they unregister themselves)
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!sessions.isEmpty() && System.currentTimeMillis() < deadline) {
             try {
-                if (s.isOpen()) {
-                    try {
-                        s.sendClose(1001, "Server shutting down");
-                    } catch (IOException e) {
-                        // If we fail to send close, just attempt to close socket from session side
-                        log.info("Failed to send close frame to {}: {}", s.getId(), e.getMessage());
-                        try {
-                            s.closeUnderlying();
-                        } catch (Exception ex) {
-                            log.info("Failed to force-close session {}: {}", s.getId(), ex.getMessage());
-                        }
-                    }
-                }
-            } catch (Throwable t) {
-                log.info("Error while closing session {}: {}", s.getId(), t.getMessage());
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+                break;
             }
         }
 
-
-        // Wait briefly for sessions to finish their cleanup loops
-        try {
-            TimeUnit.MILLISECONDS.sleep(200);
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
+        int forced = 0;
+        for (WebSocketSession s : sessions.values()) {
+            s.closeUnderlying();
+            forced++;
         }
 
-
         // Force clear registry
         sessions.clear();
-        log.info("[SessionRegistry] closeAll completed.");
+        log.info("[SessionRegistry] closeAll completed, force-closed={}", forced);
+        return forced;
+    }
+
+    private void close(WebSocketSession s) {
+        try {
+            if (s.isOpen()) {
+                try {
+                    s.sendClose(1001, "Server shutting down");
+                } catch (IOException e) {
+                    // If we fail to send close, just attempt to close socket from session side
+                    log.info("Failed to send close frame to {}: {}", s.getId(), e.getMessage());
+                    try {
+                        s.closeUnderlying();
+                    } catch (Exception ex) {
+                        log.info("Failed to force-close session {}: {}", s.getId(), ex.getMessage());
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            log.info("Error while closing session {}: {}", s.getId(), t.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package uz.hikmatullo.httpserver.websocket;
 
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
 import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -14,9 +17,9 @@ public final class WebSocketUtils {
 
     public static boolean isWebSocketUpgrade(HttpRequest request) {
         if (request == null) return false;
-        String upgrade = request.getHeader("Upgrade");
-        String connection = request.getHeader("Connection");
-        String version = request.getHeader("Sec-WebSocket-Version");
+        String upgrade = request.getHeader(HttpHeader.UPGRADE);
+        String connection = request.getHeader(HttpHeader.CONNECTION);
+        String version = request.getHeader(HttpHeader.SEC_WEBSOCKET_VERSION);
         return upgrade != null
                 && "websocket".equalsIgnoreCase(upgrade.trim())
                 && connection != null
@@ -24,6 +27,23 @@ public final class WebSocketUtils {
                 && "13".equals(version == null ? null : version.trim());
     }
 
+    /**
+     * Builds the 101 Switching Protocols response for a valid upgrade request.
+     * Returns null if the client did not send a Sec-WebSocket-Key.
+     */
+    public static HttpResponse createHandshakeResponse(HttpRequest request) {
+        String clientKey = request.getHeader(HttpHeader.SEC_WEBSOCKET_KEY);
+        if (clientKey == null || clientKey.isEmpty()) {
+            return null;
+        }
+
+        HttpResponse response = new HttpResponse(HttpStatusCode.SWITCHING_PROTOCOLS);
+        response.addHeader(HttpHeader.UPGRADE, "websocket");
+        response.addHeader(HttpHeader.CONNECTION, "Upgrade");
+        response.addHeader(HttpHeader.SEC_WEBSOCKET_ACCEPT, computeAccept(clientKey));
+        return response;
+    }
+
     public static String computeAccept(String secWebSocketKey) {
         if (secWebSocketKey == null) throw new IllegalArgumentException("Sec-WebSocket-Key is null");
         try {
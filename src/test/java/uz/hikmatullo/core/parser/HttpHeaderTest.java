@@ -80,6 +80,33 @@ public class HttpHeaderTest {
         }
     }
 
+    @Test
+    public void testRepeatedHeadersAreCombinedAndValuesTrimmed() {
+        String rawData = """
+                GET / HTTP/1.1\r
+                HOST: localhost:8080\r
+                accept-ENCODING:   gzip\t \r
+                Accept-Encoding: br\r
+                X-Trace : abc\r
+                X-TRACE: def\r
+                \r
+                """;
+        HttpRequest request = httpParser.parse(new ByteArrayInputStream(rawData.getBytes(StandardCharsets.US_ASCII)));
+
+        assertEquals("gzip, br", request.getHeader("accept-encoding"));
+        assertEquals("abc, def", request.getHeader("x-trace"));
+        assertEquals(3, request.getHeaders().size());
+        assertTrue(request.getHeaders().containsKey("host"));
+    }
+
+    @Test
+    public void testInvalidHeader_WhereLineStartsWithWhitespace() {
+        String rawData = "GET / HTTP/1.1\r\nHost: localhost\r\n folded: value\r\n\r\n";
+        HttpParsingException e = assertThrows(HttpParsingException.class,
+                () -> httpParser.parse(new ByteArrayInputStream(rawData.getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(HttpStatusCode.BAD_REQUEST, e.getErrorCode());
+    }
+
 
 
     private InputStream generateInValidTestCase_whereColonIsMissing() {
@@ -0,0 +1,36 @@
+package uz.hikmatullo.httpserver.core;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpKeepAliveManagerTest {
+
+    private static HttpRequest request(String version, String headers) {
+        String raw = "GET / " + version + "\r\nHost: localhost\r\n" + headers + "\r\n";
+        return new HttpParser().parse(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void testCanKeepAliveAnswersAheadWithoutCounting() {
+        HttpKeepAliveManager manager = new HttpKeepAliveManager();
+        HttpRequest request = request("HTTP/1.1", "");
+
+        assertFalse(manager.canKeepAlive(request("HTTP/1.0", ""), 0));
+        assertFalse(manager.canKeepAlive(request("HTTP/1.1", "Connection: close\r\n"), 0));
+        // the request answered after MAX_REQUESTS - 1 others is the last one of the connection
+        assertTrue(manager.canKeepAlive(request, HttpKeepAliveManager.MAX_REQUESTS - 2));
+        assertFalse(manager.canKeepAlive(request, HttpKeepAliveManager.MAX_REQUESTS - 1));
+
+        for (int i = 0; i < HttpKeepAliveManager.MAX_REQUESTS - 1; i++) {
+            assertEquals(manager.canKeepAlive(request, 0), manager.shouldKeepAlive(request));
+        }
+        assertFalse(manager.canKeepAlive(request, 0));
+        assertFalse(manager.shouldKeepAlive(request));
+    }
+}
@@ -0,0 +1,96 @@
+package uz.hikmatullo.httpserver.core;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.model.BodySegment;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRangesTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+    private static final String ETAG = "\"5-14\"";
+
+    private static HttpRequest request(String headers) {
+        String raw = "GET /video.mp4 HTTP/1.1\r\nHost: localhost\r\n" + headers + "\r\n";
+        return new HttpParser().parse(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static HttpResponse evaluate(String headers) {
+        return HttpRanges.evaluate(request(headers), new BodySegment.Bytes(CONTENT), "video/mp4", ETAG, 5000);
+    }
+
+    private static String body(HttpResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.write(out);
+        String written = out.toString(StandardCharsets.ISO_8859_1);
+        return written.substring(written.indexOf("\r\n\r\n") + 4);
+    }
+
+    @Test
+    void testParsesAndMergesRanges() {
+        assertEquals(List.of(new HttpRanges.ByteRange(0, 4)), HttpRanges.parse("bytes=0-4", 20));
+        assertEquals(List.of(new HttpRanges.ByteRange(15, 19)), HttpRanges.parse("bytes=-5", 20));
+        assertEquals(List.of(new HttpRanges.ByteRange(10, 19)), HttpRanges.parse("bytes=10-", 20));
+        assertEquals(List.of(new HttpRanges.ByteRange(18, 19)), HttpRanges.parse("bytes=18-100", 20));
+        assertEquals(List.of(new HttpRanges.ByteRange(0, 7), new HttpRanges.ByteRange(12, 13)),
+                HttpRanges.parse("bytes=12-13, 0-3, 2-7", 20));
+        assertEquals(List.of(), HttpRanges.parse("bytes=20-30", 20));
+        assertEquals(List.of(), HttpRanges.parse("bytes=25-", 20));
+
+        assertNull(HttpRanges.parse("items=0-4", 20));
+        assertNull(HttpRanges.parse("bytes=5-2", 20));
+        assertNull(HttpRanges.parse("bytes=a-b", 20));
+        assertNull(HttpRanges.parse("bytes=" + "0-0,".repeat(HttpRanges.MAX_RANGES + 1), 20));
+    }
+
+    @Test
+    void testSingleRange() throws IOException {
+        HttpResponse response = evaluate("Range: bytes=2-5\r\n");
+
+        assertEquals(206, response.getStatusCode());
+        assertEquals("bytes 2-5/20", response.getHeader("Content-Range"));
+        assertEquals("4", response.getHeader("Content-Length"));
+        assertEquals("2345", body(response));
+    }
+
+    @Test
+    void testMultipleRanges() throws IOException {
+        HttpResponse response = evaluate("Range: bytes=0-1, 10-11\r\n");
+
+        assertEquals(206, response.getStatusCode());
+        String contentType = response.getHeader("Content-Type");
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        String body = body(response);
+
+        assertEquals(String.valueOf(body.length()), response.getHeader("Content-Length"));
+        assertTrue(body.contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n--" + boundary));
+        assertTrue(body.contains("Content-Range: bytes 10-11/20\r\n\r\nab\r\n--" + boundary + "--"));
+    }
+
+    @Test
+    void testUnsatisfiableRange() {
+        HttpResponse response = evaluate("Range: bytes=50-60\r\n");
+
+        assertEquals(416, response.getStatusCode());
+        assertEquals("bytes */20", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void testIfRangeFallsBackToFullBody() {
+        assertEquals(206, evaluate("Range: bytes=0-1\r\nIf-Range: " + ETAG + "\r\n").getStatusCode());
+        assertEquals(206, evaluate("Range: bytes=0-1\r\nIf-Range: Thu, 01 Jan 1970 00:00:05 GMT\r\n").getStatusCode());
+        assertNull(evaluate("Range: bytes=0-1\r\nIf-Range: \"changed\"\r\n"));
+        assertNull(evaluate("Range: bytes=0-1\r\nIf-Range: W/" + ETAG + "\r\n"));
+        assertNull(evaluate(""));
+    }
+}
@@ -0,0 +1,79 @@
+package uz.hikmatullo.httpserver.core.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticContentCacheTest {
+
+    private static CachedContent content(Path source, int size) {
+        return new CachedContent(source, new byte[size], "text/plain", 0);
+    }
+
+    @Test
+    void testCountsHitsAndMisses() throws IOException {
+        StaticContentCache cache = new StaticContentCache(1000, 100);
+        int[] loads = {0};
+        StaticContentCache.Loader loader = () -> {
+            loads[0]++;
+            return content(null, 10);
+        };
+
+        cache.get("a", loader);
+        cache.get("a", loader);
+        cache.get("a", loader);
+
+        assertEquals(1, loads[0]);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(10, cache.getTotalBytes());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedByBytes() {
+        StaticContentCache cache = new StaticContentCache(100, 100);
+        cache.put("a", content(null, 40));
+        cache.put("b", content(null, 40));
+        cache.getIfPresent("a"); // b is now the least recently used
+        cache.put("c", content(null, 40));
+
+        assertEquals(List.of("a", "c"), List.copyOf(cache.snapshot().keySet()));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(80, cache.getTotalBytes());
+    }
+
+    @Test
+    void testEntriesAboveLimitAreNotCached() throws IOException {
+        StaticContentCache cache = new StaticContentCache(1000, 50);
+
+        assertNotNull(cache.get("big", () -> content(null, 51)));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void testFileChangeInvalidatesEntry(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("page.html"), "v1");
+        StaticContentCache cache = new StaticContentCache(1000, 100);
+        cache.watch(dir);
+        try {
+            cache.put("/page.html", content(file.toAbsolutePath(), 2));
+
+            Files.writeString(file, "v2");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (cache.getIfPresent("/page.html") != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNull(cache.getIfPresent("/page.html"));
+            assertTrue(cache.getInvalidationCount() >= 1);
+        } finally {
+            cache.close();
+        }
+    }
+}
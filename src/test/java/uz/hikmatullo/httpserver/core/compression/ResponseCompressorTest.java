@@ -0,0 +1,146 @@
+package uz.hikmatullo.httpserver.core.compression;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uz.hikmatullo.httpserver.core.cache.CachedContent;
+import uz.hikmatullo.httpserver.core.model.FileRegion;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressorTest {
+
+    private static final String TEXT = "<p>compress me</p>\n".repeat(200);
+
+    private final ResponseCompressor compressor = new ResponseCompressor(1024, 6);
+
+    private static HttpRequest request(String acceptEncoding) {
+        String raw = "GET / HTTP/1.1\r\nHost: localhost\r\n" +
+                (acceptEncoding != null ? "Accept-Encoding: " + acceptEncoding + "\r\n" : "") + "\r\n";
+        return new HttpParser().parse(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static HttpResponse response(String contentType, String body) {
+        HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+        response.addHeader("Content-Type", contentType);
+        response.setBody(body.getBytes(StandardCharsets.UTF_8));
+        return response;
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testNegotiatesByQualityThenServerPreference() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("deflate, gzip"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0, *"));
+        assertNull(ContentCoding.negotiate("br"));
+        assertNull(ContentCoding.negotiate("gzip;q=0"));
+        assertNull(ContentCoding.negotiate(null));
+    }
+
+    @Test
+    void testCompressesTextForGzipClient() throws IOException {
+        HttpResponse response = response("text/html; charset=UTF-8", TEXT);
+
+        compressor.apply(request("gzip, deflate"), response);
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(String.valueOf(response.getBody().length), response.getHeader("Content-Length"));
+        assertTrue(response.getBody().length < TEXT.length() / 5);
+        assertEquals(TEXT, gunzip(response.getBody()));
+    }
+
+    @Test
+    void testLeavesSmallAndBinaryBodiesAlone() {
+        HttpResponse small = response("application/json", "{\"ok\":true}");
+        HttpResponse image = response("image/png", TEXT);
+
+        compressor.apply(request("gzip"), small);
+        compressor.apply(request("gzip"), image);
+
+        assertNull(small.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", small.getHeader("Vary"));
+        assertNull(image.getHeader("Content-Encoding"));
+        assertNull(image.getHeader("Vary"));
+    }
+
+    @Test
+    void testIdentityWithoutAcceptEncoding() {
+        HttpResponse response = response("text/plain", TEXT);
+
+        compressor.apply(request(null), response);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(TEXT, new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCachedContentIsCompressedOnce() {
+        CachedContent content = new CachedContent(null, TEXT.getBytes(StandardCharsets.UTF_8), "text/plain", 0);
+
+        HttpResponse first = content.toResponse(HttpStatusCode.OK, false);
+        HttpResponse second = content.toResponse(HttpStatusCode.OK, false);
+        compressor.apply(request("gzip"), first);
+        compressor.apply(request("gzip"), second);
+
+        assertSame(first.getBody(), second.getBody());
+        assertEquals("gzip", second.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    void testServesGzipSidecar(@TempDir Path dir) throws IOException {
+        Path file = Files.writeString(dir.resolve("app.js"), TEXT);
+        Path sidecar = Files.write(dir.resolve("app.js.gz"), ContentCoding.GZIP.encode(TEXT.getBytes(StandardCharsets.UTF_8), 9));
+        HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+        response.addHeader("Content-Type", "text/javascript");
+        response.setBody(new FileRegion(file, 0, Files.size(file)));
+
+        compressor.apply(request("gzip"), response);
+
+        assertEquals(sidecar, response.getFileBody().getPath());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals(String.valueOf(Files.size(sidecar)), response.getHeader("Content-Length"));
+    }
+
+    @Test
+    void testHeadDescribesTheEncodedGetResponse(@TempDir Path dir) throws IOException {
+        CachedContent content = new CachedContent(null, TEXT.getBytes(StandardCharsets.UTF_8), "text/plain", 0);
+        HttpResponse get = content.toResponse(HttpStatusCode.OK, false);
+        HttpResponse head = content.toResponse(HttpStatusCode.OK, true);
+        compressor.apply(request("gzip"), get);
+        compressor.apply(request("gzip"), head);
+
+        assertEquals(0, head.getBody().length);
+        assertEquals("gzip", head.getHeader("Content-Encoding"));
+        assertEquals(get.getHeader("Content-Length"), head.getHeader("Content-Length"));
+        assertEquals(get.getHeader("ETag"), head.getHeader("ETag"));
+
+        Path file = Files.writeString(dir.resolve("app.js"), TEXT);
+        Path sidecar = Files.write(dir.resolve("app.js.gz"), ContentCoding.GZIP.encode(TEXT.getBytes(StandardCharsets.UTF_8), 9));
+        HttpResponse headOfFile = new HttpResponse(HttpStatusCode.OK);
+        headOfFile.addHeader("Content-Type", "text/javascript");
+        headOfFile.setHeadOnlyBody(new FileRegion(file, 0, Files.size(file)));
+
+        compressor.apply(request("gzip"), headOfFile);
+
+        assertNull(headOfFile.getFileBody());
+        assertEquals("gzip", headOfFile.getHeader("Content-Encoding"));
+        assertEquals(String.valueOf(Files.size(sidecar)), headOfFile.getHeader("Content-Length"));
+    }
+}
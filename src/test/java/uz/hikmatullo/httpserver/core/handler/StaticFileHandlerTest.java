@@ -0,0 +1,133 @@
+package uz.hikmatullo.httpserver.core.handler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticFileHandlerTest {
+
+    @TempDir
+    Path dir;
+
+    private StaticFileHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path webroot = Files.createDirectories(dir.resolve("www"));
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectories(webroot.resolve("css"));
+        Files.writeString(webroot.resolve("css/site.css"), "body{}");
+        Files.writeString(dir.resolve("secret.txt"), "secret");
+        handler = new StaticFileHandler(webroot);
+    }
+
+    private static HttpRequest request(String method, String path) {
+        return request(method, path, "");
+    }
+
+    private static HttpRequest request(String method, String path, String headers) {
+        String raw = method + " " + path + " HTTP/1.1\r\nHost: localhost\r\n" + headers + "\r\n";
+        return new HttpParser().parse(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String written(HttpResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.write(out);
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void testServesFileWithoutLoadingIt() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css"));
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("text/css", response.getHeader("Content-Type"));
+        assertEquals("6", response.getHeader("Content-Length"));
+        assertEquals(0, response.getBody().length);
+        assertNotNull(response.getFileBody());
+        assertTrue(written(response).endsWith("\r\n\r\nbody{}"));
+    }
+
+    @Test
+    void testDirectoryServesIndex() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/"));
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("text/html", response.getHeader("Content-Type"));
+        assertTrue(written(response).endsWith("<h1>home</h1>"));
+    }
+
+    @Test
+    void testHeadHasLengthButNoBody() throws IOException {
+        HttpResponse response = handler.handle(request("HEAD", "/index.html"));
+
+        assertEquals("13", response.getHeader("Content-Length"));
+        assertTrue(written(response).endsWith("\r\n\r\n"));
+    }
+
+    @Test
+    void testPathsOutsideWebrootAreNotFound() {
+        assertEquals(404, handler.handle(request("GET", "/../secret.txt")).getStatusCode());
+        assertEquals(404, handler.handle(request("GET", "/css/%2e%2e/%2e%2e/secret.txt")).getStatusCode());
+        assertEquals(404, handler.handle(request("GET", "/missing.html")).getStatusCode());
+    }
+
+    @Test
+    void testLinksOutOfWebrootAreNotFound() throws IOException {
+        Path webroot = dir.resolve("www");
+        Files.createSymbolicLink(webroot.resolve("leak.txt"), dir.resolve("secret.txt"));
+        Files.createSymbolicLink(webroot.resolve("up"), dir);
+        Files.createSymbolicLink(webroot.resolve("style.css"), webroot.resolve("css/site.css"));
+
+        assertEquals(404, handler.handle(request("GET", "/leak.txt")).getStatusCode());
+        assertEquals(404, handler.handle(request("GET", "/up/secret.txt")).getStatusCode());
+        // a link that stays inside is fine, and so is a root that is reached through a link
+        assertEquals(200, handler.handle(request("GET", "/style.css")).getStatusCode());
+        StaticFileHandler linkedRoot = new StaticFileHandler(Files.createSymbolicLink(dir.resolve("site"), webroot));
+        assertEquals(200, linkedRoot.handle(request("GET", "/css/site.css")).getStatusCode());
+    }
+
+    @Test
+    void testOnlyGetAndHead() {
+        HttpResponse response = handler.handle(request("DELETE", "/index.html"));
+
+        assertEquals(405, response.getStatusCode());
+        assertEquals("GET, HEAD", response.getHeader("Allow"));
+    }
+
+    @Test
+    void testMatchingEtagAnswersNotModified() throws IOException {
+        String etag = handler.handle(request("GET", "/css/site.css")).getHeader("ETag");
+        assertNotNull(etag);
+
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "If-None-Match: \"other\", " + etag + "\r\n"));
+
+        assertEquals(304, response.getStatusCode());
+        assertEquals(etag, response.getHeader("ETag"));
+        assertNull(response.getFileBody());
+        assertTrue(written(response).endsWith("\r\n\r\n"));
+    }
+
+    @Test
+    void testIfModifiedSince() {
+        String lastModified = handler.handle(request("GET", "/index.html")).getHeader("Last-Modified");
+
+        assertEquals(304, handler.handle(request("GET", "/index.html", "If-Modified-Since: " + lastModified + "\r\n")).getStatusCode());
+        assertEquals(200, handler.handle(request("GET", "/index.html", "If-Modified-Since: Thu, 01 Jan 1970 00:00:00 GMT\r\n")).getStatusCode());
+        // If-None-Match takes precedence
+        assertEquals(200, handler.handle(request("GET", "/index.html",
+                "If-None-Match: \"stale\"\r\nIf-Modified-Since: " + lastModified + "\r\n")).getStatusCode());
+    }
+}
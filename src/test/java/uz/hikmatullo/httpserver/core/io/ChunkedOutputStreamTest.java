@@ -0,0 +1,90 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedOutputStreamTest {
+
+    private static String written(ByteArrayOutputStream out) {
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void testCollectsWritesIntoChunks() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedOutputStream chunked = new ChunkedOutputStream(out, 8);
+
+        chunked.write("abc".getBytes(StandardCharsets.US_ASCII));
+        chunked.write("defgh".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("", written(out));
+        chunked.write("ijklmnopqrstu".getBytes(StandardCharsets.US_ASCII));
+        chunked.finish(Map.of());
+
+        assertEquals("8\r\nabcdefgh\r\nd\r\nijklmnopqrstu\r\n0\r\n\r\n", written(out));
+    }
+
+    @Test
+    void testFlushSendsPendingChunk() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+
+        chunked.write('x');
+        chunked.flush();
+
+        assertEquals("1\r\nx\r\n", written(out));
+    }
+
+    @Test
+    void testTrailersFollowLastChunk() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+
+        chunked.write("data".getBytes(StandardCharsets.US_ASCII));
+        chunked.finish(Map.of("X-Checksum", "42"));
+
+        assertEquals("4\r\ndata\r\n0\r\nX-Checksum: 42\r\n\r\n", written(out));
+        assertThrows(IOException.class, () -> chunked.write('y'));
+    }
+
+    @Test
+    void testStreamingResponseIsChunked() throws IOException {
+        HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+        response.setBody(body -> {
+            body.write("hello".getBytes(StandardCharsets.US_ASCII));
+            response.addTrailer("X-Count", "1");
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        response.write(out);
+
+        String written = written(out);
+        assertTrue(response.isChunked());
+        assertNull(response.getHeader("Content-Length"));
+        assertTrue(written.contains("Transfer-Encoding: chunked\r\n"));
+        assertTrue(written.endsWith("\r\n\r\n5\r\nhello\r\n0\r\nX-Count: 1\r\n\r\n"));
+    }
+
+    @Test
+    void testStreamingResponseWithKnownLength() throws IOException {
+        HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+        response.setBody(body -> body.write("hello".getBytes(StandardCharsets.US_ASCII)), 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        response.write(out);
+
+        assertFalse(response.isChunked());
+        assertTrue(written(out).endsWith("Content-Length: 5\r\n\r\nhello"));
+
+        HttpResponse wrongLength = new HttpResponse(HttpStatusCode.OK);
+        wrongLength.setBody(body -> body.write("hello".getBytes(StandardCharsets.US_ASCII)), 4);
+        assertThrows(IOException.class, () -> wrongLength.write(new ByteArrayOutputStream()));
+    }
+}
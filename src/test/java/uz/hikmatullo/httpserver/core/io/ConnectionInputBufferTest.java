@@ -0,0 +1,118 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionInputBufferTest {
+
+    /**
+     * Counts read calls and hands out at most {@code chunk} bytes per call, like a socket delivering segments.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final int chunk;
+        int reads;
+
+        CountingInputStream(String data, int chunk) {
+            super(new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1)));
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read() throws IOException {
+            reads++;
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            reads++;
+            return super.read(b, off, Math.min(len, chunk));
+        }
+    }
+
+    @Test
+    void testPipelinedRequestsParsedFromOneBuffer() {
+        String pipelined = "GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                "POST /second HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\nContent-Length: 5\r\n\r\nhello" +
+                "GET /third HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        CountingInputStream socket = new CountingInputStream(pipelined, Integer.MAX_VALUE);
+        ConnectionInputBuffer buffer = new ConnectionInputBuffer(socket);
+        HttpParser parser = new HttpParser();
+
+        assertEquals("/first", parser.parse(buffer).getPath());
+        HttpRequest second = parser.parse(buffer);
+        assertEquals("/second", second.getPath());
+        assertEquals("hello", second.getBody());
+        assertEquals("/third", parser.parse(buffer).getPath());
+        assertNull(parser.parse(buffer));
+
+        // one read for all three requests, one more to see EOF
+        assertEquals(2, socket.reads);
+    }
+
+    @Test
+    void testHasCompleteHeadOnlyLooksAtBufferedBytes() throws IOException {
+        ConnectionInputBuffer buffer = new ConnectionInputBuffer(new CountingInputStream(
+                "GET /a HTTP/1.1\r\nHost: x\r\n\r\nGET /b HTTP/1.1\r\nHo", Integer.MAX_VALUE));
+
+        assertFalse(buffer.hasCompleteHead());
+        assertEquals("GET /a HTTP/1.1", buffer.readLine(100, false));
+        assertTrue(buffer.hasCompleteHead());
+        assertEquals("Host: x", buffer.readLine(100, false));
+        assertEquals("", buffer.readLine(100, false));
+        // only a partial head of the next request is buffered
+        assertFalse(buffer.hasCompleteHead());
+    }
+
+    @Test
+    void testLineSplitAcrossReads() throws IOException {
+        ConnectionInputBuffer buffer = new ConnectionInputBuffer(new CountingInputStream("Host: localhost\r\nX: y\r\n", 3));
+
+        assertEquals("Host: localhost", buffer.readLine(100, false));
+        assertEquals("X: y", buffer.readLine(100, false));
+        assertNull(buffer.readLine(100, true));
+    }
+
+    @Test
+    void testLineLongerThanBufferGrowsIt() throws IOException {
+        String longValue = "a".repeat(300);
+        ConnectionInputBuffer buffer = new ConnectionInputBuffer(new CountingInputStream(longValue + "\r\nrest", 50), 64);
+
+        assertEquals(longValue, buffer.readLine(1000, false));
+        assertEquals(4, buffer.available());
+    }
+
+    @Test
+    void testStrictLineEndings() {
+        HttpParsingException bareLf = assertThrows(HttpParsingException.class,
+                () -> new ConnectionInputBuffer(stream("GET / HTTP/1.1\n")).readLine(100, false));
+        assertEquals(HttpStatusCode.BAD_REQUEST, bareLf.getErrorCode());
+
+        HttpParsingException bareCr = assertThrows(HttpParsingException.class,
+                () -> new ConnectionInputBuffer(stream("GET /\rx")).readLine(100, false));
+        assertEquals(HttpStatusCode.BAD_REQUEST, bareCr.getErrorCode());
+
+        HttpParsingException tooLong = assertThrows(HttpParsingException.class,
+                () -> new ConnectionInputBuffer(stream("x".repeat(200) + "\r\n")).readLine(100, false));
+        assertEquals(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, tooLong.getErrorCode());
+
+        HttpParsingException truncated = assertThrows(HttpParsingException.class,
+                () -> new ConnectionInputBuffer(stream("GET /")).readLine(100, true));
+        assertEquals(HttpStatusCode.BAD_REQUEST, truncated.getErrorCode());
+    }
+
+    private static InputStream stream(String data) {
+        return new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,130 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestBodyInputStreamTest {
+
+    private static ConnectionInputBuffer buffer(String data) {
+        return new ConnectionInputBuffer(new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void testFixedLengthStopsAtContentLength() throws IOException {
+        ConnectionInputBuffer connection = buffer("helloGET /next");
+        FixedLengthInputStream body = new FixedLengthInputStream(connection, 5);
+
+        assertEquals("hello", readAll(body));
+        assertTrue(body.isFinished());
+        assertEquals(-1, body.read());
+        assertEquals("GET /next", readAll(connection));
+    }
+
+    @Test
+    void testFixedLengthFailsOnEarlyEof() {
+        FixedLengthInputStream body = new FixedLengthInputStream(buffer("hel"), 5);
+
+        assertThrows(HttpParsingException.class, body::readAllBytes);
+    }
+
+    @Test
+    void testChunkedIsDecodedWhileRead() throws IOException {
+        ConnectionInputBuffer connection = buffer("4;ext=1\r\nWiki\r\n5\r\npedia\r\n0\r\nX-Sum: 9\r\n\r\nNEXT");
+        ChunkedInputStream body = new ChunkedInputStream(connection);
+
+        byte[] first = new byte[3];
+        assertEquals(3, body.read(first));
+        assertEquals("Wik", new String(first, StandardCharsets.ISO_8859_1));
+        assertFalse(body.isFinished());
+
+        assertEquals("ipedia", readAll(body));
+        assertTrue(body.isFinished());
+        assertEquals("9", body.getTrailers().get("x-sum"));
+        assertEquals("NEXT", readAll(connection));
+    }
+
+    @Test
+    void testChunkedRejectsBadFraming() {
+        assertThrows(HttpParsingException.class, () -> new ChunkedInputStream(buffer("4\r\nWikiXX0\r\n\r\n")).readAllBytes());
+        assertThrows(HttpParsingException.class, () -> new ChunkedInputStream(buffer("zz\r\n")).readAllBytes());
+        assertThrows(HttpParsingException.class, () -> new ChunkedInputStream(buffer("-4\r\nWiki\r\n0\r\n\r\n")).readAllBytes());
+        assertThrows(HttpParsingException.class, () -> new ChunkedInputStream(buffer("4\r\nWi")).readAllBytes());
+    }
+
+    @Test
+    void testDrainStopsAtLimit() throws IOException {
+        assertTrue(new FixedLengthInputStream(buffer("x".repeat(100)), 100).drain(1000));
+        assertFalse(new FixedLengthInputStream(buffer("x".repeat(100_000)), 100_000).drain(1000));
+        assertTrue(new ChunkedInputStream(buffer("3\r\nabc\r\n0\r\n\r\n")).drain(3));
+        assertFalse(new ChunkedInputStream(buffer("3\r\nabc\r\n0\r\n\r\n")).drain(2));
+    }
+
+    @Test
+    void testParserLeavesBodyOnConnection() throws IOException {
+        ConnectionInputBuffer connection = buffer("""
+                POST /upload HTTP/1.1\r
+                Host: localhost\r
+                Content-Type: application/octet-stream\r
+                Transfer-Encoding: chunked\r
+                \r
+                3\r
+                abc\r
+                0\r
+                \r
+                GET /next HTTP/1.1\r
+                Host: localhost\r
+                \r
+                """);
+        HttpParser parser = new HttpParser(true);
+
+        HttpRequest upload = parser.parse(connection);
+        assertTrue(upload.isBodyStreamed());
+        assertEquals("abc", readAll(upload.getBodyStream()));
+        assertThrows(IllegalStateException.class, upload::getBody);
+        assertTrue(upload.drainBody(0));
+
+        HttpRequest next = parser.parse(connection);
+        assertEquals("/next", next.getPath());
+        assertFalse(next.isBodyStreamed());
+        assertEquals(-1, next.getBodyStream().read());
+    }
+
+    @Test
+    void testUnreadBodyIsDrainedOrReadByGetBody() throws IOException {
+        String request = """
+                POST /data HTTP/1.1\r
+                Host: localhost\r
+                Content-Type: text/plain; charset=ISO-8859-1\r
+                Content-Length: 4\r
+                \r
+                caféGET /next HTTP/1.1\r
+                Host: localhost\r
+                \r
+                """;
+        HttpParser parser = new HttpParser(true);
+
+        ConnectionInputBuffer connection = buffer(request);
+        HttpRequest ignored = parser.parse(connection);
+        assertTrue(ignored.drainBody(1024));
+        assertEquals("/next", parser.parse(connection).getPath());
+
+        connection = buffer(request);
+        HttpRequest read = parser.parse(connection);
+        assertEquals("café", read.getBody());
+        assertEquals("café", read.getBody());
+        assertEquals("/next", parser.parse(connection).getPath());
+    }
+}
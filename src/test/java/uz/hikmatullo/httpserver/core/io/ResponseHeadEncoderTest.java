@@ -0,0 +1,67 @@
+package uz.hikmatullo.httpserver.core.io;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.HttpDates;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseHeadEncoderTest {
+
+    private static String encoded(HttpResponse response) {
+        return new String(ResponseHeadEncoder.encode(response), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testEncodesStatusLineAndHeaders() {
+        HttpResponse response = new HttpResponse(HttpStatusCode.NOT_FOUND);
+        response.setProtocol("HTTP/1.1");
+        response.addHeader("Content-Type", "text/plain");
+        response.addHeader("X-Request-Id", "abc-123");
+        response.addHeader("Content-Length", "0");
+
+        assertEquals("HTTP/1.1 404 Not Found\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "X-Request-Id: abc-123\r\n" +
+                "Content-Length: 0\r\n\r\n", encoded(response));
+    }
+
+    @Test
+    void testHeadWithoutHeaders() {
+        HttpResponse response = new HttpResponse(HttpStatusCode.NO_CONTENT);
+
+        assertEquals("HTTP/1.1 204 No Content\r\n\r\n", encoded(response));
+    }
+
+    @Test
+    void testOtherProtocolIsKept() {
+        HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+        response.setProtocol("HTTP/1.0");
+        response.addHeader("Connection", "close");
+
+        assertEquals("HTTP/1.0 200 OK\r\nConnection: close\r\n\r\n", encoded(response));
+    }
+
+    @Test
+    void testNonAsciiValueIsUtf8() {
+        HttpResponse response = new HttpResponse(HttpStatusCode.OK);
+        response.addHeader("Content-Disposition", "attachment; filename=\"résumé.pdf\"");
+
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Disposition: attachment; filename=\"résumé.pdf\"\r\n\r\n",
+                encoded(response));
+    }
+
+    @Test
+    void testHttpDateIsFixedLength() {
+        // 5 Jan 2024: the day of month is padded
+        assertEquals("Fri, 05 Jan 2024 08:09:10 GMT", HttpDates.format(1704442150000L));
+        assertEquals(1704442150000L, HttpDates.parse("Fri, 05 Jan 2024 08:09:10 GMT"));
+        assertEquals(1704442150000L, HttpDates.parse("Fri, 5 Jan 2024 08:09:10 GMT"));
+        assertEquals(-1, HttpDates.parse("yesterday"));
+        assertEquals(29, HttpDates.now().length());
+        assertSame(HttpDates.now(), HttpDates.now());
+    }
+}
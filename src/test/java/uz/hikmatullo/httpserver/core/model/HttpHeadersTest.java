@@ -0,0 +1,133 @@
+package uz.hikmatullo.httpserver.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpHeadersTest {
+
+    private static List<String> names(HttpHeaders headers) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < headers.size(); i++) names.add(headers.nameAt(i));
+        return names;
+    }
+
+    @Test
+    void testKeepsInsertionOrderAndReplacesInPlace() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeader.CONTENT_TYPE, "text/plain");
+        headers.set("X-Request-Id", "abc");
+        headers.set("content-length", "0");
+        headers.set("Content-Type", "text/html");
+        headers.set("x-request-id", "def");
+
+        assertEquals(List.of("Content-Type", "X-Request-Id", "Content-Length"), names(headers));
+        assertEquals("text/html", headers.get(HttpHeader.CONTENT_TYPE));
+        assertEquals("def", headers.get("X-REQUEST-ID"));
+        assertEquals(HttpHeader.CONTENT_LENGTH, headers.headerAt(2));
+        assertNull(headers.headerAt(1));
+        assertEquals(3, headers.size());
+    }
+
+    @Test
+    void testRemoveKeepsTheOthersFindable() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeader.TRANSFER_ENCODING, "chunked");
+        headers.set("X-A", "1");
+        headers.set(HttpHeader.DATE, "now");
+        headers.set("X-B", "2");
+
+        assertEquals("chunked", headers.remove(HttpHeader.TRANSFER_ENCODING));
+        assertNull(headers.remove(HttpHeader.TRANSFER_ENCODING));
+        assertEquals("1", headers.remove("x-a"));
+
+        assertEquals(List.of("Date", "X-B"), names(headers));
+        assertEquals("now", headers.get(HttpHeader.DATE));
+        assertEquals("2", headers.get("X-B"));
+        assertFalse(headers.contains(HttpHeader.TRANSFER_ENCODING));
+
+        headers.set(HttpHeader.TRANSFER_ENCODING, "chunked");
+        assertEquals(List.of("Date", "X-B", "Transfer-Encoding"), names(headers));
+    }
+
+    @Test
+    void testRequestHeadersAreLowerCaseAndCombined() {
+        HttpHeaders headers = new HttpHeaders(true);
+        headers.add(HttpHeader.ACCEPT_ENCODING, "gzip");
+        headers.add("X-Trace", "a");
+        headers.add("Accept-Encoding", "br");
+        headers.add("x-trace", "b");
+
+        assertEquals(Map.of("accept-encoding", "gzip, br", "x-trace", "a, b"), headers);
+        assertTrue(headers.containsKey("ACCEPT-ENCODING"));
+        assertEquals("a, b", headers.get("X-TRACE"));
+        assertNull(headers.get("x-tracer"));
+        assertNull(headers.get(HttpHeader.HOST));
+    }
+
+    @Test
+    void testByteValuesAreCopiedAndBecomeStringsOnce() {
+        byte[] line = "xx gzip br a b".getBytes(StandardCharsets.US_ASCII);
+        HttpHeaders headers = new HttpHeaders(true);
+        headers.add(HttpHeader.ACCEPT_ENCODING, line, 3, 4);
+        headers.add("X-Trace", line, 11, 1);
+        headers.add("accept-encoding", line, 8, 2);
+        headers.add("x-trace", line, 13, 1);
+        for (int i = 0; i < 20; i++) headers.add("X-Header-" + i, line, 0, 2);
+        // the connection buffer is reused for what follows
+        line[3] = 'z';
+
+        String acceptEncoding = headers.get(HttpHeader.ACCEPT_ENCODING);
+        assertEquals("gzip, br", acceptEncoding);
+        assertSame(acceptEncoding, headers.get("Accept-Encoding"));
+        assertEquals("a, b", headers.get("x-trace"));
+        assertEquals("xx", headers.valueAt(21));
+        assertEquals("xx", headers.remove("x-header-0"));
+        assertEquals("xx", headers.get("x-header-19"));
+        assertEquals("xx", headers.set("x-header-18", "yy"));
+        assertEquals("yy", headers.get("x-header-18"));
+
+        headers.clear();
+        headers.add(HttpHeader.HOST, "localhost".getBytes(StandardCharsets.US_ASCII), 0, 9);
+        assertEquals(Map.of("host", "localhost"), headers);
+    }
+
+    @Test
+    void testMapView() {
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < 40; i++) headers.put("X-Header-" + i, String.valueOf(i));
+        headers.put("Host", "localhost");
+
+        Iterator<Map.Entry<String, String>> entries = headers.entrySet().iterator();
+        int seen = 0;
+        while (entries.hasNext()) {
+            Map.Entry<String, String> entry = entries.next();
+            if (entry.getKey().startsWith("X-")) {
+                assertEquals("X-Header-" + seen, entry.getKey());
+                entries.remove();
+            }
+            seen++;
+        }
+        assertEquals(41, seen);
+        assertEquals(Map.of("Host", "localhost"), headers);
+
+        headers.clear();
+        assertTrue(headers.isEmpty());
+        assertNull(headers.get(HttpHeader.HOST));
+    }
+
+    @Test
+    void testMatchesNamesByBytes() {
+        byte[] line = "xxCONTENT-type".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(HttpHeader.CONTENT_TYPE, HttpHeader.match(line, 2, 12));
+        assertNull(HttpHeader.match(line, 0, 12));
+        assertEquals(HttpHeader.TE, HttpHeader.of("te"));
+        assertNull(HttpHeader.of("Sec-WebSocket-Extensions-And-More"));
+    }
+}
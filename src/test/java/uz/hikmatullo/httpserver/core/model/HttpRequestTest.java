@@ -0,0 +1,105 @@
+package uz.hikmatullo.httpserver.core.model;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRequestTest {
+
+    private static HttpRequest parse(HttpParser parser, String raw) {
+        return parser.parse(new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String formPost(String body) {
+        return "POST /form HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Type: application/x-www-form-urlencoded; charset=UTF-8\r\n" +
+                "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n" +
+                "\r\n" + body;
+    }
+
+    @Test
+    void testQueryParametersAreDecodedOnDemand() {
+        HttpRequest request = parse(new HttpParser(),
+                "GET /search?q=two+words&tag=%C3%BC&&flag&bad=%zz HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+        assertEquals("q=two+words&tag=%C3%BC&&flag&bad=%zz", request.getRawQuery());
+        Map<String, String> parameters = request.getParameters();
+        assertEquals(Map.of("q", "two words", "tag", "ü", "flag", "", "bad", "%zz"), parameters);
+        // memoized
+        assertSame(parameters, request.getParameters());
+        assertThrows(UnsupportedOperationException.class, () -> parameters.put("x", "y"));
+    }
+
+    @Test
+    void testCookies() {
+        HttpRequest request = parse(new HttpParser(),
+                "GET / HTTP/1.1\r\nHost: localhost\r\nCookie: theme=dark;  session = 4f1c=x ; novalue\r\n\r\n");
+
+        assertEquals(Map.of("theme", "dark", "session", "4f1c=x"), request.getCookies());
+        assertEquals("dark", request.getCookie("theme"));
+        assertTrue(parse(new HttpParser(), "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n").getCookies().isEmpty());
+    }
+
+    @Test
+    void testUrlEncodedFormFields() {
+        HttpRequest request = parse(new HttpParser(), formPost("name=Ali+Valiyev&city=Toshkent&note=a%26b%3Dc"));
+
+        assertEquals("Ali Valiyev", request.getFormField("name"));
+        assertEquals("a&b=c", request.getFormField("note"));
+        assertEquals(3, request.getFormFields().size());
+        // query parameters stay separate
+        assertTrue(request.getParameters().isEmpty());
+        assertEquals("name=Ali+Valiyev&city=Toshkent&note=a%26b%3Dc", request.getBody());
+    }
+
+    @Test
+    void testStreamedUrlEncodedBodyIsReadForFormFields() {
+        HttpRequest request = parse(new HttpParser(true), formPost("a=1&b=2"));
+
+        assertTrue(request.isBodyStreamed());
+        assertEquals(Map.of("a", "1", "b", "2"), request.getFormFields());
+    }
+
+    @Test
+    void testOtherBodiesHaveNoFormFields() {
+        String json = "{\"a\":1}";
+        HttpRequest request = parse(new HttpParser(), "POST /api HTTP/1.1\r\nHost: localhost\r\n" +
+                "Content-Type: application/json\r\nContent-Length: " + json.length() + "\r\n\r\n" + json);
+
+        assertTrue(request.getFormFields().isEmpty());
+        assertEquals(json, request.getBody());
+    }
+
+    @Test
+    void testBuilderReusesTheHeaderStorageOfRecycledRequests() {
+        HttpRequest.Builder builder = new HttpRequest.Builder().reset();
+        HttpHeaders storage = builder.headers();
+        builder.headers().add(HttpHeader.HOST, "localhost");
+        HttpRequest first = builder.build();
+
+        // still held by the request: the next one gets its own
+        builder.reset();
+        assertNotSame(storage, builder.headers());
+        HttpRequest second = builder.build();
+
+        builder.recycle(first, false);
+        builder.reset();
+        assertSame(storage, builder.headers());
+        assertTrue(builder.headers().isEmpty());
+        assertNull(builder.headers().get(HttpHeader.HOST));
+
+        builder.build();
+        builder.recycle(second, false);
+        // recycling twice hands the storage out once
+        builder.recycle(second, false);
+        HttpHeaders reused = builder.reset().headers();
+        builder.build();
+        assertNotSame(reused, builder.reset().headers());
+    }
+}
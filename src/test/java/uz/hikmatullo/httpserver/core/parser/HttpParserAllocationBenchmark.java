@@ -0,0 +1,83 @@
+package uz.hikmatullo.httpserver.core.parser;
+
+import uz.hikmatullo.httpserver.core.io.ConnectionInputBuffer;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures heap bytes allocated per parsed request on a keep-alive connection (one connection buffer and
+ * parser, many requests), using the per-thread allocation counter of HotSpot. Not a unit test: run it with
+ * {@code java -cp target/classes:target/test-classes uz.hikmatullo.httpserver.core.parser.HttpParserAllocationBenchmark}.
+ */
+public class HttpParserAllocationBenchmark {
+
+    // what a browser sends for a page; 14 header lines
+    private static final String BROWSER_REQUEST = """
+            GET /products?page=2&sort=price HTTP/1.1\r
+            Host: shop.example.com\r
+            Connection: keep-alive\r
+            Cache-Control: max-age=0\r
+            sec-ch-ua: "Chromium";v="124", "Not-A.Brand";v="99"\r
+            sec-ch-ua-mobile: ?0\r
+            Upgrade-Insecure-Requests: 1\r
+            User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36\r
+            Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r
+            Sec-Fetch-Site: same-origin\r
+            Sec-Fetch-Mode: navigate\r
+            Referer: https://shop.example.com/products\r
+            Accept-Encoding: gzip, deflate, br\r
+            Accept-Language: en-US,en;q=0.9\r
+            Cookie: session=4f1c2a9e; theme=dark\r
+            \r
+            """;
+
+    private static final int REQUESTS_PER_ROUND = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        byte[] round = BROWSER_REQUEST.repeat(REQUESTS_PER_ROUND).getBytes(StandardCharsets.ISO_8859_1);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            parseAll(round);
+        }
+
+        long bytes = 0;
+        long nanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            InputStream input = new ByteArrayInputStream(round);
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            parseAll(input);
+            nanos += System.nanoTime() - start;
+            bytes += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        }
+        long requests = (long) REQUESTS_PER_ROUND * MEASURED_ROUNDS;
+        System.out.printf("%d bytes allocated per request, %d ns per request%n", bytes / requests, nanos / requests);
+    }
+
+    private static void parseAll(byte[] round) {
+        parseAll(new ByteArrayInputStream(round));
+    }
+
+    private static void parseAll(InputStream input) {
+        HttpParser parser = new HttpParser();
+        ConnectionInputBuffer buffer = new ConnectionInputBuffer(input);
+        int parsed = 0;
+        HttpRequest request;
+        while ((request = parser.parse(buffer)) != null) {
+            if (request.getHeader("host") == null) throw new IllegalStateException("parse failed");
+            // as a connection does once the response is sent
+            parser.recycle(request);
+            parsed++;
+        }
+        if (parsed != REQUESTS_PER_ROUND) throw new IllegalStateException("parsed " + parsed);
+    }
+}
@@ -0,0 +1,74 @@
+package uz.hikmatullo.httpserver.core.parser;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.io.ConnectionInputBuffer;
+import uz.hikmatullo.httpserver.core.model.HttpHeader;
+import uz.hikmatullo.httpserver.core.model.HttpMethod;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpVersion;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpParserRecyclingTest {
+
+    private static final String PIPELINED =
+            "GET /a?x=1 HTTP/1.1\r\nHost: localhost\r\nX-Trace: first\r\nAccept: */*\r\n\r\n" +
+            "POST /b HTTP/1.0\r\nHost: localhost\r\nContent-Type: text/plain\r\nContent-Length: 2\r\n\r\nhi";
+
+    private static ConnectionInputBuffer connection(String raw) {
+        return new ConnectionInputBuffer(new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void testNoHeadersLeakIntoTheNextRequest() {
+        HttpParser parser = new HttpParser(false, 256 * 1024, null, true, false);
+        ConnectionInputBuffer input = connection(PIPELINED);
+
+        HttpRequest first = parser.parse(input);
+        assertEquals(HttpMethod.GET, first.getMethod());
+        assertEquals("first", first.getHeader("x-trace"));
+        parser.recycle(first);
+        // harmless without detection
+        parser.recycle(first);
+
+        HttpRequest second = parser.parse(input);
+        assertEquals(HttpMethod.POST, second.getMethod());
+        assertEquals(HttpVersion.HTTP_1_0, second.getHttpVersion());
+        assertEquals("/b", second.getPath());
+        assertNull(second.getRawQuery());
+        assertEquals(Map.of("host", "localhost", "content-type", "text/plain", "content-length", "2"), second.getHeaders());
+        assertNull(second.getHeader(HttpHeader.ACCEPT));
+        assertEquals("hi", second.getBody());
+    }
+
+    @Test
+    void testDetectsARequestUsedAfterItWasRecycled() {
+        HttpParser parser = new HttpParser(false, 256 * 1024, null, true, true);
+        ConnectionInputBuffer input = connection(PIPELINED);
+
+        HttpRequest first = parser.parse(input);
+        parser.recycle(first);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> first.getHeader(HttpHeader.HOST));
+        assertTrue(e.getMessage().contains("GET /a?x=1"), e.getMessage());
+        assertThrows(IllegalStateException.class, first::getHeaders);
+        assertEquals("2", parser.parse(input).getHeader(HttpHeader.CONTENT_LENGTH));
+    }
+
+    @Test
+    void testRequestsAreLeftAloneWhenRecyclingIsOff() {
+        HttpParser parser = new HttpParser(false, 256 * 1024, null, false, false);
+        ConnectionInputBuffer input = connection(PIPELINED);
+
+        HttpRequest first = parser.parse(input);
+        parser.recycle(first);
+        parser.parse(input);
+
+        assertEquals("first", first.getHeader("x-trace"));
+        assertEquals("/a", first.getPath());
+    }
+}
@@ -0,0 +1,77 @@
+package uz.hikmatullo.httpserver.core.parser;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.model.MultipartRawFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseMultipartFormDataBodyTest {
+
+    private static int naiveIndexOf(byte[] source, int from, int to, byte[] target) {
+        outer:
+        for (int i = from; i <= to - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (source[i + j] != target[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Test
+    void testBoundarySearchFindsFirstOccurrence() {
+        Random random = new Random(1);
+        for (int round = 0; round < 2000; round++) {
+            // a small alphabet makes partial matches and repeats likely
+            byte[] source = new byte[random.nextInt(200)];
+            for (int i = 0; i < source.length; i++) source[i] = (byte) ('a' + random.nextInt(3));
+            byte[] pattern = new byte[1 + random.nextInt(6)];
+            for (int i = 0; i < pattern.length; i++) pattern[i] = (byte) ('a' + random.nextInt(3));
+            int from = source.length == 0 ? 0 : random.nextInt(source.length);
+
+            assertEquals(naiveIndexOf(source, from, source.length, pattern),
+                    new BoundarySearch(pattern).indexOf(source, from, source.length));
+        }
+
+        byte[] text = "xx\r\n--abc--".getBytes(StandardCharsets.US_ASCII);
+        BoundarySearch delimiter = new BoundarySearch("\r\n--abc".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(2, delimiter.indexOf(text, 0, text.length));
+        assertEquals(-1, delimiter.indexOf(text, 0, 8));
+        assertEquals(-1, delimiter.indexOf(text, 3, text.length));
+    }
+
+    @Test
+    void testPartsAreViewsOfTheBody() {
+        String body = "--xyz\r\n" +
+                "Content-Disposition: form-data; name=\"note\"\r\n\r\n" +
+                "ünïcode\r\n" +
+                "--xyz\r\n" +
+                "Content-Disposition: form-data; name=\"doc\"; filename=\"a.txt\"\r\n" +
+                "Content-Type: text/plain\r\n\r\n" +
+                "line one\n--xyz is not a delimiter here\r\n" +
+                "--xyz--\r\n";
+
+        ParseMultipartFormDataBody.Result result =
+                ParseMultipartFormDataBody.parse(body.getBytes(StandardCharsets.UTF_8), "xyz");
+
+        assertEquals("ünïcode", result.fields.get("note"));
+        MultipartRawFile file = result.files.getFirst();
+        assertEquals("a.txt", file.getFileName());
+        assertEquals("text/plain", file.getContentType());
+        assertEquals("line one\n--xyz is not a delimiter here", new String(file.getData(), StandardCharsets.UTF_8));
+
+        ByteBuffer content = file.getContent();
+        assertTrue(content.isReadOnly());
+        assertEquals(0, content.position());
+        assertEquals(file.getSize(), content.remaining());
+        assertThrows(ReadOnlyBufferException.class, () -> content.put(0, (byte) 'X'));
+        // every call gets its own position
+        content.get();
+        assertEquals(0, file.getContent().position());
+    }
+}
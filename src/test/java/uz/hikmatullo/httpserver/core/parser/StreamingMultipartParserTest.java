@@ -0,0 +1,135 @@
+package uz.hikmatullo.httpserver.core.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uz.hikmatullo.httpserver.core.io.ConnectionInputBuffer;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.MultipartRawFile;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingMultipartParserTest {
+
+    private static final String BOUNDARY = "----form7MA4YWxk";
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] body(byte[] file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("preamble\r\n--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"title\"\r\n\r\n" +
+                "Holiday\r\n--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"photo\"; filename=\"beach.jpg\"\r\n" +
+                "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(file);
+        out.write(("\r\n--" + BOUNDARY + "--\r\nepilogue").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    // hands out a few bytes per read, so delimiters arrive split across reads
+    private static InputStream trickle(byte[] data) {
+        return new FilterInputStream(new ByteArrayInputStream(data)) {
+            private final Random random = new Random(7);
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1 + random.nextInt(100)));
+            }
+        };
+    }
+
+    private long tempFiles() throws IOException {
+        try (var files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testSmallFileStaysInMemory() throws IOException {
+        byte[] photo = randomBytes(1000);
+        ParseMultipartFormDataBody.Result result = new StreamingMultipartParser(4096, tempDir)
+                .parse(trickle(body(photo)), BOUNDARY);
+
+        assertEquals("Holiday", result.fields.get("title"));
+        MultipartRawFile file = result.files.getFirst();
+        assertEquals("photo", file.getFieldName());
+        assertEquals("beach.jpg", file.getFileName());
+        assertEquals("image/jpeg", file.getContentType());
+        assertTrue(file.isInMemory());
+        assertArrayEquals(photo, file.getData());
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    void testLargeFileIsSpilledToDisk() throws IOException {
+        byte[] photo = randomBytes(300_000);
+        ParseMultipartFormDataBody.Result result = new StreamingMultipartParser(4096, tempDir)
+                .parse(trickle(body(photo)), BOUNDARY);
+
+        MultipartRawFile file = result.files.getFirst();
+        assertFalse(file.isInMemory());
+        assertEquals(photo.length, file.getSize());
+        assertEquals(tempDir, file.getPath().getParent());
+        assertArrayEquals(photo, Files.readAllBytes(file.getPath()));
+        try (InputStream in = file.openStream()) {
+            assertArrayEquals(photo, in.readAllBytes());
+        }
+
+        file.delete();
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    void testUnterminatedBodyLeavesNoFiles() throws IOException {
+        byte[] full = body(randomBytes(50_000));
+        byte[] truncated = Arrays.copyOf(full, full.length - 30);
+
+        HttpParsingException e = assertThrows(HttpParsingException.class,
+                () -> new StreamingMultipartParser(1024, tempDir).parse(new ByteArrayInputStream(truncated), BOUNDARY));
+        assertEquals(400, e.getErrorCode().getCode());
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    void testLargeBodyIsParsedWhileReadByHttpParser() throws IOException {
+        byte[] photo = randomBytes(100_000);
+        byte[] body = body(photo);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        raw.write(("POST /upload HTTP/1.1\r\nHost: localhost\r\n" +
+                "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n" +
+                "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        raw.write(body);
+        raw.write("GET /next HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        ConnectionInputBuffer connection = new ConnectionInputBuffer(new ByteArrayInputStream(raw.toByteArray()));
+        HttpParser parser = new HttpParser(false, 8192, tempDir);
+
+        HttpRequest upload = parser.parse(connection);
+        assertEquals("Holiday", upload.getFormFields().get("title"));
+        MultipartRawFile file = upload.getMultipartRawFiles().getFirst();
+        assertFalse(file.isInMemory());
+        assertArrayEquals(photo, file.getData());
+
+        upload.deleteTemporaryFiles();
+        assertEquals(0, tempFiles());
+        assertEquals("/next", parser.parse(connection).getPath());
+    }
+}
@@ -0,0 +1,51 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+    private static final InetSocketAddress CLIENT_A = new InetSocketAddress("10.0.0.1", 40000);
+    private static final InetSocketAddress CLIENT_B = new InetSocketAddress("10.0.0.2", 40000);
+
+    @Test
+    void testGlobalLimit() {
+        AdmissionController controller = new AdmissionController(2, 0, 1);
+        AdmissionController.Permit first = controller.tryAdmit(CLIENT_A);
+        assertNotNull(first);
+        assertNotNull(controller.tryAdmit(CLIENT_B));
+        assertNull(controller.tryAdmit(CLIENT_B));
+        assertEquals(1, controller.getRejectedGlobalCount());
+
+        first.release();
+        assertNotNull(controller.tryAdmit(CLIENT_B));
+        assertEquals(3, controller.getAdmittedCount());
+    }
+
+    @Test
+    void testPerIpLimit() {
+        AdmissionController controller = new AdmissionController(0, 1, 1);
+        AdmissionController.Permit permit = controller.tryAdmit(CLIENT_A);
+        assertNotNull(permit);
+        assertNull(controller.tryAdmit(CLIENT_A));
+        assertNotNull(controller.tryAdmit(CLIENT_B));
+        assertEquals(1, controller.getRejectedPerIpCount());
+
+        permit.release();
+        assertNotNull(controller.tryAdmit(CLIENT_A));
+    }
+
+    @Test
+    void testReleaseIsIdempotent() {
+        AdmissionController controller = new AdmissionController(1, 1, 1);
+        AdmissionController.Permit permit = controller.tryAdmit(CLIENT_A);
+        permit.release();
+        permit.release();
+        assertEquals(0, controller.getActiveConnections());
+        assertNotNull(controller.tryAdmit(CLIENT_A));
+        assertNull(controller.tryAdmit(CLIENT_A));
+    }
+}
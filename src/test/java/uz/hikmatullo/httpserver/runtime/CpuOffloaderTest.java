@@ -0,0 +1,88 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.handler.RequestHandler;
+import uz.hikmatullo.httpserver.core.model.HttpRequest;
+import uz.hikmatullo.httpserver.core.model.HttpResponse;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.core.parser.HttpParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CpuOffloaderTest {
+
+    private static final HttpRequest REQUEST = new HttpParser().parse(
+            new ByteArrayInputStream("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+
+    private static RequestHandler handler(boolean cpuBound, Runnable body) {
+        return new RequestHandler() {
+            @Override
+            public HttpResponse handle(HttpRequest httpRequest) {
+                body.run();
+                return new HttpResponse(HttpStatusCode.OK);
+            }
+
+            @Override
+            public boolean isCpuBound(HttpRequest httpRequest) {
+                return cpuBound;
+            }
+        };
+    }
+
+    @Test
+    void testCpuBoundHandlerRunsOnCpuExecutor() {
+        CpuOffloader offloader = new CpuOffloader(4, 1);
+        AtomicReference<String> thread = new AtomicReference<>();
+
+        HttpResponse response = offloader.handle(handler(true, () -> thread.set(Thread.currentThread().getName())), REQUEST);
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue(thread.get().startsWith("cpu-"), thread.get());
+        assertEquals(1, offloader.getCompletedCount());
+        assertEquals(0, offloader.getQueueDepth());
+    }
+
+    @Test
+    void testRegularHandlerRunsOnCallerThread() {
+        CpuOffloader offloader = new CpuOffloader(4, 1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        offloader.handle(handler(false, () -> thread.set(Thread.currentThread())), REQUEST);
+
+        assertSame(Thread.currentThread(), thread.get());
+        assertEquals(0, offloader.getCompletedCount());
+    }
+
+    @Test
+    void testRejectsWhenPendingLimitReached() throws InterruptedException {
+        CpuOffloader offloader = new CpuOffloader(1, 3);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestHandler blocking = handler(true, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread first = Thread.ofVirtual().start(() -> offloader.handle(blocking, REQUEST));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        HttpResponse rejected = offloader.handle(blocking, REQUEST);
+        assertEquals(503, rejected.getStatusCode());
+        assertEquals("3", rejected.getHeader("Retry-After"));
+        assertEquals(1, offloader.getRejectedCount());
+
+        release.countDown();
+        first.join(2000);
+        assertEquals(1, offloader.getCompletedCount());
+    }
+}
@@ -0,0 +1,93 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrainCoordinatorTest {
+
+    /**
+     * Connection that is either idle (closes on request) or busy (only closes when forced).
+     */
+    private static final class FakeConnection implements DrainCoordinator.Drainable {
+        private final DrainCoordinator coordinator;
+        private final boolean idle;
+        private boolean closed;
+        private boolean forced;
+
+        FakeConnection(DrainCoordinator coordinator, boolean idle) {
+            this.coordinator = coordinator;
+            this.idle = idle;
+        }
+
+        @Override
+        public void closeIfIdle() {
+            if (idle) {
+                closed = true;
+                coordinator.unregister(this);
+            }
+        }
+
+        @Override
+        public void forceClose() {
+            closed = true;
+            forced = true;
+            coordinator.unregister(this);
+        }
+    }
+
+    @Test
+    void testIdleConnectionsCloseOnDrain() {
+        DrainCoordinator coordinator = new DrainCoordinator();
+        FakeConnection idle = new FakeConnection(coordinator, true);
+        coordinator.register(idle);
+
+        coordinator.beginDrain();
+        assertTrue(coordinator.isDraining());
+        assertTrue(idle.closed);
+
+        DrainCoordinator.DrainReport report = coordinator.awaitDrained(1000);
+        assertEquals(0, report.getConnectionsCutOff());
+        assertFalse(idle.forced);
+    }
+
+    @Test
+    void testBusyConnectionIsCutOffAfterTimeout() {
+        DrainCoordinator coordinator = new DrainCoordinator();
+        FakeConnection busy = new FakeConnection(coordinator, false);
+        coordinator.register(busy);
+        coordinator.requestStarted();
+
+        coordinator.beginDrain();
+        DrainCoordinator.DrainReport report = coordinator.awaitDrained(100);
+
+        assertTrue(busy.forced);
+        assertEquals(1, report.getConnectionsCutOff());
+        assertEquals(1, report.getRequestsCutOff());
+        assertEquals(0, coordinator.getOpenConnections());
+    }
+
+    @Test
+    void testConnectionRegisteredDuringDrainIsClosedWhenIdle() {
+        DrainCoordinator coordinator = new DrainCoordinator();
+        coordinator.beginDrain();
+
+        FakeConnection late = new FakeConnection(coordinator, true);
+        coordinator.register(late);
+        assertTrue(late.closed);
+    }
+
+    @Test
+    void testForceCloseAllWithoutDrain() {
+        DrainCoordinator coordinator = new DrainCoordinator();
+        FakeConnection idle = new FakeConnection(coordinator, true);
+        FakeConnection busy = new FakeConnection(coordinator, false);
+        coordinator.register(idle);
+        coordinator.register(busy);
+
+        assertEquals(2, coordinator.forceCloseAll());
+        assertTrue(idle.forced);
+        assertTrue(busy.forced);
+        assertEquals(0, coordinator.getOpenConnections());
+    }
+}
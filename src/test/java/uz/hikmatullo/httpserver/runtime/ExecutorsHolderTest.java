@@ -0,0 +1,28 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.config.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorsHolderTest {
+
+    @Test
+    void testExecutorsAreNotRecreatedAfterShutdown() {
+        ExecutorService before = ExecutorsHolder.httpExecutor();
+        try {
+            ExecutorsHolder.shutdownAll();
+
+            assertTrue(before.isShutdown());
+            assertThrows(RejectedExecutionException.class, ExecutorsHolder::httpExecutor);
+            assertThrows(RejectedExecutionException.class, ExecutorsHolder::webSocketExecutor);
+            assertThrows(RejectedExecutionException.class, ExecutorsHolder::cpuExecutor);
+        } finally {
+            ExecutorsHolder.configure(new Configuration());
+        }
+        assertFalse(ExecutorsHolder.httpExecutor().isShutdown());
+    }
+}
@@ -0,0 +1,89 @@
+package uz.hikmatullo.httpserver.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    @Test
+    void testTimeoutExpires() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        try {
+            CountDownLatch fired = new CountDownLatch(1);
+            long start = System.nanoTime();
+            HashedWheelTimer.Timeout timeout = timer.newTimeout(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+            assertTrue(fired.await(2, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(timeout.isExpired());
+            assertEquals(0, timer.getPendingTimeouts());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void testDelayLongerThanOneWheelTurn() throws InterruptedException {
+        // 8 ticks of 10ms per turn, the timeout needs a few extra rounds
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        try {
+            CountDownLatch fired = new CountDownLatch(1);
+            long start = System.nanoTime();
+            timer.newTimeout(fired::countDown, 250, TimeUnit.MILLISECONDS);
+
+            assertTrue(fired.await(2, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void testCancelledTimeoutDoesNotRun() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            HashedWheelTimer.Timeout cancelled = timer.newTimeout(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+            CountDownLatch later = new CountDownLatch(1);
+            timer.newTimeout(later::countDown, 150, TimeUnit.MILLISECONDS);
+
+            assertTrue(cancelled.cancel());
+            assertFalse(cancelled.cancel());
+            assertTrue(cancelled.isCancelled());
+
+            assertTrue(later.await(2, TimeUnit.SECONDS));
+            assertEquals(0, runs.get());
+            assertEquals(0, timer.getPendingTimeouts());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void testIdleTimeoutRearmsOnActivity() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        try {
+            AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
+            CountDownLatch idle = new CountDownLatch(1);
+            IdleTimeout idleTimeout = new IdleTimeout(timer, 100, lastActivity::get, idle::countDown);
+            idleTimeout.start();
+
+            // keep it busy for longer than one period
+            for (int i = 0; i < 4; i++) {
+                Thread.sleep(50);
+                lastActivity.set(System.currentTimeMillis());
+            }
+            assertEquals(1, idle.getCount());
+
+            assertTrue(idle.await(2, TimeUnit.SECONDS));
+        } finally {
+            timer.stop();
+        }
+    }
+}
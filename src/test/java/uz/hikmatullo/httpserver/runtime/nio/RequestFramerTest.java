@@ -0,0 +1,71 @@
+package uz.hikmatullo.httpserver.runtime.nio;
+
+import org.junit.jupiter.api.Test;
+import uz.hikmatullo.httpserver.core.model.HttpStatusCode;
+import uz.hikmatullo.httpserver.exception.HttpParsingException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestFramerTest {
+
+    @Test
+    void testIncompleteHeaders() {
+        byte[] raw = bytes("GET / HTTP/1.1\r\nHost: localhost\r\n");
+        assertEquals(-1, RequestFramer.frameLength(raw, raw.length));
+    }
+
+    @Test
+    void testRequestWithoutBody() {
+        byte[] raw = bytes("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertEquals(raw.length, RequestFramer.frameLength(raw, raw.length));
+    }
+
+    @Test
+    void testContentLengthBody() {
+        String request = "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nHello";
+        byte[] raw = bytes(request);
+        assertEquals(raw.length, RequestFramer.frameLength(raw, raw.length));
+        assertEquals(-1, RequestFramer.frameLength(raw, raw.length - 1));
+    }
+
+    @Test
+    void testPipelinedRequestsFrameOnlyFirst() {
+        String first = "GET /a HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        byte[] raw = bytes(first + "GET /b HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertEquals(first.length(), RequestFramer.frameLength(raw, raw.length));
+    }
+
+    @Test
+    void testChunkedBody() {
+        String request = "POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                "5\r\nHello\r\n5\r\nWorld\r\n0\r\n\r\n";
+        byte[] raw = bytes(request);
+        assertEquals(raw.length, RequestFramer.frameLength(raw, raw.length));
+        assertEquals(-1, RequestFramer.frameLength(raw, raw.length - 2));
+    }
+
+    @Test
+    void testChunkedBodyWithTrailers() {
+        String request = "POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                "5\r\nHello\r\n0\r\nX-Checksum: 1\r\n\r\n";
+        byte[] raw = bytes(request);
+        assertEquals(raw.length, RequestFramer.frameLength(raw, raw.length));
+    }
+
+    @Test
+    void testInvalidContentLength() {
+        byte[] raw = bytes("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: abc\r\n\r\n");
+        try {
+            RequestFramer.frameLength(raw, raw.length);
+            fail();
+        } catch (HttpParsingException e) {
+            assertEquals(HttpStatusCode.BAD_REQUEST, e.getErrorCode());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}